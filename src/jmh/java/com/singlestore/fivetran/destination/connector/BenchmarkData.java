@@ -0,0 +1,172 @@
+package com.singlestore.fivetran.destination.connector;
+
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.DataType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates input data for benchmarks and provides JDBC objects which don't need a database.
+ */
+public class BenchmarkData {
+    // Characters which must be escaped in CSV or TSV
+    private static final char[] SPECIAL_CHARACTERS = {'\\', '\n', '\t', '"', ','};
+    private static final String ALPHABET =
+            "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ";
+
+    public static final String NULL_STRING = "NULL";
+
+    private BenchmarkData() {
+    }
+
+    public static List<String> header(int columnCount) {
+        List<String> header = new ArrayList<>();
+        for (int i = 0; i < columnCount; i++) {
+            header.add("c" + i);
+        }
+        return header;
+    }
+
+    /**
+     * Returns string columns where the first column is the primary key.
+     */
+    public static List<Column> columns(int columnCount) {
+        return columns(columnCount, 1);
+    }
+
+    /**
+     * Returns string columns which all form the primary key.
+     */
+    public static List<Column> primaryKeyColumns(int columnCount) {
+        return columns(columnCount, columnCount);
+    }
+
+    private static List<Column> columns(int columnCount, int keyColumnCount) {
+        List<Column> columns = new ArrayList<>();
+        for (String name : header(columnCount)) {
+            columns.add(Column.newBuilder().setName(name).setType(DataType.STRING)
+                    .setPrimaryKey(columns.size() < keyColumnCount).build());
+        }
+        return columns;
+    }
+
+    /**
+     * Generates rows of random values. The first value is a unique key; other values have the
+     * given width, and the given fraction of their characters needs escaping.
+     */
+    public static List<List<String>> rows(int rowCount, int columnCount, int valueWidth,
+                                          double escapeDensity, long seed) {
+        Random random = new Random(seed);
+        List<List<String>> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            List<String> row = new ArrayList<>(columnCount);
+            row.add(String.valueOf(i));
+            for (int j = 1; j < columnCount; j++) {
+                row.add(value(random, valueWidth, escapeDensity));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    public static String value(Random random, int width, double escapeDensity) {
+        StringBuilder sb = new StringBuilder(width);
+        for (int i = 0; i < width; i++) {
+            if (random.nextDouble() < escapeDensity) {
+                sb.append(SPECIAL_CHARACTERS[random.nextInt(SPECIAL_CHARACTERS.length)]);
+            } else {
+                sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Encodes the rows as a CSV file in the format of Fivetran batch files.
+     */
+    public static byte[] csv(List<String> header, List<List<String>> rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeCsvRow(out, header);
+        for (List<String> row : rows) {
+            writeCsvRow(out, row);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeCsvRow(OutputStream out, List<String> row) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < row.size(); i++) {
+            if (i != 0) {
+                sb.append(',');
+            }
+            sb.append('"').append(row.get(i).replace("\"", "\"\"")).append('"');
+        }
+        sb.append('\n');
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns a connection whose prepared statements accept parameters and do nothing.
+     */
+    public static Connection connection() {
+        return stub(Connection.class, (proxy, method, args) -> {
+            if (method.getName().equals("prepareStatement")) {
+                return preparedStatement();
+            }
+            return defaultValue(method.getReturnType());
+        });
+    }
+
+    /**
+     * Returns a prepared statement which accepts parameters and does nothing.
+     */
+    public static PreparedStatement preparedStatement() {
+        return stub(PreparedStatement.class,
+                (proxy, method, args) -> defaultValue(method.getReturnType()));
+    }
+
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(BenchmarkData.class.getClassLoader(),
+                new Class<?>[] {type}, handler));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type.isArray() && type.getComponentType() == int.class) {
+            return new int[0];
+        } else if (type.isPrimitive() && type != void.class) {
+            throw new UnsupportedOperationException("Unsupported return type " + type);
+        }
+        return null;
+    }
+
+    /**
+     * Output stream which discards all bytes.
+     */
+    public static OutputStream nullOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package com.singlestore.fivetran.destination.connector;
+
+import fivetran_sdk.v2.DataType;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures conversion of values read from batch files to query parameters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JDBCUtilBenchmark {
+    @State(Scope.Thread)
+    public static class Parameters {
+        @Param({"BOOLEAN", "SHORT", "INT", "LONG", "DECIMAL", "FLOAT", "DOUBLE", "NAIVE_DATE",
+                "NAIVE_DATETIME", "UTC_DATETIME", "BINARY", "XML", "STRING", "JSON",
+                "NAIVE_TIME", "UNSPECIFIED"})
+        public String type;
+
+        DataType dataType;
+        String value;
+        PreparedStatement stmt;
+
+        @Setup
+        public void setup() {
+            dataType = DataType.valueOf(type);
+            value = sampleValue(dataType);
+            stmt = BenchmarkData.preparedStatement();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class DateTimes {
+        @Param({"2024-01-02T03:04:05Z", "2024-01-02T03:04:05.123Z",
+                "2024-01-02T03:04:05.123456789Z"})
+        public String dateTime;
+    }
+
+    static String sampleValue(DataType type) {
+        switch (type) {
+            case BOOLEAN:
+                return "true";
+            case SHORT:
+                return "12345";
+            case INT:
+                return "1234567890";
+            case LONG:
+                return "1234567890123456789";
+            case DECIMAL:
+                return "12345678.90123456";
+            case FLOAT:
+                return "1234.5678";
+            case DOUBLE:
+                return "1234567.890123456";
+            case NAIVE_DATE:
+                return "2024-01-02";
+            case NAIVE_DATETIME:
+                return "2024-01-02T03:04:05.123";
+            case UTC_DATETIME:
+                return "2024-01-02T03:04:05.123456Z";
+            case BINARY:
+                return "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+            case XML:
+                return "<a><b>value</b></a>";
+            case JSON:
+                return "{\"a\": [1, 2, 3], \"b\": \"value\"}";
+            case NAIVE_TIME:
+                return "03:04:05";
+            default:
+                return "the quick brown fox jumps over the lazy dog";
+        }
+    }
+
+    @Benchmark
+    public String formatISODateTime(DateTimes state) {
+        return JDBCUtil.formatISODateTime(state.dateTime);
+    }
+
+    @Benchmark
+    public PreparedStatement setParameter(Parameters state) throws SQLException {
+        JDBCUtil.setParameter(state.stmt, 1, state.dataType, state.value,
+                BenchmarkData.NULL_STRING);
+        return state.stmt;
+    }
+}
@@ -0,0 +1,367 @@
+package com.singlestore.fivetran.destination.connector;
+
+import com.singlestore.jdbc.client.util.ClosableLock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * JDBC stand-in which records the statements executed by writers instead of sending them to a
+ * database.
+ * <p>
+ * Every execution is counted as one round trip delayed by the configured latency. A JDBC batch is
+ * one round trip, as the driver sends its statements without waiting for each response. The SQL
+ * bytes of an execution are the length of its SQL text plus the text length of its parameters,
+ * which is what the driver sends for client-side prepared statements. Streams of
+ * {@code LOAD DATA LOCAL INFILE} are read to the end and counted separately; statements unwrap to
+ * a driver statement which accepts these streams. Executing a statement whose bound parameters
+ * don't match its placeholders fails, as it would on a database. Queries return one row where
+ * every column is 1. Must be used by one thread at a time.
+ */
+public class RecordingJdbc {
+    private final long latencyNanos;
+
+    private long roundTrips = 0;
+    private long statements = 0;
+    private long parameters = 0;
+    private long sqlBytes = 0;
+    private long loadDataBytes = 0;
+
+    public RecordingJdbc(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    public long roundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * Number of executed statements, counting every statement of a batch.
+     */
+    public long statements() {
+        return statements;
+    }
+
+    public long parameters() {
+        return parameters;
+    }
+
+    public long sqlBytes() {
+        return sqlBytes;
+    }
+
+    public long loadDataBytes() {
+        return loadDataBytes;
+    }
+
+    public void reset() {
+        roundTrips = 0;
+        statements = 0;
+        parameters = 0;
+        sqlBytes = 0;
+        loadDataBytes = 0;
+    }
+
+    public Connection connection() {
+        return proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return statement((String) args[0]);
+                case "createStatement":
+                    return statement(null);
+                case "isValid":
+                case "getAutoCommit":
+                    return true;
+                case "isWrapperFor":
+                    return false;
+                case "unwrap":
+                    throw new SQLFeatureNotSupportedException("Not a wrapper");
+                default:
+                    return defaultValue(method);
+            }
+        });
+    }
+
+    private PreparedStatement statement(String preparedSql) {
+        return proxy(PreparedStatement.class, new StatementHandler(preparedSql));
+    }
+
+    private void record(String sql, int statementCount, long parameterCount, long parameterBytes) {
+        LockSupport.parkNanos(latencyNanos);
+        roundTrips++;
+        statements += statementCount;
+        parameters += parameterCount;
+        sqlBytes += (long) sql.length() * statementCount + parameterBytes;
+    }
+
+    /**
+     * Counts {@code ?} placeholders outside of quoted strings and identifiers.
+     */
+    static int placeholders(String sql) {
+        int count = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && quote != '`') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Fails unless parameters 1 to the number of placeholders of the statement are bound.
+     */
+    private static void checkParameters(String sql, Map<Integer, Integer> parameterLengths)
+            throws SQLException {
+        int expected = placeholders(sql);
+        if (parameterLengths.size() != expected
+                || (expected > 0 && !parameterLengths.containsKey(expected))) {
+            throw new SQLException(String.format(
+                    "Statement has %d placeholders, but parameters %s are bound: %s", expected,
+                    parameterLengths.keySet(), sql));
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final String preparedSql;
+        private final Map<Integer, Integer> parameterLengths = new TreeMap<>();
+        private final List<long[]> batch = new ArrayList<>();
+        private InputStream localInfileStream;
+        private com.singlestore.jdbc.Statement driverStatement;
+
+        StatementHandler(String preparedSql) {
+            this.preparedSql = preparedSql;
+        }
+
+        /**
+         * Detached driver statement which only passes LOAD DATA streams to this statement.
+         */
+        private com.singlestore.jdbc.Statement driverStatement() {
+            if (driverStatement == null) {
+                driverStatement = new com.singlestore.jdbc.Statement(null, new ClosableLock(),
+                        java.sql.Statement.NO_GENERATED_KEYS, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY, 0) {
+                    @Override
+                    public void setNextLocalInfileInputStream(InputStream is) {
+                        localInfileStream = is;
+                    }
+                };
+            }
+            return driverStatement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2
+                    && args[0] instanceof Integer) {
+                parameterLengths.put((Integer) args[0],
+                        name.equals("setNull") ? textLength(null) : textLength(args[1]));
+                return null;
+            }
+
+            switch (name) {
+                case "clearParameters":
+                    parameterLengths.clear();
+                    return null;
+                case "addBatch":
+                    checkParameters(preparedSql, parameterLengths);
+                    batch.add(new long[] {parameterLengths.size(), parameterBytes()});
+                    parameterLengths.clear();
+                    return null;
+                case "clearBatch":
+                    batch.clear();
+                    return null;
+                case "executeBatch":
+                    return executeBatch();
+                case "execute":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "executeQuery":
+                    if (args == null || args.length == 0) {
+                        execute(preparedSql, true);
+                    } else {
+                        execute((String) args[0], false);
+                    }
+                    if (name.equals("executeQuery")) {
+                        return resultSet();
+                    } else if (name.equals("execute")) {
+                        return false;
+                    }
+                    return method.getReturnType() == long.class ? (Object) 1L : (Object) 1;
+                case "isWrapperFor":
+                    return args[0] == com.singlestore.jdbc.Statement.class;
+                case "unwrap":
+                    if (args[0] == com.singlestore.jdbc.Statement.class) {
+                        return driverStatement();
+                    }
+                    throw new SQLFeatureNotSupportedException("Not a wrapper for " + args[0]);
+                default:
+                    return defaultValue(method);
+            }
+        }
+
+        private int[] executeBatch() {
+            if (batch.isEmpty()) {
+                return new int[0];
+            }
+
+            long parameterCount = 0;
+            long parameterBytes = 0;
+            for (long[] statement : batch) {
+                parameterCount += statement[0];
+                parameterBytes += statement[1];
+            }
+            record(preparedSql, batch.size(), parameterCount, parameterBytes);
+
+            int[] counts = new int[batch.size()];
+            Arrays.fill(counts, 1);
+            batch.clear();
+            return counts;
+        }
+
+        private void execute(String sql, boolean prepared) throws SQLException {
+            if (prepared) {
+                checkParameters(sql, parameterLengths);
+                record(sql, 1, parameterLengths.size(), parameterBytes());
+            } else {
+                checkParameters(sql, Collections.emptyMap());
+                record(sql, 1, 0, 0);
+            }
+
+            if (localInfileStream != null && sql.trim().toUpperCase(Locale.ROOT).startsWith("LOAD DATA")) {
+                InputStream is = localInfileStream;
+                localInfileStream = null;
+                try {
+                    byte[] buf = new byte[65536];
+                    int n;
+                    while ((n = is.read(buf)) != -1) {
+                        loadDataBytes += n;
+                    }
+                } catch (IOException e) {
+                    throw new SQLException("Failed to read the LOAD DATA stream", e);
+                }
+            }
+        }
+
+        private long parameterBytes() {
+            long bytes = 0;
+            for (int length : parameterLengths.values()) {
+                bytes += length;
+            }
+            return bytes;
+        }
+    }
+
+    private static int textLength(Object value) {
+        if (value == null) {
+            return 4;
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString().length();
+        }
+        return value.toString().length();
+    }
+
+    private static ResultSet resultSet() {
+        boolean[] read = {false};
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    boolean hasRow = !read[0];
+                    read[0] = true;
+                    return hasRow;
+                case "getString":
+                    return "1";
+                case "getObject":
+                    return 1L;
+                case "getBoolean":
+                    return true;
+                case "wasNull":
+                    return false;
+                default:
+                    Class<?> type = method.getReturnType();
+                    if (method.getName().startsWith("get") && type.isPrimitive()) {
+                        return primitiveOne(type);
+                    }
+                    return defaultValue(method);
+            }
+        });
+    }
+
+    private static Object primitiveOne(Class<?> type) {
+        if (type == int.class) {
+            return 1;
+        } else if (type == long.class) {
+            return 1L;
+        } else if (type == short.class) {
+            return (short) 1;
+        } else if (type == byte.class) {
+            return (byte) 1;
+        } else if (type == double.class) {
+            return 1.0;
+        } else if (type == float.class) {
+            return 1.0f;
+        }
+        return defaultPrimitive(type);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type.isPrimitive() && type != void.class) {
+            return defaultPrimitive(type);
+        }
+        return null;
+    }
+
+    private static Object defaultPrimitive(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == double.class) {
+            return 0.0;
+        } else if (type == float.class) {
+            return 0.0f;
+        }
+        return (char) 0;
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(RecordingJdbc.class.getClassLoader(),
+                new Class<?>[] {type}, handler));
+    }
+}
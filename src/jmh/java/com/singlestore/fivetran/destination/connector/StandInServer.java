@@ -0,0 +1,707 @@
+package com.singlestore.fivetran.destination.connector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-process server which speaks enough of the MySQL wire protocol for the SingleStore JDBC driver
+ * to connect, execute statements and stream {@code LOAD DATA LOCAL INFILE}.
+ * <p>
+ * Statements are not executed. {@code SELECT} returns one row with a value per selected
+ * expression, {@code SHOW} returns no rows, DML statements report one affected row and other
+ * statements succeed. Server-side prepared statements are supported for statements which don't
+ * return rows. {@code LOAD DATA} reads the whole stream and counts its bytes and lines, so
+ * benchmarks measure the cost of the connector without the cost of the database. Lines are
+ * counted only in uncompressed streams.
+ */
+public class StandInServer implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(StandInServer.class);
+
+    private static final int MAX_PACKET_LENGTH = 0xFFFFFF;
+
+    private static final int COM_QUIT = 0x01;
+    private static final int COM_INIT_DB = 0x02;
+    private static final int COM_QUERY = 0x03;
+    private static final int COM_PING = 0x0e;
+    private static final int COM_STMT_PREPARE = 0x16;
+    private static final int COM_STMT_EXECUTE = 0x17;
+    private static final int COM_STMT_CLOSE = 0x19;
+    private static final int COM_STMT_RESET = 0x1a;
+    private static final int COM_RESET_CONNECTION = 0x1f;
+
+    private static final int CLIENT_LONG_PASSWORD = 0x1;
+    private static final int CLIENT_FOUND_ROWS = 0x2;
+    private static final int CLIENT_LONG_FLAG = 0x4;
+    private static final int CLIENT_CONNECT_WITH_DB = 0x8;
+    private static final int CLIENT_LOCAL_FILES = 0x80;
+    private static final int CLIENT_PROTOCOL_41 = 0x200;
+    private static final int CLIENT_TRANSACTIONS = 0x2000;
+    private static final int CLIENT_SECURE_CONNECTION = 0x8000;
+    private static final int CLIENT_MULTI_STATEMENTS = 0x10000;
+    private static final int CLIENT_MULTI_RESULTS = 0x20000;
+    private static final int CLIENT_PLUGIN_AUTH = 0x80000;
+    private static final int CLIENT_CONNECT_ATTRS = 0x100000;
+    private static final int CLIENT_PLUGIN_AUTH_LENENC_CLIENT_DATA = 0x200000;
+    private static final int CAPABILITIES = CLIENT_LONG_PASSWORD | CLIENT_FOUND_ROWS
+            | CLIENT_LONG_FLAG | CLIENT_CONNECT_WITH_DB | CLIENT_LOCAL_FILES | CLIENT_PROTOCOL_41
+            | CLIENT_TRANSACTIONS | CLIENT_SECURE_CONNECTION | CLIENT_MULTI_STATEMENTS
+            | CLIENT_MULTI_RESULTS | CLIENT_PLUGIN_AUTH | CLIENT_CONNECT_ATTRS
+            | CLIENT_PLUGIN_AUTH_LENENC_CLIENT_DATA;
+
+    private static final int SERVER_STATUS_AUTOCOMMIT = 0x2;
+    private static final int SERVER_MORE_RESULTS_EXISTS = 0x8;
+
+    private static final int UTF8MB4_GENERAL_CI = 45;
+    private static final int MYSQL_TYPE_VAR_STRING = 0xfd;
+
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextConnectionId = new AtomicInteger(1);
+    private volatile boolean closed = false;
+
+    private final LongAdder connections = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder queryBytes = new LongAdder();
+    private final LongAdder loadDataBytes = new LongAdder();
+    private final LongAdder loadDataRows = new LongAdder();
+    private final LongAdder affectedRows = new LongAdder();
+
+    /**
+     * Starts the server on a free port of the loopback interface.
+     */
+    public StandInServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        acceptor = new Thread(this::accept, "stand-in-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Number of accepted connections.
+     */
+    public long connections() {
+        return connections.sum();
+    }
+
+    /**
+     * Number of received statements, including statements of multi-statement queries.
+     */
+    public long statements() {
+        return statements.sum();
+    }
+
+    /**
+     * Bytes of received query text.
+     */
+    public long queryBytes() {
+        return queryBytes.sum();
+    }
+
+    /**
+     * Bytes of received {@code LOAD DATA} streams.
+     */
+    public long loadDataBytes() {
+        return loadDataBytes.sum();
+    }
+
+    /**
+     * Lines of received uncompressed {@code LOAD DATA} streams.
+     */
+    public long loadDataRows() {
+        return loadDataRows.sum();
+    }
+
+    /**
+     * Rows reported as affected: one per DML statement and one per line of {@code LOAD DATA}.
+     */
+    public long affectedRows() {
+        return affectedRows.sum();
+    }
+
+    public void resetCounters() {
+        connections.reset();
+        statements.reset();
+        queryBytes.reset();
+        loadDataBytes.reset();
+        loadDataRows.reset();
+        affectedRows.reset();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    private void accept() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    logger.warn("Stand-in server failed to accept a connection", e);
+                }
+                return;
+            }
+
+            sockets.add(socket);
+            connections.increment();
+            int connectionId = nextConnectionId.getAndIncrement();
+            Thread t = new Thread(() -> {
+                try {
+                    new Session(socket, connectionId).run();
+                } catch (SocketException | EOFException e) {
+                    // The client closed the connection
+                } catch (IOException e) {
+                    if (!closed) {
+                        logger.warn("Stand-in server connection failed", e);
+                    }
+                } finally {
+                    sockets.remove(socket);
+                    try {
+                        socket.close();
+                    } catch (IOException e) {
+                        logger.debug("Failed to close stand-in server connection", e);
+                    }
+                }
+            }, "stand-in-server-connection-" + connectionId);
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    /**
+     * Splits a multi-statement query on semicolons outside of quotes.
+     */
+    static List<String> splitStatements(String query) {
+        List<String> result = new ArrayList<>();
+        int start = 0;
+        char quote = 0;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == ';') {
+                addStatement(result, query.substring(start, i));
+                start = i + 1;
+            }
+        }
+        addStatement(result, query.substring(start));
+
+        return result;
+    }
+
+    private static void addStatement(List<String> statements, String statement) {
+        if (!statement.trim().isEmpty()) {
+            statements.add(statement.trim());
+        }
+    }
+
+    /**
+     * Counts parameter placeholders outside of quotes.
+     */
+    static int countParameters(String statement) {
+        int count = 0;
+        char quote = 0;
+        for (int i = 0; i < statement.length(); i++) {
+            char c = statement.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '?') {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static boolean isDml(String statement) {
+        String upper = statement.trim().toUpperCase(Locale.ROOT);
+        return upper.startsWith("INSERT") || upper.startsWith("UPDATE")
+                || upper.startsWith("DELETE") || upper.startsWith("REPLACE");
+    }
+
+    /**
+     * Splits the expressions of a {@code SELECT} on commas outside of parentheses and quotes.
+     */
+    static List<String> selectExpressions(String select) {
+        String list = select.substring("SELECT".length());
+        int from = list.toUpperCase(Locale.ROOT).indexOf(" FROM ");
+        if (from != -1) {
+            list = list.substring(0, from);
+        }
+
+        List<String> result = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        char quote = 0;
+        for (int i = 0; i < list.length(); i++) {
+            char c = list.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                result.add(list.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        result.add(list.substring(start).trim());
+
+        return result;
+    }
+
+    private static String selectValue(String expression) {
+        String lower = expression.toLowerCase(Locale.ROOT);
+        if (lower.contains("max_allowed_packet")) {
+            return "16777216";
+        } else if (lower.contains("wait_timeout")) {
+            return "28800";
+        } else if (lower.contains("version")) {
+            return "8.0.32";
+        } else if (lower.contains("time_zone")) {
+            return "SYSTEM";
+        } else if (lower.matches("-?[0-9]+")) {
+            return lower;
+        }
+        return "1";
+    }
+
+    private class Session {
+        private final Socket socket;
+        private final int connectionId;
+        private final InputStream in;
+        private final OutputStream out;
+        private byte[] buffer = new byte[65536];
+        private int sequence = 0;
+        // Whether prepared statements are DML, by statement id
+        private final Map<Integer, Boolean> prepared = new HashMap<>();
+        private int nextStatementId = 1;
+
+        Session(Socket socket, int connectionId) throws IOException {
+            this.socket = socket;
+            this.connectionId = connectionId;
+            socket.setTcpNoDelay(true);
+            this.in = new BufferedInputStream(socket.getInputStream(), 65536);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 65536);
+        }
+
+        void run() throws IOException {
+            sendHandshake();
+            // The handshake response is accepted without checking the credentials
+            readPacket();
+            sendOk(0, SERVER_STATUS_AUTOCOMMIT);
+            out.flush();
+
+            while (!socket.isClosed()) {
+                sequence = 0;
+                int length = readPacket();
+                if (length == 0) {
+                    continue;
+                }
+
+                int command = buffer[0] & 0xff;
+                switch (command) {
+                    case COM_QUIT:
+                        return;
+                    case COM_QUERY:
+                        String query =
+                                new String(buffer, 1, length - 1, StandardCharsets.UTF_8);
+                        queryBytes.add(length - 1);
+                        query(query);
+                        break;
+                    case COM_STMT_PREPARE:
+                        String statement =
+                                new String(buffer, 1, length - 1, StandardCharsets.UTF_8);
+                        queryBytes.add(length - 1);
+                        prepare(statement);
+                        break;
+                    case COM_STMT_EXECUTE:
+                        // Parameters are counted, but not decoded
+                        queryBytes.add(length - 1);
+                        statements.increment();
+                        Boolean dml = prepared.get(readInt4(1));
+                        if (dml == null) {
+                            sendError(1243, "HY000", "Unknown prepared statement handler");
+                        } else {
+                            sendOk(dml ? 1 : 0, SERVER_STATUS_AUTOCOMMIT);
+                        }
+                        break;
+                    case COM_STMT_CLOSE:
+                        prepared.remove(readInt4(1));
+                        break;
+                    case COM_INIT_DB:
+                    case COM_PING:
+                    case COM_RESET_CONNECTION:
+                    case COM_STMT_RESET:
+                        sendOk(0, SERVER_STATUS_AUTOCOMMIT);
+                        break;
+                    default:
+                        sendError(1047, "08S01",
+                                String.format("Command %d is not supported", command));
+                }
+                out.flush();
+            }
+        }
+
+        private void query(String query) throws IOException {
+            List<String> statementList = splitStatements(query);
+            if (statementList.isEmpty()) {
+                sendOk(0, SERVER_STATUS_AUTOCOMMIT);
+                return;
+            }
+
+            for (int i = 0; i < statementList.size(); i++) {
+                String statement = statementList.get(i);
+                int status = SERVER_STATUS_AUTOCOMMIT;
+                if (i != statementList.size() - 1) {
+                    status |= SERVER_MORE_RESULTS_EXISTS;
+                }
+                statements.increment();
+
+                String upper = statement.toUpperCase(Locale.ROOT);
+                if (upper.startsWith("LOAD DATA")) {
+                    loadData(statement, status);
+                } else if (upper.startsWith("SELECT")) {
+                    List<String> expressions = selectExpressions(statement);
+                    List<String> values = new ArrayList<>();
+                    for (String expression : expressions) {
+                        values.add(selectValue(expression));
+                    }
+                    sendResultSet(expressions, values, status);
+                } else if (upper.startsWith("SHOW")) {
+                    List<String> names = new ArrayList<>();
+                    names.add("Variable_name");
+                    names.add("Value");
+                    sendResultSet(names, null, status);
+                } else if (isDml(statement)) {
+                    sendOk(1, status);
+                } else {
+                    sendOk(0, status);
+                }
+            }
+        }
+
+        private void prepare(String statement) throws IOException {
+            if (statement.trim().toUpperCase(Locale.ROOT).startsWith("SELECT")) {
+                sendError(1295, "HY000",
+                        "Prepared statements which return rows are not supported");
+                return;
+            }
+
+            int id = nextStatementId++;
+            prepared.put(id, isDml(statement));
+            int parameters = countParameters(statement);
+
+            Packet p = new Packet();
+            p.int1(0);
+            p.int4(id);
+            p.int2(0);
+            p.int2(parameters);
+            p.int1(0);
+            p.int2(0);
+            writePacket(p.buf(), p.size());
+            if (parameters > 0) {
+                for (int i = 0; i < parameters; i++) {
+                    sendColumnDefinition("?");
+                }
+                sendEof(SERVER_STATUS_AUTOCOMMIT);
+            }
+        }
+
+        private void loadData(String statement, int status) throws IOException {
+            int start = statement.indexOf('\'');
+            int end = statement.indexOf('\'', start + 1);
+            String fileName = start == -1 || end == -1 ? "" : statement.substring(start + 1, end);
+            boolean compressed = !fileName.endsWith(".tsv") && fileName.contains(".");
+
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            request.write(0xfb);
+            request.write(fileName.getBytes(StandardCharsets.UTF_8));
+            writePacket(request.toByteArray(), request.size());
+            out.flush();
+
+            long bytes = 0;
+            long rows = 0;
+            while (true) {
+                int length = readPacket();
+                if (length == 0) {
+                    break;
+                }
+                bytes += length;
+                if (!compressed) {
+                    for (int i = 0; i < length; i++) {
+                        if (buffer[i] == '\n') {
+                            rows++;
+                        }
+                    }
+                }
+            }
+            loadDataBytes.add(bytes);
+            loadDataRows.add(rows);
+
+            sendOk(rows, status);
+        }
+
+        /**
+         * Reads a packet into the buffer, joining packets of the maximum length with the
+         * following ones. Returns the length of the payload.
+         */
+        private int readPacket() throws IOException {
+            int total = 0;
+            while (true) {
+                int length = readByte() | (readByte() << 8) | (readByte() << 16);
+                sequence = (readByte() + 1) & 0xff;
+
+                if (buffer.length < total + length) {
+                    byte[] newBuffer = new byte[Math.max(buffer.length * 2, total + length)];
+                    System.arraycopy(buffer, 0, newBuffer, 0, total);
+                    buffer = newBuffer;
+                }
+                readFully(buffer, total, length);
+                total += length;
+
+                if (length != MAX_PACKET_LENGTH) {
+                    return total;
+                }
+            }
+        }
+
+        private int readInt4(int offset) {
+            return (buffer[offset] & 0xff) | (buffer[offset + 1] & 0xff) << 8
+                    | (buffer[offset + 2] & 0xff) << 16 | (buffer[offset + 3] & 0xff) << 24;
+        }
+
+        private int readByte() throws IOException {
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException("Connection closed");
+            }
+            return b;
+        }
+
+        private void readFully(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = in.read(b, off, len);
+                if (n == -1) {
+                    throw new EOFException("Connection closed");
+                }
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void writePacket(byte[] payload, int length) throws IOException {
+            out.write(length & 0xff);
+            out.write((length >> 8) & 0xff);
+            out.write((length >> 16) & 0xff);
+            out.write(sequence);
+            sequence = (sequence + 1) & 0xff;
+            out.write(payload, 0, length);
+        }
+
+        private void sendHandshake() throws IOException {
+            byte[] scramble = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+
+            Packet p = new Packet();
+            p.int1(10);
+            p.nullTerminated("8.0.32-stand-in");
+            p.int4(connectionId);
+            p.bytes(scramble, 0, 8);
+            p.int1(0);
+            p.int2(CAPABILITIES & 0xffff);
+            p.int1(UTF8MB4_GENERAL_CI);
+            p.int2(SERVER_STATUS_AUTOCOMMIT);
+            p.int2(CAPABILITIES >>> 16);
+            p.int1(scramble.length + 1);
+            p.bytes(new byte[10], 0, 10);
+            p.bytes(scramble, 8, scramble.length - 8);
+            p.int1(0);
+            p.nullTerminated("mysql_native_password");
+            writePacket(p.buf(), p.size());
+            out.flush();
+        }
+
+        private void sendOk(long affectedRows, int status) throws IOException {
+            StandInServer.this.affectedRows.add(affectedRows);
+
+            Packet p = new Packet();
+            p.int1(0);
+            p.lenenc(affectedRows);
+            p.lenenc(0);
+            p.int2(status);
+            p.int2(0);
+            writePacket(p.buf(), p.size());
+        }
+
+        private void sendEof(int status) throws IOException {
+            Packet p = new Packet();
+            p.int1(0xfe);
+            p.int2(0);
+            p.int2(status);
+            writePacket(p.buf(), p.size());
+        }
+
+        private void sendError(int code, String sqlState, String message) throws IOException {
+            Packet p = new Packet();
+            p.int1(0xff);
+            p.int2(code);
+            p.int1('#');
+            p.bytes(sqlState.getBytes(StandardCharsets.US_ASCII), 0, 5);
+            p.bytes(message.getBytes(StandardCharsets.UTF_8));
+            writePacket(p.buf(), p.size());
+        }
+
+        private void sendColumnDefinition(String name) throws IOException {
+            Packet p = new Packet();
+            p.lenencString("def");
+            p.lenencString("");
+            p.lenencString("");
+            p.lenencString("");
+            p.lenencString(name);
+            p.lenencString(name);
+            p.int1(0x0c);
+            p.int2(UTF8MB4_GENERAL_CI);
+            p.int4(1024);
+            p.int1(MYSQL_TYPE_VAR_STRING);
+            p.int2(0);
+            p.int1(0);
+            p.int2(0);
+            writePacket(p.buf(), p.size());
+        }
+
+        /**
+         * Sends a result set with string columns and one row of the given values, or no rows if
+         * values are null.
+         */
+        private void sendResultSet(List<String> names, List<String> values, int status)
+                throws IOException {
+            Packet count = new Packet();
+            count.lenenc(names.size());
+            writePacket(count.buf(), count.size());
+
+            for (String name : names) {
+                sendColumnDefinition(name);
+            }
+            sendEof(status);
+
+            if (values != null) {
+                Packet row = new Packet();
+                for (String value : values) {
+                    row.lenencString(value);
+                }
+                writePacket(row.buf(), row.size());
+            }
+            sendEof(status);
+        }
+    }
+
+    /**
+     * Builder of packet payloads with little-endian integers.
+     */
+    private static class Packet extends ByteArrayOutputStream {
+        void int1(int v) {
+            write(v & 0xff);
+        }
+
+        void int2(int v) {
+            int1(v);
+            int1(v >> 8);
+        }
+
+        void int4(int v) {
+            int2(v);
+            int2(v >> 16);
+        }
+
+        void lenenc(long v) {
+            if (v < 251) {
+                int1((int) v);
+            } else if (v < 0x10000) {
+                int1(0xfc);
+                int2((int) v);
+            } else if (v < 0x1000000) {
+                int1(0xfd);
+                int2((int) v);
+                int1((int) (v >> 16));
+            } else {
+                int1(0xfe);
+                int4((int) v);
+                int4((int) (v >> 32));
+            }
+        }
+
+        void bytes(byte[] b) {
+            write(b, 0, b.length);
+        }
+
+        void bytes(byte[] b, int off, int len) {
+            write(b, off, len);
+        }
+
+        void lenencString(String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            lenenc(b.length);
+            bytes(b);
+        }
+
+        void nullTerminated(String s) {
+            bytes(s.getBytes(StandardCharsets.UTF_8));
+            int1(0);
+        }
+
+        byte[] buf() {
+            return buf;
+        }
+    }
+}
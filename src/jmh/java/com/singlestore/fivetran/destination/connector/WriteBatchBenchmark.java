@@ -0,0 +1,189 @@
+package com.singlestore.fivetran.destination.connector;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import fivetran_sdk.v2.Compression;
+import fivetran_sdk.v2.Encryption;
+import fivetran_sdk.v2.FileParams;
+import fivetran_sdk.v2.Table;
+import fivetran_sdk.v2.WriteBatchRequest;
+import fivetran_sdk.v2.WriteBatchResponse;
+import io.grpc.stub.StreamObserver;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link SingleStoreDestinationConnectorServiceImpl#writeBatch} end to end against a
+ * {@link StandInServer}, so the score is the throughput of decoding, parsing, transcoding and
+ * sending data by the connector alone. Besides batches per second, the benchmark reports rows
+ * and bytes received by the server per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WriteBatchBenchmark {
+    @State(Scope.Benchmark)
+    public static class Batch {
+        @Param({"replace", "update", "delete"})
+        public String operation;
+
+        @Param({"100000"})
+        public int rowCount;
+
+        @Param({"8"})
+        public int columnCount;
+
+        @Param({"16", "256"})
+        public int valueWidth;
+
+        @Param({"0.0", "0.05"})
+        public double escapeDensity;
+
+        @Param({"OFF", "ZSTD"})
+        public String compression;
+
+        StandInServer server;
+        File dir;
+        WriteBatchRequest request;
+        SingleStoreDestinationConnectorServiceImpl service;
+
+        @Setup
+        public void setup() throws IOException {
+            server = new StandInServer();
+            service = new SingleStoreDestinationConnectorServiceImpl();
+            dir = Files.createTempDirectory("write-batch-benchmark").toFile();
+
+            List<List<String>> rows = BenchmarkData.rows(rowCount, columnCount, valueWidth,
+                    escapeDensity, 42);
+            File file = new File(dir, "batch.csv");
+            try (OutputStream out = compress(new FileOutputStream(file))) {
+                out.write(BenchmarkData.csv(BenchmarkData.header(columnCount), rows));
+            }
+
+            Map<String, String> configuration = new HashMap<>();
+            configuration.put("host", "127.0.0.1");
+            configuration.put("port", String.valueOf(server.getPort()));
+            configuration.put("user", "root");
+            configuration.put("password", "password");
+            configuration.put("database", "benchmark");
+
+            WriteBatchRequest.Builder builder = WriteBatchRequest.newBuilder()
+                    .putAllConfiguration(configuration)
+                    .setSchemaName("benchmark")
+                    .setTable(Table.newBuilder().setName("t")
+                            .addAllColumns(BenchmarkData.columns(columnCount)))
+                    .setFileParams(FileParams.newBuilder()
+                            .setCompression(Compression.valueOf(compression))
+                            .setEncryption(Encryption.NONE)
+                            .setNullString(BenchmarkData.NULL_STRING)
+                            .setUnmodifiedString("unm"));
+            switch (operation) {
+                case "replace":
+                    builder.addReplaceFiles(file.getAbsolutePath());
+                    break;
+                case "update":
+                    builder.addUpdateFiles(file.getAbsolutePath());
+                    break;
+                case "delete":
+                    builder.addDeleteFiles(file.getAbsolutePath());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown operation " + operation);
+            }
+            request = builder.build();
+        }
+
+        private OutputStream compress(OutputStream out) throws IOException {
+            if (compression.equals("ZSTD")) {
+                return new ZstdOutputStream(out);
+            }
+            return out;
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            ConnectionPool.getInstance().clear();
+            server.close();
+            for (File file : dir.listFiles()) {
+                Files.delete(file.toPath());
+            }
+            Files.delete(dir.toPath());
+        }
+    }
+
+    /**
+     * Data received by the server, reported per second.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Received {
+        public long rows;
+        public long bytes;
+        public long statements;
+
+        @Setup(Level.Iteration)
+        public void reset(Batch batch) {
+            batch.server.resetCounters();
+            rows = 0;
+            bytes = 0;
+            statements = 0;
+        }
+
+        void update(StandInServer server) {
+            rows = server.affectedRows();
+            bytes = server.loadDataBytes() + server.queryBytes();
+            statements = server.statements();
+        }
+    }
+
+    @Benchmark
+    public WriteBatchResponse writeBatch(Batch batch, Received received) {
+        WriteBatchResponse[] response = new WriteBatchResponse[1];
+        batch.service.writeBatch(batch.request, new StreamObserver<WriteBatchResponse>() {
+            @Override
+            public void onNext(WriteBatchResponse value) {
+                response[0] = value;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                throw new RuntimeException(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+        if (!response[0].getSuccess()) {
+            throw new IllegalStateException(
+                    "WriteBatch failed: " + response[0].getTask().getMessage());
+        }
+
+        received.update(batch.server);
+        return response[0];
+    }
+}
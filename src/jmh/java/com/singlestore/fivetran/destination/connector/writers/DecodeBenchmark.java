@@ -0,0 +1,151 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import com.google.protobuf.ByteString;
+import com.singlestore.fivetran.destination.connector.BenchmarkData;
+import fivetran_sdk.v2.Compression;
+import fivetran_sdk.v2.Encryption;
+import fivetran_sdk.v2.FileParams;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading of batch files by {@link Writer#write(String, InputStream)}: decryption,
+ * decompression and CSV parsing. The file is kept in memory, so disk reads are not measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DecodeBenchmark {
+    private static final String FILE = "batch.csv";
+    private static final int ROWS = 10000;
+
+    @Param({"OFF", "GZIP", "ZSTD"})
+    public String compression;
+
+    @Param({"NONE", "AES"})
+    public String encryption;
+
+    @Param({"4", "32"})
+    public int columnCount;
+
+    @Param({"16", "256"})
+    public int valueWidth;
+
+    @Param({"0.0", "0.05"})
+    public double escapeDensity;
+
+    private byte[] file;
+    private CountingWriter writer;
+
+    /**
+     * Writer which only counts values, so the benchmark measures reading of the file.
+     */
+    static class CountingWriter extends Writer {
+        long values = 0;
+
+        CountingWriter(FileParams params, ByteString key) {
+            super(null, "db", "t", BenchmarkData.columns(0), params,
+                    Collections.singletonMap(FILE, key), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public void setHeader(List<String> header) {
+        }
+
+        @Override
+        public void writeRow(List<String> row) {
+            values += row.size();
+        }
+
+        @Override
+        public void commit() {
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        byte[] csv = BenchmarkData.csv(BenchmarkData.header(columnCount),
+                BenchmarkData.rows(ROWS, columnCount, valueWidth, escapeDensity, 42));
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        OutputStream out = compressed;
+        if (compression.equals("GZIP")) {
+            out = new GZIPOutputStream(compressed);
+        } else if (compression.equals("ZSTD")) {
+            out = new ZstdOutputStream(compressed);
+        }
+        out.write(csv);
+        out.close();
+        file = compressed.toByteArray();
+
+        byte[] key = new byte[32];
+        new Random(42).nextBytes(key);
+        if (encryption.equals("AES")) {
+            byte[] iv = new byte[16];
+            new Random(43).nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"),
+                    new IvParameterSpec(iv));
+
+            ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+            encrypted.write(iv);
+            encrypted.write(cipher.doFinal(file));
+            file = encrypted.toByteArray();
+        }
+
+        FileParams params = FileParams.newBuilder()
+                .setCompression(Compression.valueOf(compression))
+                .setEncryption(Encryption.valueOf(encryption))
+                .setNullString(BenchmarkData.NULL_STRING)
+                .setUnmodifiedString("unm")
+                .build();
+        writer = new CountingWriter(params, ByteString.copyFrom(key));
+    }
+
+    @Benchmark
+    public long decode() throws Exception {
+        long bytes = 0;
+        byte[] buf = new byte[65536];
+        try (InputStream is = writer.decode(FILE, new ByteArrayInputStream(file))) {
+            int n;
+            while ((n = is.read(buf)) != -1) {
+                bytes += n;
+            }
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public long write() throws Exception {
+        writer.values = 0;
+        writer.write(FILE, new ByteArrayInputStream(file));
+        return writer.values;
+    }
+}
@@ -0,0 +1,62 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import com.singlestore.fivetran.destination.connector.BenchmarkData;
+import fivetran_sdk.v2.FileParams;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building and binding of the inline delete queries of {@link DeleteWriter} for batch
+ * sizes around the thresholds of its strategies. The statements are executed by a connection
+ * which does nothing. Batches of {@link DeleteWriter#STAGING_MIN_ROWS} rows or more are loaded
+ * into a key table and need a database, so they are not measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeleteWriterBenchmark {
+    @Param({"1", "8", "31", "32", "256", "1999"})
+    public int batchSize;
+
+    @Param({"1", "3"})
+    public int keyColumnCount;
+
+    private List<List<String>> rows;
+    private DeleteWriter writer;
+
+    @Setup
+    public void setup() throws Exception {
+        rows = BenchmarkData.rows(batchSize, keyColumnCount, 16, 0, 42);
+
+        FileParams params = FileParams.newBuilder().setNullString(BenchmarkData.NULL_STRING)
+                .setUnmodifiedString("unm").build();
+        writer = new DeleteWriter(BenchmarkData.connection(), "db", "t",
+                BenchmarkData.primaryKeyColumns(keyColumnCount), params, null, batchSize);
+        writer.setHeader(BenchmarkData.header(keyColumnCount));
+    }
+
+    @Benchmark
+    public int commit() throws Exception {
+        for (List<String> row : rows) {
+            writer.writeRow(row);
+        }
+        writer.commit();
+        return rows.size();
+    }
+}
@@ -0,0 +1,93 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import com.singlestore.fivetran.destination.connector.BenchmarkData;
+import com.singlestore.fivetran.destination.connector.warning_util.WarningHandler;
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.DataType;
+import fivetran_sdk.v2.FileParams;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures encoding of rows to the TSV stream of LOAD DATA. {@link LoadDataWriter#writeRow} is
+ * compared with the {@link CsvToTsvTranscoder} used when whole files are streamed. The stream is
+ * discarded, so no query is executed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LoadDataWriterBenchmark {
+    private static final int ROWS = 10000;
+
+    @Param({"4", "32"})
+    public int columnCount;
+
+    @Param({"16", "256"})
+    public int valueWidth;
+
+    @Param({"0.0", "0.05"})
+    public double escapeDensity;
+
+    private List<List<String>> rows;
+    private byte[] csv;
+    private LoadDataWriter<?> writer;
+    private List<DataType> types;
+
+    @Setup
+    public void setup() throws Exception {
+        List<String> header = BenchmarkData.header(columnCount);
+        List<Column> columns = BenchmarkData.columns(columnCount);
+        rows = BenchmarkData.rows(ROWS, columnCount, valueWidth, escapeDensity, 42);
+        csv = BenchmarkData.csv(header, rows);
+        types = columns.stream().map(Column::getType).collect(Collectors.toList());
+
+        FileParams params = FileParams.newBuilder().setNullString(BenchmarkData.NULL_STRING)
+                .setUnmodifiedString("unm").build();
+        writer = new LoadDataWriter<>(null, "db", "t", columns, params, null, ROWS,
+                new WarningHandler());
+        // Sets up the writer as setHeader does, without starting the query
+        writer.headerColumns = columns;
+        writer.outputStream = BenchmarkData.nullOutputStream();
+    }
+
+    @Benchmark
+    public int writeRow() throws Exception {
+        for (List<String> row : rows) {
+            writer.writeRow(row);
+        }
+        return rows.size();
+    }
+
+    @Benchmark
+    public int transcode() throws Exception {
+        CsvRecordReader reader = new CsvRecordReader(new ByteArrayInputStream(csv));
+        CsvToTsvTranscoder transcoder = new CsvToTsvTranscoder(types, BenchmarkData.NULL_STRING);
+        int count = 0;
+        // Skips the header
+        reader.next();
+        while (reader.next()) {
+            transcoder.append(reader, writer.outputStream);
+            count++;
+        }
+        transcoder.flush(writer.outputStream);
+        return count;
+    }
+}
@@ -0,0 +1,157 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import com.singlestore.fivetran.destination.connector.BenchmarkData;
+import com.singlestore.fivetran.destination.connector.RecordingJdbc;
+import com.singlestore.fivetran.destination.connector.warning_util.WarningHandler;
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.DataType;
+import fivetran_sdk.v2.FileParams;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares row-by-row, batched and staged strategies of writers using {@link RecordingJdbc}, so
+ * the number of round trips and bytes sent per row don't depend on a database. Row-by-row
+ * execution is measured with a batch size of 1. The time of an operation includes the simulated
+ * latency of round trips.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WriterStrategyBenchmark {
+    private static final int ROWS = 10000;
+
+    @Param({"update", "stagingUpdate", "delete", "historyUpdate", "stagingHistoryUpdate",
+            "historyEarliestStart", "stagingHistoryEarliestStart", "historyDelete",
+            "stagingHistoryDelete"})
+    public String writer;
+
+    @Param({"1", "100", "10000"})
+    public int batchSize;
+
+    @Param({"0", "100"})
+    public long latencyMicros;
+
+    @Param({"8"})
+    public int columnCount;
+
+    private RecordingJdbc jdbc;
+    private List<Column> columns;
+    private FileParams params;
+    private File file;
+
+    /**
+     * Statements sent by one write of the file.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Statements {
+        public double roundTripsPer10kRows;
+        public double sqlBytesPerRow;
+        public double loadDataBytesPerRow;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        jdbc = new RecordingJdbc(TimeUnit.MICROSECONDS.toNanos(latencyMicros));
+        params = FileParams.newBuilder().setNullString(BenchmarkData.NULL_STRING)
+                .setUnmodifiedString("unm").build();
+
+        List<String> header = BenchmarkData.header(columnCount);
+        List<List<String>> rows = BenchmarkData.rows(ROWS, columnCount, 16, 0.01, 42);
+        columns = new ArrayList<>(BenchmarkData.columns(columnCount));
+        if (writer.startsWith("history") || writer.startsWith("stagingHistory")) {
+            // History mode files have the version columns
+            columns.add(Column.newBuilder().setName("_fivetran_start")
+                    .setType(DataType.UTC_DATETIME).setPrimaryKey(true).build());
+            columns.add(Column.newBuilder().setName("_fivetran_end")
+                    .setType(DataType.UTC_DATETIME).build());
+            columns.add(Column.newBuilder().setName("_fivetran_active")
+                    .setType(DataType.BOOLEAN).build());
+            header.add("_fivetran_start");
+            header.add("_fivetran_end");
+            header.add("_fivetran_active");
+
+            Instant start = Instant.parse("2024-01-01T00:00:00Z");
+            for (int i = 0; i < rows.size(); i++) {
+                List<String> row = rows.get(i);
+                row.add(start.plusMillis(i).toString());
+                row.add("9999-12-31T23:59:59.999999Z");
+                row.add("true");
+            }
+        }
+
+        file = Files.createTempFile("writer-strategy-benchmark", ".csv").toFile();
+        Files.write(file.toPath(), BenchmarkData.csv(header, rows));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(file.toPath());
+    }
+
+    private Writer createWriter(Connection conn) {
+        switch (writer) {
+            case "update":
+                return new UpdateWriter(conn, "db", "t", columns, params, null, batchSize);
+            case "stagingUpdate":
+                return new StagingUpdateWriter(conn, "db", "t", columns, params, null, batchSize,
+                        new WarningHandler());
+            case "delete":
+                return new DeleteWriter(conn, "db", "t", columns, params, null, batchSize);
+            case "historyUpdate":
+                return new UpdateHistoryWriter(conn, "db", "t", columns, params, null, batchSize);
+            case "stagingHistoryUpdate":
+                return new StagingUpdateHistoryWriter(conn, "db", "t", columns, params, null,
+                        batchSize, new WarningHandler());
+            case "historyEarliestStart":
+                return new EarliestStartHistoryWriter(conn, "db", "t", columns, params, null,
+                        batchSize);
+            case "stagingHistoryEarliestStart":
+                return new StagingEarliestStartHistoryWriter(conn, "db", "t", columns, params,
+                        null, batchSize, new WarningHandler());
+            case "historyDelete":
+                return new DeleteHistoryWriter(conn, "db", "t", columns, params, null, batchSize);
+            case "stagingHistoryDelete":
+                return new StagingDeleteHistoryWriter(conn, "db", "t", columns, params, null,
+                        batchSize, new WarningHandler());
+            default:
+                throw new IllegalArgumentException("Unknown writer " + writer);
+        }
+    }
+
+    @Benchmark
+    public long write(Statements statements) throws Exception {
+        jdbc.reset();
+        createWriter(jdbc.connection()).write(file.getAbsolutePath());
+
+        statements.roundTripsPer10kRows = jdbc.roundTrips() * 10000.0 / ROWS;
+        statements.sqlBytesPerRow = (double) jdbc.sqlBytes() / ROWS;
+        statements.loadDataBytesPerRow = (double) jdbc.loadDataBytes() / ROWS;
+        return jdbc.roundTrips();
+    }
+}
@@ -0,0 +1,605 @@
+package com.singlestore.fivetran.destination.connector;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.Compression;
+import fivetran_sdk.v2.DataType;
+import fivetran_sdk.v2.DataTypeParams;
+import fivetran_sdk.v2.DecimalParams;
+import fivetran_sdk.v2.Encryption;
+import fivetran_sdk.v2.FileParams;
+import fivetran_sdk.v2.Table;
+import fivetran_sdk.v2.WriteBatchRequest;
+import fivetran_sdk.v2.WriteHistoryBatchRequest;
+import org.apache.commons.cli.*;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates Fivetran batch files and the WriteBatch or WriteHistoryBatch request which refers to
+ * them, for load testing of the connector. Files are streamed to disk, so they may be larger than
+ * the memory. The same options and seed always produce the same files.
+ * <p>
+ * Column types are given as a comma separated list of {@link DataType} names, optionally followed
+ * by the width of generated values, e.g. {@code LONG,STRING:256,JSON:1024,BINARY:4096}. The first
+ * {@code --key-columns} columns form the primary key and must have integer or string types. Run
+ * with {@code --help} to list all options.
+ */
+public class BatchFileGenerator {
+    private static final String[] LIVE_OPERATIONS = {"replace", "update", "delete"};
+    private static final String[] HISTORY_OPERATIONS =
+            {"earliest_start", "replace", "update", "delete"};
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+    private static final DateTimeFormatter NAIVE_DATETIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS");
+    // Characters which must be escaped in CSV or TSV
+    private static final char[] SPECIAL_CHARACTERS = {'\\', '\n', '\t', '"', ','};
+    private static final String ALPHABET =
+            "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ";
+
+    private final File outputDir;
+    private final boolean history;
+    private final List<String> operations;
+    private final List<Column> columns;
+    private final List<Integer> widths;
+    private final long rowCount;
+    private final int fileCount;
+    private final double nullRate;
+    private final double unmodifiedRate;
+    private final double escapeDensity;
+    private final FileParams params;
+    private final long seed;
+
+    BatchFileGenerator(File outputDir, boolean history, List<String> operations,
+                       List<Column> columns, List<Integer> widths, long rowCount,
+                       int fileCount, double nullRate, double unmodifiedRate,
+                       double escapeDensity, FileParams params, long seed) {
+        this.outputDir = outputDir;
+        this.history = history;
+        this.operations = operations;
+        this.columns = columns;
+        this.widths = widths;
+        this.rowCount = rowCount;
+        this.fileCount = fileCount;
+        this.nullRate = nullRate;
+        this.unmodifiedRate = unmodifiedRate;
+        this.escapeDensity = escapeDensity;
+        this.params = params;
+        this.seed = seed;
+    }
+
+    /**
+     * Parses a comma separated list of column types with optional widths. The first
+     * {@code keyColumnCount} columns form the primary key. DECIMAL columns get precision 18 and
+     * scale 6.
+     */
+    static List<Column> parseColumns(String spec, int keyColumnCount, List<Integer> widths,
+                                     int defaultWidth) {
+        List<Column> columns = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] typeAndWidth = part.trim().split(":");
+            DataType type = DataType.valueOf(typeAndWidth[0].trim().toUpperCase(Locale.ROOT));
+            if (type == DataType.UNRECOGNIZED || type == DataType.UNSPECIFIED) {
+                throw new IllegalArgumentException("Unsupported column type " + typeAndWidth[0]);
+            }
+            widths.add(typeAndWidth.length > 1 ? Integer.parseInt(typeAndWidth[1].trim())
+                    : defaultWidth);
+
+            boolean primaryKey = columns.size() < keyColumnCount;
+            if (primaryKey && !isKeyType(type)) {
+                throw new IllegalArgumentException(String.format(
+                        "Key column c%d has type %s, key columns must have integer or string types",
+                        columns.size(), type));
+            }
+            Column.Builder column = Column.newBuilder().setName("c" + columns.size())
+                    .setType(type).setPrimaryKey(primaryKey);
+            if (type == DataType.DECIMAL) {
+                column.setParams(DataTypeParams.newBuilder().setDecimal(
+                        DecimalParams.newBuilder().setPrecision(18).setScale(6)));
+            }
+            columns.add(column.build());
+        }
+        if (columns.size() < keyColumnCount) {
+            throw new IllegalArgumentException(String.format(
+                    "Only %d columns are given for %d key columns", columns.size(),
+                    keyColumnCount));
+        }
+        return columns;
+    }
+
+    private static boolean isKeyType(DataType type) {
+        return type == DataType.SHORT || type == DataType.INT || type == DataType.LONG
+                || type == DataType.STRING;
+    }
+
+    /**
+     * Columns of the table, including the system columns of history mode.
+     */
+    List<Column> tableColumns() {
+        List<Column> tableColumns = new ArrayList<>(columns);
+        if (history) {
+            tableColumns.add(Column.newBuilder().setName("_fivetran_start")
+                    .setType(DataType.UTC_DATETIME).setPrimaryKey(true).build());
+            tableColumns.add(Column.newBuilder().setName("_fivetran_end")
+                    .setType(DataType.UTC_DATETIME).build());
+            tableColumns.add(Column.newBuilder().setName("_fivetran_active")
+                    .setType(DataType.BOOLEAN).build());
+        }
+        return tableColumns;
+    }
+
+    /**
+     * Writes the files of all operations. Returns the files of every operation with their
+     * encryption keys, which are empty if files are not encrypted.
+     */
+    Map<String, Map<String, ByteString>> generate() throws IOException, GeneralSecurityException {
+        Map<String, Map<String, ByteString>> files = new LinkedHashMap<>();
+        for (int operationId = 0; operationId < operations.size(); operationId++) {
+            String operation = operations.get(operationId);
+            Map<String, ByteString> operationFiles = new LinkedHashMap<>();
+            for (int fileId = 0; fileId < fileCount; fileId++) {
+                Random random = new Random(seed * 1_000_003 + operationId * 1009L + fileId);
+                File file = new File(outputDir, fileName(operation, fileId));
+
+                ByteString[] key = {ByteString.EMPTY};
+                try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                        encode(new FileOutputStream(file), random,
+                                k -> key[0] = ByteString.copyFrom(k)),
+                        StandardCharsets.UTF_8), 1 << 16)) {
+                    writeFile(out, operation, fileId, random);
+                }
+                operationFiles.put(file.getAbsolutePath(), key[0]);
+            }
+            files.put(operation, operationFiles);
+        }
+        return files;
+    }
+
+    private String fileName(String operation, int fileId) {
+        StringBuilder name = new StringBuilder(
+                String.format("%s_%s_%d.csv", history ? "history" : "live", operation, fileId));
+        if (params.getCompression() == Compression.GZIP) {
+            name.append(".gz");
+        } else if (params.getCompression() == Compression.ZSTD) {
+            name.append(".zst");
+        }
+        if (params.getEncryption() == Encryption.AES) {
+            name.append(".aes");
+        }
+        return name.toString();
+    }
+
+    interface KeyConsumer {
+        void accept(byte[] key);
+    }
+
+    /**
+     * Wraps the file stream to compress and then encrypt the written CSV, in the reverse order of
+     * {@code Writer.decode}. An encrypted file starts with the 16-byte IV of AES-CBC.
+     */
+    OutputStream encode(OutputStream file, Random random, KeyConsumer keyConsumer)
+            throws IOException, GeneralSecurityException {
+        OutputStream out = new BufferedOutputStream(file, 1 << 16);
+        if (params.getEncryption() == Encryption.AES) {
+            byte[] key = new byte[32];
+            byte[] iv = new byte[16];
+            random.nextBytes(key);
+            random.nextBytes(iv);
+            keyConsumer.accept(key);
+
+            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"),
+                    new IvParameterSpec(iv));
+            out.write(iv);
+            out = new CipherOutputStream(out, cipher);
+        }
+
+        if (params.getCompression() == Compression.GZIP) {
+            out = new GZIPOutputStream(out, 1 << 16);
+        } else if (params.getCompression() == Compression.ZSTD) {
+            out = new ZstdOutputStream(out);
+        }
+        return out;
+    }
+
+    private void writeFile(Writer out, String operation, int fileId, Random random)
+            throws IOException {
+        List<Column> tableColumns = tableColumns();
+        List<String> header = new ArrayList<>();
+        for (Column column : tableColumns) {
+            header.add(column.getName());
+        }
+        writeRow(out, header);
+
+        List<String> row = new ArrayList<>(tableColumns.size());
+        for (long i = 0; i < rowCount; i++) {
+            row.clear();
+            // Every file of an operation touches the same keys, so updates and deletes hit rows
+            // written by replace files
+            long key = i;
+            for (int j = 0; j < columns.size(); j++) {
+                Column column = columns.get(j);
+                if (column.getPrimaryKey()) {
+                    row.add(keyValue(column.getType(), key));
+                } else if (operation.equals("delete") || operation.equals("earliest_start")) {
+                    row.add(params.getNullString());
+                } else if (random.nextDouble() < nullRate) {
+                    row.add(params.getNullString());
+                } else if (operation.equals("update") && random.nextDouble() < unmodifiedRate) {
+                    row.add(params.getUnmodifiedString());
+                } else {
+                    row.add(value(column.getType(), widths.get(j), random));
+                }
+            }
+
+            if (history) {
+                // Later files of an operation and later operations start later versions
+                Instant start = START.plusSeconds(
+                        (operations.indexOf(operation) * (long) fileCount + fileId) * 86400L)
+                        .plusMillis(i % 86_400_000L);
+                boolean delete = operation.equals("delete");
+                row.add(delete ? params.getNullString() : start.toString());
+                row.add(delete ? start.toString() : "9999-12-31T23:59:59.999Z");
+                row.add(delete ? "false" : "true");
+            }
+            writeRow(out, row);
+        }
+    }
+
+    private static String keyValue(DataType type, long key) {
+        switch (type) {
+            case SHORT:
+                return String.valueOf((short) key);
+            case INT:
+                return String.valueOf((int) key);
+            case LONG:
+                return String.valueOf(key);
+            default:
+                return "key-" + key;
+        }
+    }
+
+    /**
+     * Generates a random value of the type in the format of Fivetran batch files. Strings, XML and
+     * JSON have about {@code width} characters, binary values have {@code width} bytes before
+     * base64 encoding.
+     */
+    String value(DataType type, int width, Random random) {
+        switch (type) {
+            case BOOLEAN:
+                return random.nextBoolean() ? "true" : "false";
+            case SHORT:
+                return String.valueOf((short) random.nextInt());
+            case INT:
+                return String.valueOf(random.nextInt());
+            case LONG:
+                return String.valueOf(random.nextLong());
+            case DECIMAL:
+                return String.format(Locale.ROOT, "%d.%06d", random.nextInt(1_000_000_000)
+                        - 500_000_000, random.nextInt(1_000_000));
+            case FLOAT:
+                return String.valueOf((random.nextFloat() - 0.5f) * 1e6f);
+            case DOUBLE:
+                return String.valueOf((random.nextDouble() - 0.5) * 1e12);
+            case NAIVE_DATE:
+                return LocalDate.ofEpochDay(19000 + random.nextInt(3650)).toString();
+            case NAIVE_TIME:
+                return LocalTime.ofNanoOfDay(
+                        (long) random.nextInt(86_400_000) * 1_000_000).toString();
+            case NAIVE_DATETIME:
+                return NAIVE_DATETIME_FORMATTER.format(randomDateTime(random));
+            case UTC_DATETIME:
+                return randomDateTime(random).toInstant(ZoneOffset.UTC).toString();
+            case BINARY:
+                byte[] bytes = new byte[width];
+                random.nextBytes(bytes);
+                return Base64.getEncoder().encodeToString(bytes);
+            case JSON:
+                return json(width, random);
+            case XML:
+                return "<value>" + escapeXml(string(width, random)) + "</value>";
+            case STRING:
+            default:
+                return string(width, random);
+        }
+    }
+
+    private static LocalDateTime randomDateTime(Random random) {
+        return LocalDateTime.ofEpochSecond(1_600_000_000L + random.nextInt(300_000_000),
+                random.nextInt(1_000_000) * 1000, ZoneOffset.UTC);
+    }
+
+    private String string(int width, Random random) {
+        StringBuilder sb = new StringBuilder(width);
+        for (int i = 0; i < width; i++) {
+            if (random.nextDouble() < escapeDensity) {
+                sb.append(SPECIAL_CHARACTERS[random.nextInt(SPECIAL_CHARACTERS.length)]);
+            } else {
+                sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Generates a JSON object with nested values. Its string values contain escaped special
+     * characters at the configured density.
+     */
+    private String json(int width, Random random) {
+        StringBuilder sb = new StringBuilder(width + 64);
+        sb.append("{\"id\":").append(random.nextInt(1_000_000))
+                .append(",\"active\":").append(random.nextBoolean())
+                .append(",\"score\":").append(random.nextDouble())
+                .append(",\"tags\":[");
+        int tagCount = 1 + random.nextInt(4);
+        for (int i = 0; i < tagCount; i++) {
+            if (i != 0) {
+                sb.append(',');
+            }
+            sb.append('"');
+            for (int j = 0; j < 8; j++) {
+                sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length() - 1)));
+            }
+            sb.append('"');
+        }
+        sb.append("],\"nested\":{\"text\":\"");
+        appendJsonString(sb, string(Math.max(0, width - sb.length() - 4), random));
+        sb.append("\"}}");
+        return sb.toString();
+    }
+
+    private static void appendJsonString(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+
+    private static String escapeXml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static void writeRow(Writer out, List<String> row) throws IOException {
+        for (int i = 0; i < row.size(); i++) {
+            if (i != 0) {
+                out.write(',');
+            }
+            String value = row.get(i);
+            out.write('"');
+            if (value.indexOf('"') == -1) {
+                out.write(value);
+            } else {
+                out.write(value.replace("\"", "\"\""));
+            }
+            out.write('"');
+        }
+        out.write('\n');
+    }
+
+    /**
+     * Builds the request which refers to the generated files.
+     */
+    Message request(Map<String, String> configuration, String schema, String tableName,
+                    Map<String, Map<String, ByteString>> files) {
+        Table table = Table.newBuilder().setName(tableName).addAllColumns(tableColumns()).build();
+        Map<String, ByteString> keys = new LinkedHashMap<>();
+        if (params.getEncryption() == Encryption.AES) {
+            for (Map<String, ByteString> operationFiles : files.values()) {
+                keys.putAll(operationFiles);
+            }
+        }
+
+        if (history) {
+            WriteHistoryBatchRequest.Builder builder = WriteHistoryBatchRequest.newBuilder()
+                    .putAllConfiguration(configuration).setSchemaName(schema).setTable(table)
+                    .putAllKeys(keys).setFileParams(params);
+            for (Map.Entry<String, Map<String, ByteString>> entry : files.entrySet()) {
+                Iterable<String> paths = entry.getValue().keySet();
+                switch (entry.getKey()) {
+                    case "earliest_start":
+                        builder.addAllEarliestStartFiles(paths);
+                        break;
+                    case "replace":
+                        builder.addAllReplaceFiles(paths);
+                        break;
+                    case "update":
+                        builder.addAllUpdateFiles(paths);
+                        break;
+                    default:
+                        builder.addAllDeleteFiles(paths);
+                        break;
+                }
+            }
+            return builder.build();
+        }
+
+        WriteBatchRequest.Builder builder = WriteBatchRequest.newBuilder()
+                .putAllConfiguration(configuration).setSchemaName(schema).setTable(table)
+                .putAllKeys(keys).setFileParams(params);
+        for (Map.Entry<String, Map<String, ByteString>> entry : files.entrySet()) {
+            Iterable<String> paths = entry.getValue().keySet();
+            switch (entry.getKey()) {
+                case "replace":
+                    builder.addAllReplaceFiles(paths);
+                    break;
+                case "update":
+                    builder.addAllUpdateFiles(paths);
+                    break;
+                default:
+                    builder.addAllDeleteFiles(paths);
+                    break;
+            }
+        }
+        return builder.build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        options.addOption(new Option("o", "output-dir", true,
+                "directory where files and the request are written"));
+        options.addOption(new Option(null, "history", false,
+                "generate files of a history mode table and a WriteHistoryBatch request"));
+        options.addOption(new Option(null, "operations", true,
+                "comma separated operations to generate files for: earliest_start (history mode only), replace, update, delete; all by default"));
+        options.addOption(new Option(null, "columns", true,
+                "comma separated column types with optional value widths, e.g. LONG,STRING:256,JSON:1024,BINARY:4096"));
+        options.addOption(new Option(null, "key-columns", true,
+                "number of leading columns which form the primary key"));
+        options.addOption(new Option(null, "value-width", true,
+                "width of generated values of columns without explicit width"));
+        options.addOption(new Option(null, "rows", true, "number of rows in every file"));
+        options.addOption(new Option(null, "files", true, "number of files of every operation"));
+        options.addOption(new Option(null, "null-rate", true,
+                "fraction of non-key values which are null"));
+        options.addOption(new Option(null, "unmodified-rate", true,
+                "fraction of non-key values of update files which are unmodified"));
+        options.addOption(new Option(null, "escape-density", true,
+                "fraction of characters of strings which need escaping"));
+        options.addOption(new Option(null, "compression", true, "OFF, GZIP or ZSTD"));
+        options.addOption(new Option(null, "encryption", true, "NONE or AES"));
+        options.addOption(new Option(null, "null-string", true, "string which represents null"));
+        options.addOption(new Option(null, "unmodified-string", true,
+                "string which represents an unmodified value"));
+        options.addOption(new Option(null, "seed", true, "seed of generated values"));
+        options.addOption(new Option(null, "schema", true, "schema name of the request"));
+        options.addOption(new Option(null, "table", true, "table name of the request"));
+        options.addOption(Option.builder("C").longOpt("configuration").hasArgs()
+                .valueSeparator(',').desc("connector configuration of the request as key=value pairs")
+                .build());
+        options.addOption(new Option("h", "help", false, "print this message"));
+
+        HelpFormatter formatter = new HelpFormatter();
+        CommandLine cmd;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            System.err.println(e.getMessage());
+            formatter.printHelp("generate-batch", options);
+            throw e;
+        }
+        if (cmd.hasOption("help") || !cmd.hasOption("output-dir")) {
+            formatter.printHelp("generate-batch", options);
+            return;
+        }
+
+        boolean history = cmd.hasOption("history");
+        List<String> operations = new ArrayList<>();
+        for (String operation : cmd.getOptionValue("operations",
+                String.join(",", history ? HISTORY_OPERATIONS : LIVE_OPERATIONS)).split(",")) {
+            operation = operation.trim().toLowerCase(Locale.ROOT);
+            if (!Arrays.asList(history ? HISTORY_OPERATIONS : LIVE_OPERATIONS)
+                    .contains(operation)) {
+                throw new IllegalArgumentException("Unsupported operation " + operation);
+            }
+            operations.add(operation);
+        }
+
+        int keyColumnCount = Integer.parseInt(cmd.getOptionValue("key-columns", "1"));
+        int valueWidth = Integer.parseInt(cmd.getOptionValue("value-width", "32"));
+        List<Integer> widths = new ArrayList<>();
+        List<Column> columns = parseColumns(cmd.getOptionValue("columns",
+                        "LONG,STRING,STRING:256,INT,DOUBLE,DECIMAL,UTC_DATETIME,JSON:512,BINARY:256"),
+                keyColumnCount, widths, valueWidth);
+
+        FileParams params = FileParams.newBuilder()
+                .setCompression(Compression.valueOf(
+                        cmd.getOptionValue("compression", "ZSTD").toUpperCase(Locale.ROOT)))
+                .setEncryption(Encryption.valueOf(
+                        cmd.getOptionValue("encryption", "NONE").toUpperCase(Locale.ROOT)))
+                .setNullString(cmd.getOptionValue("null-string", "null-9f3c2a"))
+                .setUnmodifiedString(cmd.getOptionValue("unmodified-string", "unmodified-9f3c2a"))
+                .build();
+
+        Map<String, String> configuration = new LinkedHashMap<>();
+        if (cmd.hasOption("configuration")) {
+            for (String pair : cmd.getOptionValues("configuration")) {
+                int eq = pair.indexOf('=');
+                if (eq == -1) {
+                    throw new IllegalArgumentException(
+                            "Configuration must be given as key=value, got " + pair);
+                }
+                configuration.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+            }
+        }
+
+        File outputDir = new File(cmd.getOptionValue("output-dir"));
+        Files.createDirectories(outputDir.toPath());
+        BatchFileGenerator generator = new BatchFileGenerator(outputDir, history, operations,
+                columns, widths,
+                Long.parseLong(cmd.getOptionValue("rows", "1000000")),
+                Integer.parseInt(cmd.getOptionValue("files", "1")),
+                Double.parseDouble(cmd.getOptionValue("null-rate", "0.05")),
+                Double.parseDouble(cmd.getOptionValue("unmodified-rate", "0.2")),
+                Double.parseDouble(cmd.getOptionValue("escape-density", "0.01")),
+                params, Long.parseLong(cmd.getOptionValue("seed", "42")));
+
+        long startTime = System.nanoTime();
+        Map<String, Map<String, ByteString>> files = generator.generate();
+        Message request = generator.request(configuration, cmd.getOptionValue("schema", "load_test"),
+                cmd.getOptionValue("table", "t"), files);
+
+        String requestName = history ? "write_history_batch_request" : "write_batch_request";
+        try (OutputStream out = new FileOutputStream(new File(outputDir, requestName + ".pb"))) {
+            request.writeTo(out);
+        }
+        Files.write(new File(outputDir, requestName + ".json").toPath(),
+                JsonFormat.printer().print(request).getBytes(StandardCharsets.UTF_8));
+
+        long bytes = 0;
+        for (Map<String, ByteString> operationFiles : files.values()) {
+            for (String path : operationFiles.keySet()) {
+                bytes += new File(path).length();
+            }
+        }
+        System.out.printf("Generated %d files of %d bytes and %s in %d ms%n",
+                operations.size() * generator.fileCount, bytes, requestName,
+                (System.nanoTime() - startTime) / 1_000_000);
+    }
+}
@@ -0,0 +1,404 @@
+package com.singlestore.fivetran.destination.connector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide pool of JDBC connections shared by all gRPC calls.
+ * <p>
+ * Connections are grouped by {@link SingleStoreConfiguration#fingerprint()}, so calls that use the
+ * same destination configuration reuse warm sessions instead of paying the TCP+TLS+auth handshake
+ * on every request. {@link Connection#close()} on a borrowed connection returns it to the pool.
+ */
+public class ConnectionPool {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private static final ConnectionPool INSTANCE = new ConnectionPool();
+
+    private volatile int maxPerKey = 16;
+    private volatile long idleTimeoutMillis = TimeUnit.MINUTES.toMillis(5);
+    private volatile long validationIntervalMillis = TimeUnit.SECONDS.toMillis(1);
+    private volatile long borrowTimeoutMillis = TimeUnit.MINUTES.toMillis(1);
+
+    private final Map<String, KeyedPool> pools = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor;
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder borrowTimeouts = new LongAdder();
+
+    public static ConnectionPool getInstance() {
+        return INSTANCE;
+    }
+
+    ConnectionPool() {
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, 30, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Changes the pool limits. Limits are applied to connection groups created after this call,
+     * so it is expected to be called on startup.
+     */
+    public void configure(int maxPerKey, long idleTimeoutMillis) {
+        if (maxPerKey <= 0) {
+            throw new IllegalArgumentException("Maximum number of connections per configuration must be positive");
+        }
+        if (idleTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Idle timeout must be positive");
+        }
+
+        this.maxPerKey = maxPerKey;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Maximum number of connections borrowed at the same time for one configuration.
+     */
+    public int maxConnections() {
+        return maxPerKey;
+    }
+
+    public Connection getConnection(SingleStoreConfiguration conf) throws Exception {
+        KeyedPool pool = pools.computeIfAbsent(conf.fingerprint(), k -> new KeyedPool(maxPerKey));
+
+        if (!pool.permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            borrowTimeouts.increment();
+            throw new SQLTransientConnectionException(String.format(
+                    "Timed out after %d ms waiting for a connection to %s:%d. All %d connections are in use",
+                    borrowTimeoutMillis, conf.host(), conf.port(), pool.maxSize));
+        }
+
+        return borrow(pool, conf);
+    }
+
+    /**
+     * Borrows a connection without waiting. Returns null if all connections of the configuration
+     * are in use. It is used for additional connections of parallel work, which can proceed with
+     * fewer connections.
+     */
+    public Connection tryGetConnection(SingleStoreConfiguration conf) throws Exception {
+        KeyedPool pool = pools.computeIfAbsent(conf.fingerprint(), k -> new KeyedPool(maxPerKey));
+        if (!pool.permits.tryAcquire()) {
+            return null;
+        }
+
+        return borrow(pool, conf);
+    }
+
+    private Connection borrow(KeyedPool pool, SingleStoreConfiguration conf) throws Exception {
+        try {
+            PooledConnection pooled;
+            while ((pooled = pool.idle.pollFirst()) != null) {
+                if (validate(pooled)) {
+                    reused.increment();
+                    return pooled.lease(pool);
+                }
+
+                validationFailures.increment();
+                closeQuietly(pooled.conn);
+            }
+
+            Connection conn = JDBCUtil.createConnection(conf);
+            created.increment();
+            return new PooledConnection(conn).lease(pool);
+        } catch (Exception e) {
+            pool.permits.release();
+            throw e;
+        }
+    }
+
+    private boolean validate(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastUsed < validationIntervalMillis) {
+            return true;
+        }
+
+        try {
+            return pooled.conn.isValid(5);
+        } catch (SQLException e) {
+            logger.debug("Pooled connection validation failed", e);
+            return false;
+        }
+    }
+
+    private void release(KeyedPool pool, PooledConnection pooled) {
+        try {
+            if (pooled.conn.isClosed()) {
+                return;
+            }
+
+            if (!pooled.conn.getAutoCommit()) {
+                pooled.conn.rollback();
+                pooled.conn.setAutoCommit(true);
+            }
+
+            pooled.lastUsed = System.currentTimeMillis();
+            pool.idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            logger.warn("Failed to reset pooled connection, closing it", e);
+            closeQuietly(pooled.conn);
+        } finally {
+            pool.permits.release();
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (KeyedPool pool : pools.values()) {
+            Iterator<PooledConnection> it = pool.idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection pooled = it.next();
+                if (now - pooled.lastUsed >= idleTimeoutMillis && pool.idle.removeFirstOccurrence(pooled)) {
+                    evicted.increment();
+                    closeQuietly(pooled.conn);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes all idle connections. Borrowed connections are closed when they are returned.
+     */
+    public void clear() {
+        for (KeyedPool pool : pools.values()) {
+            PooledConnection pooled;
+            while ((pooled = pool.idle.pollFirst()) != null) {
+                closeQuietly(pooled.conn);
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            logger.debug("Failed to close pooled connection", e);
+        }
+    }
+
+    public Stats getStats() {
+        long active = 0;
+        long idle = 0;
+        for (KeyedPool pool : pools.values()) {
+            active += pool.maxSize - pool.permits.availablePermits();
+            idle += pool.idle.size();
+        }
+
+        return new Stats(pools.size(), active, idle, created.sum(), reused.sum(),
+                validationFailures.sum(), evicted.sum(), borrowTimeouts.sum());
+    }
+
+    public static class Stats {
+        private final long keys;
+        private final long active;
+        private final long idle;
+        private final long created;
+        private final long reused;
+        private final long validationFailures;
+        private final long evicted;
+        private final long borrowTimeouts;
+
+        Stats(long keys, long active, long idle, long created, long reused,
+              long validationFailures, long evicted, long borrowTimeouts) {
+            this.keys = keys;
+            this.active = active;
+            this.idle = idle;
+            this.created = created;
+            this.reused = reused;
+            this.validationFailures = validationFailures;
+            this.evicted = evicted;
+            this.borrowTimeouts = borrowTimeouts;
+        }
+
+        public long keys() {
+            return keys;
+        }
+
+        public long active() {
+            return active;
+        }
+
+        public long idle() {
+            return idle;
+        }
+
+        public long created() {
+            return created;
+        }
+
+        public long reused() {
+            return reused;
+        }
+
+        public long validationFailures() {
+            return validationFailures;
+        }
+
+        public long evicted() {
+            return evicted;
+        }
+
+        public long borrowTimeouts() {
+            return borrowTimeouts;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "keys=%d, active=%d, idle=%d, created=%d, reused=%d, validationFailures=%d, evicted=%d, borrowTimeouts=%d",
+                    keys, active, idle, created, reused, validationFailures, evicted, borrowTimeouts);
+        }
+    }
+
+    private static class KeyedPool {
+        final int maxSize;
+        final Semaphore permits;
+        // Most recently used connections are at the head, so the tail holds the eviction candidates
+        final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+
+        KeyedPool(int maxSize) {
+            this.maxSize = maxSize;
+            this.permits = new Semaphore(maxSize, true);
+        }
+    }
+
+    private class PooledConnection {
+        final Connection conn;
+        // Statements stay prepared while the connection is idle in the pool
+        final PreparedStatementCache statementCache;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        PooledConnection(Connection conn) {
+            this.conn = conn;
+            this.statementCache = new PreparedStatementCache(conn);
+        }
+
+        Connection lease(KeyedPool pool) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(pool, this));
+        }
+    }
+
+    private class Lease implements InvocationHandler {
+        private final KeyedPool pool;
+        private final PooledConnection pooled;
+        // Statements opened through the lease, closed when the connection is returned
+        private final List<Statement> statements = new ArrayList<>();
+        private boolean released = false;
+
+        Lease(KeyedPool pool, PooledConnection pooled) {
+            this.pool = pool;
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (released) {
+                            return null;
+                        }
+                        released = true;
+                        closeStatements();
+                    }
+                    release(pool, pooled);
+                    return null;
+                case "isClosed":
+                    synchronized (this) {
+                        return released || pooled.conn.isClosed();
+                    }
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + pooled.conn;
+                case "isWrapperFor":
+                    if (args[0] == PreparedStatementCache.class) {
+                        return true;
+                    }
+                    checkNotReleased();
+                    return invokeOnConnection(method, args);
+                case "unwrap":
+                    checkNotReleased();
+                    if (args[0] == PreparedStatementCache.class) {
+                        return pooled.statementCache;
+                    }
+                    return invokeOnConnection(method, args);
+                case "createStatement":
+                case "prepareStatement":
+                case "prepareCall":
+                    checkNotReleased();
+                    Statement stmt = (Statement) invokeOnConnection(method, args);
+                    track(stmt);
+                    return stmt;
+                default:
+                    checkNotReleased();
+                    return invokeOnConnection(method, args);
+            }
+        }
+
+        private synchronized void checkNotReleased() throws SQLException {
+            if (released) {
+                throw new SQLException("Connection is returned to the pool");
+            }
+        }
+
+        private synchronized void track(Statement stmt) throws SQLException {
+            // Statements which are already closed don't need to be kept until the release
+            Iterator<Statement> it = statements.iterator();
+            while (it.hasNext()) {
+                if (it.next().isClosed()) {
+                    it.remove();
+                }
+            }
+            statements.add(stmt);
+        }
+
+        private void closeStatements() {
+            for (Statement stmt : statements) {
+                try {
+                    stmt.close();
+                } catch (SQLException e) {
+                    logger.debug("Failed to close statement of pooled connection", e);
+                }
+            }
+            statements.clear();
+        }
+
+        private Object invokeOnConnection(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(pooled.conn, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -5,8 +5,10 @@ import fivetran_sdk.v2.*;
 
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -16,6 +18,9 @@ import org.slf4j.LoggerFactory;
 public class JDBCUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(JDBCUtil.class);
+    private static final Map<String, String> serverVersions = new ConcurrentHashMap<>();
+    private static final DateTimeFormatter MICROS_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
 
     static Connection createConnection(SingleStoreConfiguration conf) throws Exception {
         Properties connectionProps = new Properties();
@@ -151,84 +156,70 @@ public class JDBCUtil {
         }
     }
 
-    static boolean checkTableExists(Statement stmt, String database, String table) {
-        try {
-            stmt.executeQuery(
-                    String.format("SELECT * FROM %s WHERE 1=0", escapeTable(database, table)));
-        } catch (Exception ignored) {
-            return false;
-        }
-        return true;
+    static boolean checkTableExists(Statement stmt, String database, String table) throws SQLException {
+        return TableMetadataLoader.tableExists(stmt.getConnection(), database, table);
     }
 
     static boolean checkDatabaseExists(Statement stmt, String database) throws SQLException {
-        try (ResultSet rs = stmt
-                .executeQuery(String.format("SHOW DATABASES LIKE %s", escapeString(database)))) {
-            return rs.next();
+        return TableMetadataLoader.databaseExists(stmt.getConnection(), database);
+    }
+
+    /**
+     * Returns the version of the SingleStore server, or null if it can't be retrieved. The version
+     * is cached per configuration fingerprint.
+     */
+    static String getServerVersion(Connection conn, SingleStoreConfiguration conf) {
+        String fingerprint = conf.fingerprint();
+        String version = serverVersions.get(fingerprint);
+        if (version != null) {
+            return version;
         }
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT @@memsql_version")) {
+            if (rs.next() && rs.getString(1) != null) {
+                version = rs.getString(1);
+                serverVersions.put(fingerprint, version);
+            }
+        } catch (SQLException e) {
+            logger.warn("Failed to retrieve the server version", e);
+        }
+
+        return version;
     }
 
 
     static <T> Table getTable(SingleStoreConfiguration conf, String database, String table,
                               String originalTableName, WarningHandler warningHandler) throws Exception {
-        try (Connection conn = JDBCUtil.createConnection(conf)) {
-            DatabaseMetaData metadata = conn.getMetaData();
-
-            try (ResultSet tables = metadata.getTables(database, null, table, null)) {
-                if (!tables.next()) {
-                    throw new TableNotExistException();
-                }
-                if (tables.next()) {
-                    warningHandler.handle(String.format("Found several tables that match %s name",
-                            JDBCUtil.escapeTable(database, table)));
-                }
-            }
-
-            Set<String> primaryKeys = new HashSet<>();
-            try (ResultSet primaryKeysRS = metadata.getPrimaryKeys(database, null, table)) {
-                while (primaryKeysRS.next()) {
-                    primaryKeys.add(primaryKeysRS.getString("COLUMN_NAME"));
-                }
-            }
+        try (Connection conn = ConnectionPool.getInstance().getConnection(conf)) {
+            return getTable(conn, database, table, originalTableName, warningHandler);
+        }
+    }
 
-            List<Column> columns = new ArrayList<>();
-            try (ResultSet columnsRS = metadata.getColumns(database, null, table, null)) {
-                while (columnsRS.next()) {
-                    Column.Builder c = Column.newBuilder()
-                            .setName(columnsRS.getString("COLUMN_NAME"))
-                            .setType(JDBCUtil.mapDataTypes(columnsRS.getInt("DATA_TYPE"),
-                                    columnsRS.getString("TYPE_NAME")))
-                            .setPrimaryKey(
-                                    primaryKeys.contains(columnsRS.getString("COLUMN_NAME")));
-                    if (c.getType() == DataType.DECIMAL) {
-                        c.setParams(DataTypeParams.newBuilder()
-                                .setDecimal(DecimalParams.newBuilder()
-                                        .setScale(columnsRS.getInt("DECIMAL_DIGITS"))
-                                        .setPrecision(columnsRS.getInt("COLUMN_SIZE")).build())
-                                .build());
-                    }
-                    if (c.getType() == DataType.STRING) {
-                        String typeName = columnsRS.getString("TYPE_NAME");
-                        if (typeName.equals("GEOGRAPHYPOINT") || typeName.equals("GEOGRAPHY")) {
-                            c.setParams(DataTypeParams.newBuilder()
-                                    .setStringByteLength(Integer.MAX_VALUE)
-                                    .build());
-                        } else {
-                            c.setParams(DataTypeParams.newBuilder()
-                                    .setStringByteLength(columnsRS.getInt("CHAR_OCTET_LENGTH"))
-                                    .build());
-                        }
-                    }
+    static <T> Table getTable(Connection conn, String database, String table,
+                              String originalTableName, WarningHandler warningHandler) throws Exception {
+        Table t = TableMetadataLoader.loadTable(conn, database, table);
+        if (t == null) {
+            throw new TableNotExistException();
+        }
 
-                    columns.add(c.build());
-                }
-            }
+        return t.toBuilder().setName(originalTableName).build();
+    }
 
-            return Table.newBuilder().setName(originalTableName).addAllColumns(columns).build();
+    /**
+     * Loads table metadata through the cache if it is given.
+     */
+    private static Table getTable(Connection conn, TableMetadataCache cache, SingleStoreConfiguration conf,
+                                  String database, String table, String originalTableName,
+                                  WarningHandler warningHandler) throws Exception {
+        if (cache == null) {
+            return getTable(conn, database, table, originalTableName, warningHandler);
         }
+
+        return cache.getTable(conn, conf, database, table, originalTableName, warningHandler);
     }
 
-    static DataType mapDataTypes(Integer dataType, String typeName) {
+    static DataType mapDataTypes(String typeName) {
         switch (typeName) {
             case "BOOLEAN":
                 return DataType.BOOLEAN;
@@ -287,12 +278,20 @@ public class JDBCUtil {
 
     static <T> List<QueryWithCleanup> generateAlterTableQuery(AlterTableRequest request, WarningHandler warningHandler) throws Exception {
         SingleStoreConfiguration conf = new SingleStoreConfiguration(request.getConfigurationMap());
+        try (Connection conn = ConnectionPool.getInstance().getConnection(conf)) {
+            return generateAlterTableQuery(conn, null, request, warningHandler);
+        }
+    }
+
+    static <T> List<QueryWithCleanup> generateAlterTableQuery(Connection conn, TableMetadataCache cache,
+                                                              AlterTableRequest request, WarningHandler warningHandler) throws Exception {
+        SingleStoreConfiguration conf = new SingleStoreConfiguration(request.getConfigurationMap());
 
         String database = JDBCUtil.getDatabaseName(conf, request.getSchemaName());
         String table =
                 JDBCUtil.getTableName(conf, request.getSchemaName(), request.getTable().getName());
 
-        Table oldTable = getTable(conf, database, table, request.getTable().getName(), warningHandler);
+        Table oldTable = getTable(conn, cache, conf, database, table, request.getTable().getName(), warningHandler);
         Table newTable = request.getTable();
         boolean pkChanged = false;
 
@@ -495,7 +494,7 @@ public class JDBCUtil {
                 mapDataTypes(col.getType(), col.getParams()));
     }
 
-    static String mapDataTypes(DataType type, DataTypeParams params) {
+    public static String mapDataTypes(DataType type, DataTypeParams params) {
         switch (type) {
             case BOOLEAN:
                 return "BOOL";
@@ -557,6 +556,17 @@ public class JDBCUtil {
         return Timestamp.valueOf(localDateTime);
     }
 
+    /**
+     * Returns microseconds since the epoch of the datetime, ignoring its time zone as
+     * {@link #formatISODateTime} does.
+     */
+    public static long parseEpochMicros(String dateTime) {
+        LocalDateTime localDateTime =
+                LocalDateTime.parse(formatISODateTime(dateTime), MICROS_FORMATTER);
+        return localDateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000
+                + localDateTime.getNano() / 1_000;
+    }
+
     public static String formatISODateTime(String dateTime) {
         dateTime = dateTime.replace("T", " ").replace("Z", "");
 
@@ -666,17 +676,15 @@ public class JDBCUtil {
         return originalName + "_tmp_" + Integer.toHexString(new Random().nextInt(0x1000000));
     }
 
-    private static boolean checkTableNonEmpty(SingleStoreConfiguration conf, String database, String table) throws Exception {
-        try (Connection conn = JDBCUtil.createConnection(conf);
-            Statement stmt = conn.createStatement();
+    private static boolean checkTableNonEmpty(Connection conn, String database, String table) throws Exception {
+        try (Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(String.format("SELECT 1 FROM %s LIMIT 1", escapeTable(database, table)))) {
             return rs.next();
         }
     }
 
-    private static boolean checkMaxStartTime(SingleStoreConfiguration conf, String database, String table, String maxTime) throws Exception {
+    private static boolean checkMaxStartTime(Connection conn, String database, String table, String maxTime) throws Exception {
         try (
-            Connection conn = JDBCUtil.createConnection(conf);
             PreparedStatement stmt = conn.prepareStatement(
                 String.format("SELECT MAX(_fivetran_start) <= ? FROM %s", escapeTable(database, table)));
         ) {
@@ -690,6 +698,14 @@ public class JDBCUtil {
 
     static List<QueryWithCleanup> generateMigrateQueries(MigrateRequest request, WarningHandler warningHandler) throws Exception {
         SingleStoreConfiguration conf = new SingleStoreConfiguration(request.getConfigurationMap());
+        try (Connection conn = ConnectionPool.getInstance().getConnection(conf)) {
+            return generateMigrateQueries(conn, null, request, warningHandler);
+        }
+    }
+
+    static List<QueryWithCleanup> generateMigrateQueries(Connection conn, TableMetadataCache cache,
+                                                         MigrateRequest request, WarningHandler warningHandler) throws Exception {
+        SingleStoreConfiguration conf = new SingleStoreConfiguration(request.getConfigurationMap());
 
         MigrationDetails details = request.getDetails();
         String database = JDBCUtil.getDatabaseName(conf, details.getSchema());
@@ -706,14 +722,14 @@ public class JDBCUtil {
                     case DROP_COLUMN_IN_HISTORY_MODE:
                         DropColumnInHistoryMode dropColumnInHistoryMode = drop.getDropColumnInHistoryMode();
 
-                        if (!checkTableNonEmpty(conf, database, table)) {
+                        if (!checkTableNonEmpty(conn, database, table)) {
                             return new ArrayList<>();
                         }
-                        if (!checkMaxStartTime(conf, database, table, dropColumnInHistoryMode.getOperationTimestamp())) {
+                        if (!checkMaxStartTime(conn, database, table, dropColumnInHistoryMode.getOperationTimestamp())) {
                             throw new IllegalArgumentException("Cannot drop column in history mode because maximum _fivetran_start is greater than the operation timestamp");
                         }
 
-                        t = getTable(conf, database, table, details.getTable(), warningHandler);
+                        t = getTable(conn, cache, conf, database, table, details.getTable(), warningHandler);
                         return generateDropColumnInHistoryMode(drop.getDropColumnInHistoryMode(), t, database, table);
                     default:
                         throw new IllegalArgumentException("Unsupported drop operation");
@@ -731,7 +747,7 @@ public class JDBCUtil {
                         return generateMigrateCopyTable(tableFrom, tableTo, database);
                     case COPY_COLUMN:
                         CopyColumn migration = copy.getCopyColumn();
-                        t = getTable(conf, database, table, details.getTable(), warningHandler);
+                        t = getTable(conn, cache, conf, database, table, details.getTable(), warningHandler);
                         Column c = t.getColumnsList().stream()
                                 .filter(column -> column.getName().equals(migration.getFromColumn()))
                                 .findFirst()
@@ -745,7 +761,7 @@ public class JDBCUtil {
                         String tableToHM =
                                 JDBCUtil.getTableName(conf, details.getSchema(), copyTableToHistoryModeMigration.getToTable());
 
-                        t = getTable(conf, database, tableFromHM, copyTableToHistoryModeMigration.getFromTable(), warningHandler);
+                        t = getTable(conn, cache, conf, database, tableFromHM, copyTableToHistoryModeMigration.getFromTable(), warningHandler);
 
                         return generateMigrateCopyTableToHistoryMode(t,
                                 database, tableFromHM, tableToHM, copyTableToHistoryModeMigration.getSoftDeletedColumn());
@@ -774,12 +790,12 @@ public class JDBCUtil {
                     case ADD_COLUMN_IN_HISTORY_MODE:
                         AddColumnInHistoryMode addColumnInHistoryMode = add.getAddColumnInHistoryMode();
 
-                        boolean isEmpty = !checkTableNonEmpty(conf, database, table);
-                        if (!isEmpty && !checkMaxStartTime(conf, database, table, addColumnInHistoryMode.getOperationTimestamp())) {
+                        boolean isEmpty = !checkTableNonEmpty(conn, database, table);
+                        if (!isEmpty && !checkMaxStartTime(conn, database, table, addColumnInHistoryMode.getOperationTimestamp())) {
                             throw new IllegalArgumentException("Cannot add column in history mode because maximum _fivetran_start is greater than the operation timestamp");
                         }
 
-                        t = getTable(conf, database, table, details.getTable(), warningHandler);
+                        t = getTable(conn, cache, conf, database, table, details.getTable(), warningHandler);
                         return generateAddColumnInHistoryMode(addColumnInHistoryMode, t, database, table, isEmpty);
                     case ADD_COLUMN_WITH_DEFAULT_VALUE:
                         return generateMigrateAddColumnWithDefaultValue(add.getAddColumnWithDefaultValue(), table, database);
@@ -788,7 +804,7 @@ public class JDBCUtil {
                 }
             case UPDATE_COLUMN_VALUE:
                 UpdateColumnValueOperation updateColumnValue = details.getUpdateColumnValue();
-                t = getTable(conf, database, table, details.getTable(), warningHandler);
+                t = getTable(conn, cache, conf, database, table, details.getTable(), warningHandler);
                 Column c = t.getColumnsList().stream()
                         .filter(column -> column.getName().equals(updateColumnValue.getColumn()))
                         .findFirst()
@@ -804,16 +820,16 @@ public class JDBCUtil {
                     case SOFT_DELETE_TO_LIVE:
                         return generateMigrateSoftDeleteToLive(database, table, softDeleteColumn);
                     case SOFT_DELETE_TO_HISTORY:
-                        t = getTable(conf, database, table, details.getTable(), warningHandler);
+                        t = getTable(conn, cache, conf, database, table, details.getTable(), warningHandler);
                         return generateMigrateSoftDeleteToHistory(t, database, table, softDeleteColumn);
                     case HISTORY_TO_SOFT_DELETE:
-                        t = getTable(conf, database, table, details.getTable(), warningHandler);
+                        t = getTable(conn, cache, conf, database, table, details.getTable(), warningHandler);
                         return generateMigrateHistoryToSoftDelete(t, database, table, softDeleteColumn);
                     case HISTORY_TO_LIVE:
-                        t = getTable(conf, database, table, details.getTable(), warningHandler);
+                        t = getTable(conn, cache, conf, database, table, details.getTable(), warningHandler);
                         return generateMigrateHistoryToLive(t, database, table, keepDeletedRows);
                     case LIVE_TO_HISTORY:
-                        t = getTable(conf, database, table, details.getTable(), warningHandler);
+                        t = getTable(conn, cache, conf, database, table, details.getTable(), warningHandler);
                         return generateMigrateLiveToHistory(t, database, table);
                     case LIVE_TO_SOFT_DELETE:
                         return generateMigrateLiveToSoftDelete(database, table, softDeleteColumn);
@@ -0,0 +1,194 @@
+package com.singlestore.fivetran.destination.connector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache of server-side prepared statements of a single pooled connection.
+ * <p>
+ * Statements are keyed by table and statement shape, so writers build SQL and the server compiles
+ * a plan only the first time a shape is used on a connection. Each statement remembers the schema
+ * version of its table; {@link #schemaChanged} is called whenever the schema of a table is
+ * changed, and outdated statements are prepared again on the next use.
+ * <p>
+ * Only connections from {@link ConnectionPool} have a cache, since statements are kept open
+ * between RPCs.
+ */
+public class PreparedStatementCache {
+    private static final Logger logger = LoggerFactory.getLogger(PreparedStatementCache.class);
+
+    private static volatile int maxSize = 256;
+
+    private static final Map<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+    private static final AtomicLong globalVersion = new AtomicLong();
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder evictions = new LongAdder();
+    private static final LongAdder invalidations = new LongAdder();
+
+    private final Connection conn;
+    private final LinkedHashMap<String, Entry> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    PreparedStatementCache(Connection conn) {
+        this.conn = conn;
+    }
+
+    /**
+     * Changes the maximum number of statements cached per connection. 0 disables the cache.
+     */
+    public static void configure(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Statement cache size must not be negative");
+        }
+
+        PreparedStatementCache.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cache of the connection, or null if the connection doesn't have one.
+     */
+    public static PreparedStatementCache forConnection(Connection conn) throws SQLException {
+        if (maxSize == 0 || !conn.isWrapperFor(PreparedStatementCache.class)) {
+            return null;
+        }
+
+        return conn.unwrap(PreparedStatementCache.class);
+    }
+
+    /**
+     * Makes cached statements of the table outdated. Must be called after the schema of the table
+     * is changed.
+     */
+    public static void schemaChanged(String database, String table) {
+        tableVersions.computeIfAbsent(tableKey(database, table), k -> new AtomicLong())
+                .incrementAndGet();
+    }
+
+    /**
+     * Makes all cached statements outdated.
+     */
+    public static void schemaChangedAll() {
+        globalVersion.incrementAndGet();
+    }
+
+    private static String tableKey(String database, String table) {
+        return JDBCUtil.escapeTable(database, table);
+    }
+
+    private static long schemaVersion(String tableKey) {
+        AtomicLong tableVersion = tableVersions.get(tableKey);
+        // Both counters only grow, so the sum changes whenever any of them does
+        return globalVersion.get() + (tableVersion == null ? 0 : tableVersion.get());
+    }
+
+    /**
+     * Returns the cached statement with the given shape, or prepares the SQL returned by the
+     * supplier on a miss. The returned statement must not be closed by the caller.
+     */
+    public synchronized PreparedStatement prepare(String database, String table, String shape,
+                                                  Supplier<String> sql) throws SQLException {
+        String tableKey = tableKey(database, table);
+        String key = tableKey + "\0" + shape;
+        long version = schemaVersion(tableKey);
+
+        Entry entry = statements.get(key);
+        if (entry != null) {
+            if (entry.version == version) {
+                hits.increment();
+                return entry.stmt;
+            }
+
+            statements.remove(key);
+            closeQuietly(entry.stmt);
+            invalidations.increment();
+        }
+
+        misses.increment();
+        PreparedStatement stmt = prepareServerSide(sql.get());
+        statements.put(key, new Entry(stmt, version));
+        evictOverflow();
+        return stmt;
+    }
+
+    private PreparedStatement prepareServerSide(String sql) throws SQLException {
+        if (conn.isWrapperFor(com.singlestore.jdbc.Connection.class)) {
+            return conn.unwrap(com.singlestore.jdbc.Connection.class).prepareInternal(sql,
+                    Statement.NO_GENERATED_KEYS, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY, true);
+        }
+
+        return conn.prepareStatement(sql);
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> it = statements.values().iterator();
+        while (statements.size() > maxSize && it.hasNext()) {
+            Entry entry = it.next();
+            it.remove();
+            closeQuietly(entry.stmt);
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Closes all cached statements.
+     */
+    public synchronized void clear() {
+        for (Entry entry : statements.values()) {
+            closeQuietly(entry.stmt);
+        }
+        statements.clear();
+    }
+
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            logger.debug("Failed to close cached statement", e);
+        }
+    }
+
+    public static long hits() {
+        return hits.sum();
+    }
+
+    public static long misses() {
+        return misses.sum();
+    }
+
+    public static long evictions() {
+        return evictions.sum();
+    }
+
+    public static long invalidations() {
+        return invalidations.sum();
+    }
+
+    private static class Entry {
+        final PreparedStatement stmt;
+        final long version;
+
+        Entry(PreparedStatement stmt, long version) {
+            this.stmt = stmt;
+            this.version = version;
+        }
+    }
+}
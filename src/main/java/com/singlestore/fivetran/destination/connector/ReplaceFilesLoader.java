@@ -0,0 +1,280 @@
+package com.singlestore.fivetran.destination.connector;
+
+import com.google.protobuf.ByteString;
+import com.singlestore.fivetran.destination.connector.warning_util.WarningHandler;
+import com.singlestore.fivetran.destination.connector.writers.BatchPlanner;
+import com.singlestore.fivetran.destination.connector.writers.LoadDataCompression;
+import com.singlestore.fivetran.destination.connector.writers.LoadDataWriter;
+import com.singlestore.fivetran.destination.connector.writers.ReplaceDeduplicator;
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.FileParams;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads replace files of a batch into a table.
+ * <p>
+ * With deduplication enabled, files are indexed by a {@link ReplaceDeduplicator} first and only
+ * the last version of each primary key is loaded.
+ * <p>
+ * With parallelism greater than 1, files are spread across that many pooled connections, each of
+ * which runs its own LOAD DATA stream. Files are not split, so the degree of parallelism is also
+ * limited by the number of files. Rows with the same primary key in different files would be
+ * applied in an unspecified order, so files are always deduplicated before they are loaded in
+ * parallel. Deduplication compares keys byte by byte, so files are loaded sequentially if they
+ * can't be deduplicated or if different keys may be equal in the database, e.g. 'abc' and 'ABC' in
+ * a case-insensitive collation.
+ * <p>
+ * If a {@link BatchPlanner} is given, it skips rows deleted later in the batch and merges updates
+ * into the loaded rows.
+ */
+public class ReplaceFilesLoader {
+    private static final Logger logger = LoggerFactory.getLogger(ReplaceFilesLoader.class);
+
+    private final SingleStoreConfiguration conf;
+    private final String database;
+    private final String table;
+    private final List<Column> columns;
+    private final FileParams params;
+    private final Map<String, ByteString> secretKeys;
+    private final WarningHandler warningHandler;
+    private final BatchPlanner planner;
+
+    public ReplaceFilesLoader(SingleStoreConfiguration conf, String database, String table,
+                              List<Column> columns, FileParams params,
+                              Map<String, ByteString> secretKeys, WarningHandler warningHandler) {
+        this(conf, database, table, columns, params, secretKeys, warningHandler, null);
+    }
+
+    /**
+     * Rows of replace files are filtered by the planner if it is not null.
+     */
+    public ReplaceFilesLoader(SingleStoreConfiguration conf, String database, String table,
+                              List<Column> columns, FileParams params,
+                              Map<String, ByteString> secretKeys, WarningHandler warningHandler,
+                              BatchPlanner planner) {
+        this.conf = conf;
+        this.database = database;
+        this.table = table;
+        this.columns = columns;
+        this.params = params;
+        this.secretKeys = secretKeys;
+        this.warningHandler = warningHandler;
+        this.planner = planner;
+    }
+
+    /**
+     * Loads files using the given connection if parallelism is disabled, or additional pooled
+     * connections otherwise. Additional connections are borrowed only if they are free, so files
+     * are loaded by fewer connections when the pool is busy.
+     */
+    public void load(Connection conn, List<String> files) throws Exception {
+        LoadDataCompression compression = resolveCompression(conn);
+        // The given connection is one of the pooled connections
+        int parallelism = Math.min(Math.min(conf.replaceParallelism(), files.size()),
+                ConnectionPool.getInstance().maxConnections());
+        ReplaceDeduplicator deduplicator = conf.replaceDeduplicate() || parallelism > 1
+                ? deduplicate(files, parallelism > 1)
+                : null;
+        if (parallelism > 1 && (deduplicator == null || deduplicator.hasEquivalentKeys())) {
+            logger.warn(String.format(
+                    "Loading replace files of %s sequentially, because versions of a row in different files can't be ordered",
+                    JDBCUtil.escapeTable(database, table)));
+            parallelism = 1;
+        }
+        List<Connection> workerConns = new ArrayList<>();
+        try {
+            for (int i = 1; i < parallelism; i++) {
+                Connection workerConn = ConnectionPool.getInstance().tryGetConnection(conf);
+                if (workerConn == null) {
+                    break;
+                }
+                workerConns.add(workerConn);
+            }
+            if (workerConns.size() + 1 < parallelism) {
+                logger.info(String.format(
+                        "Loading replace files of %s with %d of %d connections, other connections of the pool are in use",
+                        JDBCUtil.escapeTable(database, table), workerConns.size() + 1,
+                        parallelism));
+            }
+
+            if (workerConns.isEmpty()) {
+                LoadDataWriter<?> w = newWriter(conn, compression);
+                for (int i = 0; i < files.size(); i++) {
+                    write(w, deduplicator, files, i);
+                }
+                return;
+            }
+
+            loadInParallel(conn, workerConns, compression, deduplicator, files);
+        } finally {
+            for (Connection workerConn : workerConns) {
+                workerConn.close();
+            }
+            if (deduplicator != null) {
+                deduplicator.release();
+            }
+        }
+    }
+
+    private void loadInParallel(Connection conn, List<Connection> workerConns,
+                                LoadDataCompression compression, ReplaceDeduplicator deduplicator,
+                                List<String> files) throws Exception {
+        ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < files.size(); i++) {
+            queue.add(i);
+        }
+        AtomicBoolean failed = new AtomicBoolean(false);
+        AtomicInteger threadId = new AtomicInteger();
+        // The calling thread is one of the workers
+        ExecutorService executor = Executors.newFixedThreadPool(workerConns.size(), r -> {
+            Thread t = new Thread(r, String.format("replace-loader-%s-%d", table,
+                    threadId.incrementAndGet()));
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Connection workerConn : workerConns) {
+                futures.add(executor.submit(() -> {
+                    loadFromQueue(workerConn, compression, deduplicator, files, queue, failed);
+                    return null;
+                }));
+            }
+
+            Exception error = null;
+            int failedWorkers = 0;
+            try {
+                loadFromQueue(conn, compression, deduplicator, files, queue, failed);
+            } catch (Exception e) {
+                failedWorkers++;
+                error = e;
+            }
+
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    failedWorkers++;
+                    Exception cause = e.getCause() instanceof Exception
+                            ? (Exception) e.getCause()
+                            : new Exception(e.getCause());
+                    if (error == null) {
+                        error = cause;
+                    } else {
+                        error.addSuppressed(cause);
+                    }
+                }
+            }
+
+            if (error != null) {
+                logger.warn(String.format("%d of %d replace workers failed for %s", failedWorkers,
+                        workerConns.size() + 1, JDBCUtil.escapeTable(database, table)));
+                throw error;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void loadFromQueue(Connection conn, LoadDataCompression compression,
+                               ReplaceDeduplicator deduplicator, List<String> files,
+                               ConcurrentLinkedQueue<Integer> queue, AtomicBoolean failed)
+            throws Exception {
+        try {
+            LoadDataWriter<?> w = newWriter(conn, compression);
+            Integer fileIndex;
+            // Stop taking new files as soon as any of the workers fails
+            while (!failed.get() && (fileIndex = queue.poll()) != null) {
+                try {
+                    write(w, deduplicator, files, fileIndex);
+                } catch (Exception e) {
+                    throw new Exception(String.format("Failed to load file '%s': %s",
+                            files.get(fileIndex), e.getMessage()), e);
+                }
+            }
+        } catch (Exception e) {
+            failed.set(true);
+            throw e;
+        }
+    }
+
+    private void write(LoadDataWriter<?> w, ReplaceDeduplicator deduplicator, List<String> files,
+                       int fileIndex) throws Exception {
+        w.setRowFilter(LoadDataWriter.RowFilter.both(
+                deduplicator == null ? null : deduplicator.filter(fileIndex),
+                planner == null ? null : planner.replaceFilter(fileIndex)));
+        w.write(files.get(fileIndex));
+    }
+
+    /**
+     * Indexes primary keys of the files. Returns null if the files can't be deduplicated, so they
+     * are loaded as they are. Keys which may be equal in the database are detected if the files
+     * are going to be loaded in parallel.
+     */
+    private ReplaceDeduplicator deduplicate(List<String> files, boolean parallel)
+            throws Exception {
+        ReplaceDeduplicator deduplicator =
+                new ReplaceDeduplicator(columns, params, secretKeys, parallel);
+        boolean indexed;
+        try {
+            indexed = deduplicator.index(files);
+        } catch (Exception e) {
+            deduplicator.release();
+            throw e;
+        }
+        if (!indexed) {
+            deduplicator.release();
+            logger.warn(String.format(
+                    "Replace files of %s can't be deduplicated, loading all rows",
+                    JDBCUtil.escapeTable(database, table)));
+            return null;
+        }
+
+        logger.debug(String.format("Skipping %d of %d rows of replace files of %s",
+                deduplicator.duplicates(), deduplicator.rows(),
+                JDBCUtil.escapeTable(database, table)));
+        return deduplicator;
+    }
+
+    /**
+     * Falls back to a weaker compression if the server doesn't support the configured one.
+     */
+    private LoadDataCompression resolveCompression(Connection conn) {
+        LoadDataCompression requested = conf.loadCompression();
+        if (requested == LoadDataCompression.NONE) {
+            return requested;
+        }
+
+        String serverVersion = JDBCUtil.getServerVersion(conn, conf);
+        LoadDataCompression compression =
+                LoadDataCompression.forServerVersion(requested, serverVersion);
+        if (compression != requested) {
+            logger.warn(String.format(
+                    "Compression '%s' is not supported by SingleStore %s, using '%s' instead",
+                    requested.getName(), serverVersion, compression.getName()));
+        }
+
+        return compression;
+    }
+
+    private LoadDataWriter<?> newWriter(Connection conn, LoadDataCompression compression)
+            throws Exception {
+        return new LoadDataWriter<>(conn, database, table, columns, params, secretKeys,
+                conf.batchSize(), warningHandler, compression);
+    }
+}
@@ -1,5 +1,10 @@
 package com.singlestore.fivetran.destination.connector;
 
+import com.singlestore.fivetran.destination.connector.writers.LoadDataCompression;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -14,6 +19,12 @@ public class SingleStoreConfiguration {
     private final String sslServerCert;
     private final String driverParameters;
     private final Integer batchSize;
+    private final Integer replaceParallelism;
+    private final Integer historyParallelism;
+    private final Boolean replaceDeduplicate;
+    private final Boolean batchPlanning;
+    private final LoadDataCompression loadCompression;
+    private final String updateStrategy;
     private final Map<String, String> fivetranSchemaToSingleStoreDatabase = new HashMap<>();
 
     SingleStoreConfiguration(Map<String, String> conf) {
@@ -26,6 +37,34 @@ public class SingleStoreConfiguration {
         this.sslServerCert = formatServerCert(withDefaultNull(conf.get("ssl.server.cert")));
         this.driverParameters = withDefaultNull(conf.get("driver.parameters"));
         this.batchSize = Integer.valueOf(withDefault(conf.get("batch.size"), "10000"));
+        this.replaceParallelism = Integer.valueOf(withDefault(conf.get("replace.parallelism"), "1"));
+        if (this.replaceParallelism < 1) {
+            throw new IllegalArgumentException("Replace parallelism must be positive");
+        }
+        this.historyParallelism = Integer.valueOf(withDefault(conf.get("history.parallelism"), "1"));
+        if (this.historyParallelism < 1) {
+            throw new IllegalArgumentException("History parallelism must be positive");
+        }
+        String replaceDeduplicate = withDefault(conf.get("replace.deduplicate"), "false");
+        if (!replaceDeduplicate.equalsIgnoreCase("true")
+                && !replaceDeduplicate.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid replace deduplication: %s", replaceDeduplicate));
+        }
+        this.replaceDeduplicate = Boolean.valueOf(replaceDeduplicate);
+        String batchPlanning = withDefault(conf.get("batch.planning"), "false");
+        if (!batchPlanning.equalsIgnoreCase("true") && !batchPlanning.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid batch planning: %s", batchPlanning));
+        }
+        this.batchPlanning = Boolean.valueOf(batchPlanning);
+        this.loadCompression =
+                LoadDataCompression.fromName(withDefault(conf.get("load.compression"), "none"));
+        this.updateStrategy = withDefault(conf.get("update.strategy"), "row");
+        if (!this.updateStrategy.equals("row") && !this.updateStrategy.equals("staging")) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid update strategy: %s", this.updateStrategy));
+        }
         String databaseNameMapping = withDefault(conf.get("database.name.mapping"), "");
         Arrays.stream(databaseNameMapping.split(";")).forEach(mapping -> {
             if (mapping.isEmpty()) {
@@ -103,6 +142,55 @@ public class SingleStoreConfiguration {
         return batchSize;
     }
 
+    public Integer replaceParallelism() {
+        return replaceParallelism;
+    }
+
+    public Integer historyParallelism() {
+        return historyParallelism;
+    }
+
+    public Boolean replaceDeduplicate() {
+        return replaceDeduplicate;
+    }
+
+    public Boolean batchPlanning() {
+        return batchPlanning;
+    }
+
+    public LoadDataCompression loadCompression() {
+        return loadCompression;
+    }
+
+    public String updateStrategy() {
+        return updateStrategy;
+    }
+
+    /**
+     * Returns a digest of all options that affect how a connection is opened. Configurations with
+     * the same fingerprint can share connections.
+     */
+    public String fingerprint() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object option : Arrays.asList(host, port, user, password, sslMode, sslServerCert,
+                    driverParameters, database)) {
+                // Length prefix keeps ("ab", "c") and ("a", "bc") distinct
+                String value = option == null ? "\0" : option.toString();
+                digest.update(String.format("%d:%s;", value.length(), value)
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
     public String getSingleStoreDatabase(String fivetranSchema) {
         return fivetranSchemaToSingleStoreDatabase.getOrDefault(fivetranSchema, fivetranSchema);
     }
@@ -1,5 +1,10 @@
 package com.singlestore.fivetran.destination.connector;
 
+import com.singlestore.fivetran.destination.connector.metrics.Metrics;
+import com.singlestore.fivetran.destination.connector.metrics.MetricsInterceptor;
+import com.singlestore.fivetran.destination.connector.metrics.MetricsServer;
+import com.singlestore.fivetran.destination.connector.writers.ReplaceDeduplicator;
+import com.singlestore.fivetran.destination.connector.writers.SpillingRowSorter;
 import io.grpc.*;
 import org.apache.commons.cli.*;
 import org.slf4j.Logger;
@@ -15,6 +20,24 @@ public class SingleStoreDestinationConnector {
         Options options = new Options();
         Option portOption = new Option("p", "port", true, "port which server will listen");
         options.addOption(portOption);
+        options.addOption(new Option(null, "pool-max-connections", true,
+                "maximum number of pooled connections per destination configuration"));
+        options.addOption(new Option(null, "pool-idle-timeout", true,
+                "number of seconds after which an idle pooled connection is closed"));
+        options.addOption(new Option(null, "metadata-cache-ttl", true,
+                "number of seconds for which table metadata is cached, 0 disables the cache"));
+        options.addOption(new Option(null, "metadata-cache-size", true,
+                "maximum number of tables with cached metadata"));
+        options.addOption(new Option(null, "metadata-prefetch", false,
+                "load metadata of all tables in a database on the first describe of its table"));
+        options.addOption(new Option(null, "statement-cache-size", true,
+                "maximum number of prepared statements cached per pooled connection, 0 disables the cache"));
+        options.addOption(new Option(null, "history-sort-memory", true,
+                "number of megabytes of history mode update rows kept in memory while sorting before they are spilled to disk"));
+        options.addOption(new Option(null, "replace-dedup-memory", true,
+                "number of megabytes of direct memory used to deduplicate replace files of a batch"));
+        options.addOption(new Option(null, "metrics-port", true,
+                "port which serves Prometheus metrics on /metrics, 0 disables metrics"));
 
         CommandLineParser parser = new DefaultParser();
         HelpFormatter formatter = new HelpFormatter();
@@ -29,25 +52,94 @@ public class SingleStoreDestinationConnector {
             throw e;
         }
 
-        String portStr = cmd.getOptionValue("port", "50052");
-        int port = 50052;
-        try {
-            port = Integer.parseInt(portStr);
-        } catch (NumberFormatException e) {
-            logger.warn("Failed to parse --port option", e);
-            formatter.printHelp("singlestore-fivetran-destination", options);
+        int port = parseIntOption(cmd, "port", 50052, formatter, options);
+        int poolMaxConnections = parseIntOption(cmd, "pool-max-connections", 16, formatter, options);
+        int poolIdleTimeout = parseIntOption(cmd, "pool-idle-timeout", 300, formatter, options);
+        ConnectionPool.getInstance().configure(poolMaxConnections, poolIdleTimeout * 1000L);
+        int metadataCacheTtl = parseIntOption(cmd, "metadata-cache-ttl", 300, formatter, options);
+        int metadataCacheSize = parseIntOption(cmd, "metadata-cache-size", 10000, formatter, options);
+        TableMetadataCache.getInstance().configure(metadataCacheTtl * 1000L, metadataCacheSize);
+        TableMetadataCache.getInstance().setPrefetch(cmd.hasOption("metadata-prefetch"));
+        int statementCacheSize = parseIntOption(cmd, "statement-cache-size", 256, formatter, options);
+        PreparedStatementCache.configure(statementCacheSize);
+        int historySortMemory = parseIntOption(cmd, "history-sort-memory", 256, formatter, options);
+        SpillingRowSorter.configure(historySortMemory * 1024L * 1024L);
+        int replaceDedupMemory = parseIntOption(cmd, "replace-dedup-memory", 64, formatter, options);
+        ReplaceDeduplicator.configure(replaceDedupMemory * 1024L * 1024L);
 
-            throw e;
+        int metricsPort = parseIntOption(cmd, "metrics-port", 0, formatter, options);
+        if (metricsPort != 0) {
+            Metrics metrics = Metrics.getInstance();
+            registerMetrics(metrics);
+            metrics.setDetailed(true);
+            MetricsServer metricsServer = new MetricsServer(metricsPort, metrics);
+            metricsServer.start();
+            logger.info(String.format("Metrics server listens port %d", metricsServer.getPort()));
         }
 
         logger.info(
                 String.format("Starting Destination gRPC server (version %s) which listens port %d",
                         VersionProvider.getVersion(), port));
         Server server = ServerBuilder.forPort(port)
-                .addService(new SingleStoreDestinationConnectorServiceImpl()).build();
+                .addService(ServerInterceptors.intercept(
+                        new SingleStoreDestinationConnectorServiceImpl(),
+                        new MetricsInterceptor(Metrics.getInstance())))
+                .build();
 
         server.start();
         logger.info(String.format("Destination gRPC server started"));
         server.awaitTermination();
     }
+
+    private static void registerMetrics(Metrics metrics) {
+        ConnectionPool pool = ConnectionPool.getInstance();
+        metrics.gauge("fivetran_destination_pool_keys",
+                "Number of destination configurations with pooled connections",
+                () -> pool.getStats().keys());
+        metrics.gauge("fivetran_destination_pool_active_connections",
+                "Number of borrowed connections", () -> pool.getStats().active());
+        metrics.gauge("fivetran_destination_pool_idle_connections",
+                "Number of idle pooled connections", () -> pool.getStats().idle());
+        metrics.counterFunction("fivetran_destination_pool_created_total",
+                "Number of opened connections", () -> pool.getStats().created());
+        metrics.counterFunction("fivetran_destination_pool_reused_total",
+                "Number of reused pooled connections", () -> pool.getStats().reused());
+        metrics.counterFunction("fivetran_destination_pool_validation_failures_total",
+                "Number of pooled connections which failed validation",
+                () -> pool.getStats().validationFailures());
+        metrics.counterFunction("fivetran_destination_pool_evicted_total",
+                "Number of evicted idle connections", () -> pool.getStats().evicted());
+        metrics.counterFunction("fivetran_destination_pool_borrow_timeouts_total",
+                "Number of timeouts while waiting for a connection",
+                () -> pool.getStats().borrowTimeouts());
+        metrics.counterFunction("fivetran_destination_statement_cache_hits_total",
+                "Number of prepared statements reused from the cache",
+                PreparedStatementCache::hits);
+        metrics.counterFunction("fivetran_destination_statement_cache_misses_total",
+                "Number of prepared statements missing in the cache",
+                PreparedStatementCache::misses);
+        metrics.counterFunction("fivetran_destination_statement_cache_evictions_total",
+                "Number of prepared statements evicted from the cache",
+                PreparedStatementCache::evictions);
+        metrics.counterFunction("fivetran_destination_statement_cache_invalidations_total",
+                "Number of cached prepared statements invalidated by schema changes",
+                PreparedStatementCache::invalidations);
+    }
+
+    private static int parseIntOption(CommandLine cmd, String name, int defaultValue,
+                                      HelpFormatter formatter, Options options) {
+        String value = cmd.getOptionValue(name);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warn(String.format("Failed to parse --%s option", name), e);
+            formatter.printHelp("singlestore-fivetran-destination", options);
+
+            throw e;
+        }
+    }
 }
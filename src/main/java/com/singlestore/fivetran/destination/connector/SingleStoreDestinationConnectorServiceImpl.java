@@ -117,7 +117,60 @@ public class SingleStoreDestinationConnectorServiceImpl extends DestinationConne
                                 .setRequired(false)
                                 .setDescription(
                                         "Maximum number of rows that will be changed by a query. Default is 10000")
-                                .setTextField(TextField.PlainText).build()))
+                                .setTextField(TextField.PlainText).build(),
+                        FormField.newBuilder().setName("replace.parallelism").setLabel("Replace Parallelism")
+                                .setRequired(false)
+                                .setDescription(
+                                        "Maximum number of replace files of a batch that are loaded concurrently, each using its own connection.\n"
+                                                + "It is limited by the size of the connection pool, and files are loaded by fewer connections if other connections of the pool are in use.\n"
+                                                + "Files loaded in parallel are always deduplicated as with 'replace.deduplicate', so the last version of each primary key is loaded. Files are loaded sequentially if they can't be deduplicated, or if different primary keys may be equal in the database, e.g. 'abc' and 'ABC' in a case-insensitive collation. Default is 1")
+                                .setTextField(TextField.PlainText).build(),
+                        FormField.newBuilder().setName("replace.deduplicate").setLabel("Replace Deduplication")
+                                .setRequired(false)
+                                .setDescription(
+                                        "If 'true', replace files of a batch are read twice: first to find the last version of each primary key, then to load only that version.\n"
+                                                + "This reduces the data sent to SingleStore when rows are changed many times within a batch. It is always enabled if replace files are loaded in parallel. Default is 'false'")
+                                .setTextField(TextField.PlainText).build(),
+                        FormField.newBuilder().setName("batch.planning").setLabel("Batch Planning")
+                                .setRequired(false)
+                                .setDescription(
+                                        "If 'true', primary keys of update and delete files are read before replace files are loaded.\n"
+                                                + "Replace and update rows of keys deleted later in the batch are skipped, and updates are merged into replace rows of the same key. Default is 'false'")
+                                .setTextField(TextField.PlainText).build(),
+                        FormField.newBuilder().setName("history.parallelism").setLabel("History Parallelism")
+                                .setRequired(false)
+                                .setDescription(
+                                        "Maximum number of connections that apply a batch of history mode update files concurrently.\n"
+                                                + "Rows are partitioned by primary key, so versions of a row are still applied in order.\n"
+                                                + "It is limited by the size of the connection pool, and fewer connections are used if other connections of the pool are in use.\n"
+                                                + "It is ignored if the update strategy is 'staging', which applies updates with a few statements on one connection. Default is 1")
+                                .setTextField(TextField.PlainText).build(),
+                        FormField.newBuilder().setName("load.compression").setLabel("Load Compression")
+                                .setRequired(false)
+                                .setDescription(
+                                        "Compression of the data sent to SingleStore by LOAD DATA queries.\n"
+                                                + "Options include:\n"
+                                                + " * 'none' to send uncompressed data (the default);\n"
+                                                + " * 'gzip' to compress data with gzip;\n"
+                                                + " * 'lz4' to compress data with LZ4, which uses less CPU than gzip.\n"
+                                                + "If the server version doesn't support the selected compression, a supported one or no compression is used.")
+                                .setDropdownField(DropdownField.newBuilder()
+                                        .addDropdownField("none")
+                                        .addDropdownField("gzip")
+                                        .addDropdownField("lz4"))
+                                .build(),
+                        FormField.newBuilder().setName("update.strategy").setLabel("Update Strategy")
+                                .setRequired(false)
+                                .setDescription(
+                                        "How rows of update files are applied.\n"
+                                                + "Options include:\n"
+                                                + " * 'row' to execute an UPDATE query for each row (the default);\n"
+                                                + " * 'staging' to load rows into a temporary table and apply them with a few UPDATE ... JOIN queries, which is much faster for large files.\n"
+                                                + "In history mode, 'staging' also applies earliest start, update and delete files with a few set-based queries per batch.")
+                                .setDropdownField(DropdownField.newBuilder()
+                                        .addDropdownField("row")
+                                        .addDropdownField("staging"))
+                                .build()))
                 .addAllTests(Collections.singletonList(ConfigurationTest.newBuilder()
                         .setName("connect").setLabel("Tests connection").build()))
                 .build());
@@ -142,7 +195,7 @@ public class SingleStoreDestinationConnectorServiceImpl extends DestinationConne
         if (testName.equals("connect")) {
             SingleStoreConfiguration configuration =
                     new SingleStoreConfiguration(request.getConfigurationMap());
-            try (Connection conn = JDBCUtil.createConnection(configuration);
+            try (Connection conn = ConnectionPool.getInstance().getConnection(configuration);
                  Statement stmt = conn.createStatement();) {
                 stmt.execute("SELECT 1");
             } catch (Exception e) {
@@ -166,8 +219,9 @@ public class SingleStoreDestinationConnectorServiceImpl extends DestinationConne
         String database = JDBCUtil.getDatabaseName(conf, request.getSchemaName());
         String table = JDBCUtil.getTableName(conf, request.getSchemaName(), request.getTableName());
 
-        try {
-            Table t = JDBCUtil.getTable(conf, database, table, request.getTableName(), new WarningHandler());
+        try (Connection conn = ConnectionPool.getInstance().getConnection(conf)) {
+            Table t = TableMetadataCache.getInstance().getTable(conn, conf, database, table,
+                    request.getTableName(), new WarningHandler());
 
             DescribeTableResponse response = DescribeTableResponse.newBuilder().setTable(t).build();
 
@@ -197,8 +251,11 @@ public class SingleStoreDestinationConnectorServiceImpl extends DestinationConne
     public void createTable(CreateTableRequest request,
                             StreamObserver<CreateTableResponse> responseObserver) {
         SingleStoreConfiguration conf = new SingleStoreConfiguration(request.getConfigurationMap());
+        String database = JDBCUtil.getDatabaseName(conf, request.getSchemaName());
+        String table = JDBCUtil.getTableName(conf, request.getSchemaName(),
+                request.getTable().getName());
 
-        try (Connection conn = JDBCUtil.createConnection(conf);
+        try (Connection conn = ConnectionPool.getInstance().getConnection(conf);
              Statement stmt = conn.createStatement()) {
             String query = JDBCUtil.generateCreateTableQuery(conf, stmt, request);
             logger.info(String.format("Executing SQL:\n %s", query));
@@ -207,10 +264,6 @@ public class SingleStoreDestinationConnectorServiceImpl extends DestinationConne
             responseObserver.onNext(CreateTableResponse.newBuilder().setSuccess(true).build());
             responseObserver.onCompleted();
         } catch (Exception e) {
-            String database = JDBCUtil.getDatabaseName(conf, request.getSchemaName());
-            String table = JDBCUtil.getTableName(conf, request.getSchemaName(),
-                    request.getTable().getName());
-
             logger.warn(String.format("CreateTable failed for %s",
                     JDBCUtil.escapeTable(database, table)), e);
 
@@ -219,6 +272,8 @@ public class SingleStoreDestinationConnectorServiceImpl extends DestinationConne
                             .setMessage(e.getMessage()).build())
                     .build());
             responseObserver.onCompleted();
+        } finally {
+            TableMetadataCache.getInstance().invalidate(conf, database, table);
         }
     }
 
@@ -226,10 +281,15 @@ public class SingleStoreDestinationConnectorServiceImpl extends DestinationConne
     public void alterTable(AlterTableRequest request,
                            StreamObserver<AlterTableResponse> responseObserver) {
         SingleStoreConfiguration conf = new SingleStoreConfiguration(request.getConfigurationMap());
-        try (Connection conn = JDBCUtil.createConnection(conf);
+        String database = JDBCUtil.getDatabaseName(conf, request.getSchemaName());
+        String table = JDBCUtil.getTableName(conf, request.getSchemaName(),
+                request.getTable().getName());
+
+        try (Connection conn = ConnectionPool.getInstance().getConnection(conf);
              Statement stmt = conn.createStatement()) {
             WarningHandler wh = new WarningHandler();
-            List<JDBCUtil.QueryWithCleanup> queries = JDBCUtil.generateAlterTableQuery(request, wh);
+            List<JDBCUtil.QueryWithCleanup> queries = JDBCUtil.generateAlterTableQuery(conn,
+                    TableMetadataCache.getInstance(), request, wh);
             if (queries != null && !queries.isEmpty()) {
                 for (JDBCUtil.QueryWithCleanup queryWithCleanup : queries) {
                     try {
@@ -260,9 +320,6 @@ public class SingleStoreDestinationConnectorServiceImpl extends DestinationConne
             responseObserver.onNext(AlterTableResponse.newBuilder().setSuccess(true).build());
             responseObserver.onCompleted();
         } catch (Exception e) {
-            String database = JDBCUtil.getDatabaseName(conf, request.getSchemaName());
-            String table = JDBCUtil.getTableName(conf, request.getSchemaName(),
-                    request.getTable().getName());
             logger.warn(String.format("AlterTable failed for %s",
                     JDBCUtil.escapeTable(database, table)), e);
 
@@ -271,17 +328,20 @@ public class SingleStoreDestinationConnectorServiceImpl extends DestinationConne
                             .setMessage(e.getMessage()).build())
                     .build());
             responseObserver.onCompleted();
+        } finally {
+            TableMetadataCache.getInstance().invalidate(conf, database, table);
         }
     }
 
     @Override
     public void migrate(MigrateRequest request, StreamObserver<MigrateResponse> responseObserver) {
         SingleStoreConfiguration conf = new SingleStoreConfiguration(request.getConfigurationMap());
-        try (Connection conn = JDBCUtil.createConnection(conf)) {
+        try (Connection conn = ConnectionPool.getInstance().getConnection(conf)) {
             conn.setAutoCommit(false);
 
             WarningHandler wh = new WarningHandler();
-            List<JDBCUtil.QueryWithCleanup> queries = JDBCUtil.generateMigrateQueries(request, wh);
+            List<JDBCUtil.QueryWithCleanup> queries = JDBCUtil.generateMigrateQueries(conn,
+                    TableMetadataCache.getInstance(), request, wh);
             try {
                 if (queries != null && !queries.isEmpty()) {
                     for (JDBCUtil.QueryWithCleanup queryWithCleanup : queries) {
@@ -334,6 +394,30 @@ public class SingleStoreDestinationConnectorServiceImpl extends DestinationConne
                             .setMessage(e.getMessage()).build())
                     .build());
             responseObserver.onCompleted();
+        } finally {
+            invalidateMigratedTables(conf, request.getDetails());
+        }
+    }
+
+    private void invalidateMigratedTables(SingleStoreConfiguration conf, MigrationDetails details) {
+        String database = JDBCUtil.getDatabaseName(conf, details.getSchema());
+        List<String> tables = new ArrayList<>();
+        tables.add(details.getTable());
+
+        if (details.hasCopy() && details.getCopy().hasCopyTable()) {
+            tables.add(details.getCopy().getCopyTable().getFromTable());
+            tables.add(details.getCopy().getCopyTable().getToTable());
+        } else if (details.hasCopy() && details.getCopy().hasCopyTableToHistoryMode()) {
+            tables.add(details.getCopy().getCopyTableToHistoryMode().getFromTable());
+            tables.add(details.getCopy().getCopyTableToHistoryMode().getToTable());
+        } else if (details.hasRename() && details.getRename().hasRenameTable()) {
+            tables.add(details.getRename().getRenameTable().getFromTable());
+            tables.add(details.getRename().getRenameTable().getToTable());
+        }
+
+        for (String table : tables) {
+            TableMetadataCache.getInstance().invalidate(conf, database,
+                    JDBCUtil.getTableName(conf, details.getSchema(), table));
         }
     }
 
@@ -344,7 +428,7 @@ public class SingleStoreDestinationConnectorServiceImpl extends DestinationConne
         String database = JDBCUtil.getDatabaseName(conf, request.getSchemaName());
         String table = JDBCUtil.getTableName(conf, request.getSchemaName(), request.getTableName());
 
-        try (Connection conn = JDBCUtil.createConnection(conf);
+        try (Connection conn = ConnectionPool.getInstance().getConnection(conf);
              Statement stmt = conn.createStatement()) {
             if (!JDBCUtil.checkTableExists(stmt, database, table)) {
                 logger.warn(String.format("Table %s doesn't exist",
@@ -369,7 +453,27 @@ public class SingleStoreDestinationConnectorServiceImpl extends DestinationConne
                             .setMessage(e.getMessage()).build())
                     .build());
             responseObserver.onCompleted();
+        } finally {
+            TableMetadataCache.getInstance().invalidate(conf, database, table);
+        }
+    }
+
+    /**
+     * Indexes keys of the batch. Returns null if the batch can't be planned, so it is applied as it
+     * is.
+     */
+    private BatchPlanner planBatch(WriteBatchRequest request, String database, String table)
+            throws Exception {
+        BatchPlanner planner = new BatchPlanner(request.getTable().getColumnsList(),
+                request.getFileParams(), request.getKeysMap());
+        if (!planner.plan(request.getReplaceFilesList(), request.getUpdateFilesList(),
+                request.getDeleteFilesList())) {
+            logger.warn(String.format("Batch of %s can't be planned, applying all rows",
+                    JDBCUtil.escapeTable(database, table)));
+            return null;
         }
+
+        return planner;
     }
 
     @Override
@@ -380,23 +484,27 @@ public class SingleStoreDestinationConnectorServiceImpl extends DestinationConne
         String table =
                 JDBCUtil.getTableName(conf, request.getSchemaName(), request.getTable().getName());
 
-        try (Connection conn = JDBCUtil.createConnection(conf);) {
+        try (Connection conn = ConnectionPool.getInstance().getConnection(conf);) {
             if (request.getTable().getColumnsList().stream()
                     .noneMatch(Column::getPrimaryKey)) {
                 throw new Exception("No primary key found");
             }
 
-            LoadDataWriter<WriteBatchResponse> w =
-                    new LoadDataWriter<>(conn, database, table, request.getTable().getColumnsList(),
-                            request.getFileParams(), request.getKeysMap(), conf.batchSize(),
-                            new WarningHandler());
-            for (String file : request.getReplaceFilesList()) {
-                w.write(file);
-            }
+            BatchPlanner planner = conf.batchPlanning() ? planBatch(request, database, table) : null;
+
+            new ReplaceFilesLoader(conf, database, table, request.getTable().getColumnsList(),
+                    request.getFileParams(), request.getKeysMap(), new WarningHandler(), planner)
+                    .load(conn, request.getReplaceFilesList());
 
-            UpdateWriter u =
-                    new UpdateWriter(conn, database, table, request.getTable().getColumnsList(),
+            Writer u = conf.updateStrategy().equals("staging")
+                    ? new StagingUpdateWriter(conn, database, table,
+                            request.getTable().getColumnsList(), request.getFileParams(),
+                            request.getKeysMap(), conf.batchSize(), new WarningHandler())
+                    : new UpdateWriter(conn, database, table, request.getTable().getColumnsList(),
                             request.getFileParams(), request.getKeysMap(), conf.batchSize());
+            if (planner != null) {
+                u = planner.updateWriter(u);
+            }
             for (String file : request.getUpdateFilesList()) {
                 u.write(file);
             }
@@ -404,7 +512,8 @@ public class SingleStoreDestinationConnectorServiceImpl extends DestinationConne
 
             DeleteWriter d =
                     new DeleteWriter(conn, database, table, request.getTable().getColumnsList(),
-                            request.getFileParams(), request.getKeysMap(), conf.batchSize());
+                            request.getFileParams(), request.getKeysMap(), conf.batchSize(),
+                            new WarningHandler());
             for (String file : request.getDeleteFilesList()) {
                 d.write(file);
             }
@@ -431,33 +540,48 @@ public class SingleStoreDestinationConnectorServiceImpl extends DestinationConne
         String table =
                 JDBCUtil.getTableName(conf, request.getSchemaName(), request.getTable().getName());
 
-        try (Connection conn = JDBCUtil.createConnection(conf)) {
+        try (Connection conn = ConnectionPool.getInstance().getConnection(conf)) {
             if (request.getTable().getColumnsList().stream()
                     .noneMatch(Column::getPrimaryKey)) {
                 throw new Exception("No primary key found");
             }
 
-            EarliestStartHistoryWriter e = new EarliestStartHistoryWriter(conn, database, table, request.getTable().getColumnsList(),
-                    request.getFileParams(), request.getKeysMap(), conf.batchSize());
+            Writer e = conf.updateStrategy().equals("staging")
+                    ? new StagingEarliestStartHistoryWriter(conn, database, table,
+                            request.getTable().getColumnsList(), request.getFileParams(),
+                            request.getKeysMap(), conf.batchSize(), new WarningHandler())
+                    : new EarliestStartHistoryWriter(conn, database, table,
+                            request.getTable().getColumnsList(), request.getFileParams(),
+                            request.getKeysMap(), conf.batchSize());
             for (String file : request.getEarliestStartFilesList()) {
                 e.write(file);
             }
 
-            UpdateHistoryWriter u = new UpdateHistoryWriter(conn, database, table, request.getTable().getColumnsList(),
-                    request.getFileParams(), request.getKeysMap(), conf.batchSize());
+            Writer u = conf.updateStrategy().equals("staging")
+                    ? new StagingUpdateHistoryWriter(conn, database, table,
+                            request.getTable().getColumnsList(), request.getFileParams(),
+                            request.getKeysMap(), conf.batchSize(), new WarningHandler())
+                    : new UpdateHistoryWriter(conn, database, table,
+                            request.getTable().getColumnsList(), request.getFileParams(),
+                            request.getKeysMap(), conf.batchSize(),
+                            Math.min(conf.historyParallelism(),
+                                    ConnectionPool.getInstance().maxConnections()),
+                            () -> ConnectionPool.getInstance().tryGetConnection(conf));
             for (String file : request.getUpdateFilesList()) {
                 u.write(file);
             }
 
-            LoadDataWriter<WriteBatchResponse> w = new LoadDataWriter<>(conn, database, table, request.getTable().getColumnsList(),
-                    request.getFileParams(), request.getKeysMap(), conf.batchSize(),
-                    new WarningHandler());
-            for (String file : request.getReplaceFilesList()) {
-                w.write(file);
-            }
-
-            DeleteHistoryWriter d = new DeleteHistoryWriter(conn, database, table, request.getTable().getColumnsList(),
-                    request.getFileParams(), request.getKeysMap(), conf.batchSize());
+            new ReplaceFilesLoader(conf, database, table, request.getTable().getColumnsList(),
+                    request.getFileParams(), request.getKeysMap(), new WarningHandler())
+                    .load(conn, request.getReplaceFilesList());
+
+            Writer d = conf.updateStrategy().equals("staging")
+                    ? new StagingDeleteHistoryWriter(conn, database, table,
+                            request.getTable().getColumnsList(), request.getFileParams(),
+                            request.getKeysMap(), conf.batchSize(), new WarningHandler())
+                    : new DeleteHistoryWriter(conn, database, table,
+                            request.getTable().getColumnsList(), request.getFileParams(),
+                            request.getKeysMap(), conf.batchSize());
             for (String file : request.getDeleteFilesList()) {
                 d.write(file);
             }
@@ -0,0 +1,267 @@
+package com.singlestore.fivetran.destination.connector;
+
+import com.singlestore.fivetran.destination.connector.warning_util.WarningHandler;
+import fivetran_sdk.v2.Table;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process cache of table metadata loaded by {@link JDBCUtil#getTable}.
+ * <p>
+ * Entries are keyed by (configuration fingerprint, database, table), expire after a TTL and are
+ * evicted in LRU order when the cache is full. RPCs that change the schema of a table must call
+ * {@link #invalidate} for it.
+ * <p>
+ * In prefetch mode, the first miss for a database loads metadata of all tables in that database
+ * with one query, so describing sibling tables is served from memory.
+ */
+public class TableMetadataCache {
+    private static final TableMetadataCache INSTANCE = new TableMetadataCache();
+
+    private volatile long ttlMillis = TimeUnit.MINUTES.toMillis(5);
+    private volatile int maxSize = 10000;
+    private volatile boolean prefetch = false;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Incremented on every invalidation, guarded by entries
+    private long version = 0;
+    // Time when each database was prefetched, guarded by entries
+    private final Map<Key, Long> prefetchedDatabases = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder prefetchedTables = new LongAdder();
+
+    public static TableMetadataCache getInstance() {
+        return INSTANCE;
+    }
+
+    TableMetadataCache() {
+    }
+
+    /**
+     * Changes the cache limits. TTL equal to 0 disables the cache.
+     */
+    public void configure(long ttlMillis, int maxSize) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("Metadata cache TTL must not be negative");
+        }
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Metadata cache size must be positive");
+        }
+
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        synchronized (entries) {
+            evictOverflow();
+        }
+    }
+
+    /**
+     * Enables loading of all tables of a database on the first cache miss for it.
+     */
+    public void setPrefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    public Table getTable(Connection conn, SingleStoreConfiguration conf, String database,
+                          String table, String originalTableName, WarningHandler warningHandler)
+            throws Exception {
+        Key key = new Key(conf.fingerprint(), database, table);
+        long now = System.currentTimeMillis();
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.loadedAt < ttlMillis) {
+                    hits.increment();
+                    return entry.table.toBuilder().setName(originalTableName).build();
+                }
+                entries.remove(key);
+            }
+        }
+
+        misses.increment();
+        if (prefetch && ttlMillis > 0 && startPrefetch(conf.fingerprint(), database, now)) {
+            Table t = prefetch(conn, conf.fingerprint(), database, table, now);
+            if (t != null) {
+                return t.toBuilder().setName(originalTableName).build();
+            }
+        }
+
+        long version = currentVersion();
+        Table t = JDBCUtil.getTable(conn, database, table, originalTableName, warningHandler);
+        put(key, t, now, version);
+        return t;
+    }
+
+    /**
+     * Returns true if the database wasn't prefetched within the TTL and marks it as prefetched.
+     */
+    private boolean startPrefetch(String fingerprint, String database, long now) {
+        Key key = new Key(fingerprint, database, null);
+        synchronized (entries) {
+            Long prefetchedAt = prefetchedDatabases.get(key);
+            if (prefetchedAt != null && now - prefetchedAt < ttlMillis) {
+                return false;
+            }
+
+            prefetchedDatabases.put(key, now);
+            return true;
+        }
+    }
+
+    /**
+     * Loads all tables of the database into the cache and returns the requested one, or null if
+     * it wasn't found.
+     */
+    private Table prefetch(Connection conn, String fingerprint, String database, String table,
+                           long now) throws Exception {
+        long version = currentVersion();
+        Map<String, Table> tables;
+        try {
+            tables = TableMetadataLoader.loadTables(conn, database, null);
+        } catch (Exception e) {
+            synchronized (entries) {
+                prefetchedDatabases.remove(new Key(fingerprint, database, null));
+            }
+            throw e;
+        }
+
+        prefetchedTables.add(tables.size());
+        for (Map.Entry<String, Table> t : tables.entrySet()) {
+            put(new Key(fingerprint, database, t.getKey()), t.getValue(), now, version);
+        }
+
+        return tables.get(table);
+    }
+
+    private void put(Key key, Table table, long loadedAt, long version) {
+        if (ttlMillis == 0) {
+            return;
+        }
+
+        synchronized (entries) {
+            // Don't store metadata which was loaded concurrently with an invalidation
+            if (version != this.version) {
+                return;
+            }
+
+            entries.put(key, new Entry(table, loadedAt));
+            evictOverflow();
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private long currentVersion() {
+        synchronized (entries) {
+            return version;
+        }
+    }
+
+    /**
+     * Removes cached metadata of the table and makes its cached prepared statements outdated. Must
+     * be called after the schema of the table is changed.
+     */
+    public void invalidate(SingleStoreConfiguration conf, String database, String table) {
+        synchronized (entries) {
+            version++;
+            entries.remove(new Key(conf.fingerprint(), database, table));
+        }
+        invalidations.increment();
+        PreparedStatementCache.schemaChanged(database, table);
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            version++;
+            entries.clear();
+            prefetchedDatabases.clear();
+        }
+        PreparedStatementCache.schemaChangedAll();
+    }
+
+    public long size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public long invalidations() {
+        return invalidations.sum();
+    }
+
+    public long prefetchedTables() {
+        return prefetchedTables.sum();
+    }
+
+    private static class Key {
+        final String fingerprint;
+        final String database;
+        // null for keys of whole databases
+        final String table;
+
+        Key(String fingerprint, String database, String table) {
+            this.fingerprint = fingerprint;
+            this.database = database;
+            this.table = table;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return fingerprint.equals(key.fingerprint) && database.equals(key.database)
+                    && Objects.equals(table, key.table);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fingerprint, database, table);
+        }
+    }
+
+    private static class Entry {
+        final Table table;
+        final long loadedAt;
+
+        Entry(Table table, long loadedAt) {
+            this.table = table;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
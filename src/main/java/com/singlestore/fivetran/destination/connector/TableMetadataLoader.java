@@ -0,0 +1,161 @@
+package com.singlestore.fivetran.destination.connector;
+
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.DataType;
+import fivetran_sdk.v2.DataTypeParams;
+import fivetran_sdk.v2.DecimalParams;
+import fivetran_sdk.v2.Table;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Loads table metadata from information_schema.
+ * <p>
+ * Columns, their types and primary key flags are returned by a single query, instead of the
+ * separate getTables, getPrimaryKeys and getColumns round trips of {@link java.sql.DatabaseMetaData}.
+ */
+public class TableMetadataLoader {
+    private static final String COLUMNS_QUERY = "SELECT c.TABLE_NAME, c.COLUMN_NAME, c.COLUMN_TYPE, "
+            + "c.NUMERIC_PRECISION, c.NUMERIC_SCALE, c.CHARACTER_OCTET_LENGTH, "
+            + "s.INDEX_NAME IS NOT NULL AS IS_PRIMARY_KEY "
+            + "FROM information_schema.COLUMNS c "
+            + "LEFT JOIN information_schema.STATISTICS s "
+            + "ON s.TABLE_SCHEMA = c.TABLE_SCHEMA AND s.TABLE_NAME = c.TABLE_NAME "
+            + "AND s.COLUMN_NAME = c.COLUMN_NAME AND s.INDEX_NAME = 'PRIMARY' "
+            + "WHERE c.TABLE_SCHEMA = ?%s "
+            + "ORDER BY c.TABLE_NAME, c.ORDINAL_POSITION";
+
+    /**
+     * Loads metadata of all tables in the database, or of the single table if it is not null.
+     * Tables are returned with their SingleStore names.
+     */
+    static Map<String, Table> loadTables(Connection conn, String database, String table)
+            throws SQLException {
+        String query = String.format(COLUMNS_QUERY, table == null ? "" : " AND c.TABLE_NAME = ?");
+        Map<String, List<Column>> columns = new LinkedHashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, database);
+            if (table != null) {
+                stmt.setString(2, table);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    columns.computeIfAbsent(rs.getString("TABLE_NAME"), k -> new ArrayList<>())
+                            .add(toColumn(rs));
+                }
+            }
+        }
+
+        Map<String, Table> tables = new LinkedHashMap<>();
+        columns.forEach((name, tableColumns) -> tables.put(name,
+                Table.newBuilder().setName(name).addAllColumns(tableColumns).build()));
+        return tables;
+    }
+
+    /**
+     * Returns metadata of the table or null if it doesn't exist.
+     */
+    static Table loadTable(Connection conn, String database, String table) throws SQLException {
+        Map<String, Table> tables = loadTables(conn, database, table);
+        Table t = tables.get(table);
+        // information_schema comparison can be case-insensitive
+        if (t == null && tables.size() == 1) {
+            t = tables.values().iterator().next();
+        }
+
+        return t;
+    }
+
+    static boolean tableExists(Connection conn, String database, String table) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT 1 FROM information_schema.TABLES WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?")) {
+            stmt.setString(1, database);
+            stmt.setString(2, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    static boolean databaseExists(Connection conn, String database) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT 1 FROM information_schema.SCHEMATA WHERE SCHEMA_NAME = ?")) {
+            stmt.setString(1, database);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static Column toColumn(ResultSet rs) throws SQLException {
+        String typeName = typeName(rs.getString("COLUMN_TYPE"));
+        Column.Builder c = Column.newBuilder()
+                .setName(rs.getString("COLUMN_NAME"))
+                .setType(JDBCUtil.mapDataTypes(typeName))
+                .setPrimaryKey(rs.getBoolean("IS_PRIMARY_KEY"));
+        if (c.getType() == DataType.DECIMAL) {
+            c.setParams(DataTypeParams.newBuilder()
+                    .setDecimal(DecimalParams.newBuilder()
+                            .setScale(rs.getInt("NUMERIC_SCALE"))
+                            .setPrecision(rs.getInt("NUMERIC_PRECISION")).build())
+                    .build());
+        }
+        if (c.getType() == DataType.STRING) {
+            if (typeName.equals("GEOGRAPHYPOINT") || typeName.equals("GEOGRAPHY")) {
+                c.setParams(DataTypeParams.newBuilder()
+                        .setStringByteLength(Integer.MAX_VALUE)
+                        .build());
+            } else {
+                long octetLength = rs.getLong("CHARACTER_OCTET_LENGTH");
+                c.setParams(DataTypeParams.newBuilder()
+                        .setStringByteLength((int) Math.min(octetLength, Integer.MAX_VALUE))
+                        .build());
+            }
+        }
+
+        return c.build();
+    }
+
+    /**
+     * Computes the type name from COLUMN_TYPE the same way as the TYPE_NAME column of
+     * {@link java.sql.DatabaseMetaData#getColumns} is computed by the SingleStore JDBC driver.
+     * For example, 'decimal(10,5)' becomes 'DECIMAL' and 'int(10) unsigned' becomes 'INT UNSIGNED'.
+     */
+    static String typeName(String columnType) {
+        String type = columnType;
+        // Computed columns have a 'PERSISTED <type>' column type
+        int persisted = type.toUpperCase(Locale.ROOT).indexOf("PERSISTED");
+        if (persisted >= 0) {
+            type = type.substring(Math.min(persisted + "PERSISTED ".length(), type.length()));
+        }
+
+        String lower = type.toLowerCase(Locale.ROOT);
+        if (lower.startsWith("tinyint")) {
+            // The connection uses transformedBitIsBoolean
+            return "BOOLEAN";
+        }
+        if (lower.startsWith("bson")) {
+            return "LONGBLOB";
+        }
+        if (lower.startsWith("vector")) {
+            return type.toUpperCase(Locale.ROOT);
+        }
+
+        int open = type.indexOf('(');
+        int close = open < 0 ? -1 : type.indexOf(')', open);
+        if (open >= 0 && close >= 0) {
+            type = type.substring(0, open) + type.substring(close + 1);
+        }
+
+        return type.toUpperCase(Locale.ROOT);
+    }
+}
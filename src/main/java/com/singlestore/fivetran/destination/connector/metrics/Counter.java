@@ -0,0 +1,27 @@
+package com.singlestore.fivetran.destination.connector.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonically increasing count.
+ */
+public class Counter implements Metrics.Metric {
+    private final LongAdder value = new LongAdder();
+
+    public void inc() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    @Override
+    public void write(StringBuilder sb, String name, String labels) {
+        Metrics.writeSample(sb, name, labels, String.valueOf(value.sum()));
+    }
+}
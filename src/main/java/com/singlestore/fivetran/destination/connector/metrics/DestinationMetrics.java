@@ -0,0 +1,28 @@
+package com.singlestore.fivetran.destination.connector.metrics;
+
+/**
+ * Metrics updated by writers of the destination.
+ */
+public final class DestinationMetrics {
+    public static final Metrics.Family<Counter> WRITER_ROWS = Metrics.getInstance().counter(
+            "fivetran_destination_writer_rows_total", "Rows read from batch files", "writer");
+    public static final Metrics.Family<Counter> WRITER_BYTES = Metrics.getInstance().counter(
+            "fivetran_destination_writer_bytes_total",
+            "Bytes of batch files read, before decryption and decompression", "writer");
+    public static final Counter LOAD_DATA_BYTES = Metrics.getInstance().counter(
+            "fivetran_destination_load_data_bytes_total",
+            "Bytes of TSV data streamed to LOAD DATA queries, before compression").labels();
+    public static final Histogram LOAD_DATA_DURATION = Metrics.getInstance().histogram(
+            "fivetran_destination_load_data_duration_seconds",
+            "Time of LOAD DATA queries").labels();
+    public static final Metrics.Family<Histogram> STATEMENT_DURATION =
+            Metrics.getInstance().histogram("fivetran_destination_statement_duration_seconds",
+                    "Time of executing a statement or a batch of statements", "statement");
+    public static final Metrics.Family<Histogram> STAGE_DURATION = Metrics.getInstance().histogram(
+            "fivetran_destination_stage_duration_seconds",
+            "Time spent per file in decoding (decryption and decompression), CSV parsing and TSV transcoding; measured only when metrics are exposed",
+            "stage");
+
+    private DestinationMetrics() {
+    }
+}
@@ -0,0 +1,19 @@
+package com.singlestore.fivetran.destination.connector.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Value computed by a callback on every scrape.
+ */
+class Gauge implements Metrics.Metric {
+    private final DoubleSupplier value;
+
+    Gauge(DoubleSupplier value) {
+        this.value = value;
+    }
+
+    @Override
+    public void write(StringBuilder sb, String name, String labels) {
+        Metrics.writeSample(sb, name, labels, Metrics.formatDouble(value.getAsDouble()));
+    }
+}
@@ -0,0 +1,99 @@
+package com.singlestore.fivetran.destination.connector.metrics;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of durations with log-linear buckets, as in HdrHistogram.
+ * <p>
+ * Every power of two between about 1 microsecond and 68 seconds is split into
+ * {@link #SUB_BUCKETS} buckets of equal width, so the relative error of a bucket bound is at most
+ * 1 / {@link #SUB_BUCKETS}. Durations are recorded in nanoseconds and exposed in seconds.
+ */
+public class Histogram implements Metrics.Metric {
+    static final int SUB_BUCKETS = 8;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int MIN_EXPONENT = 10;
+    private static final int MAX_EXPONENT = 36;
+    // The first bucket holds values below 2^MIN_EXPONENT and the last one values above the range
+    static final int BUCKETS = 2 + (MAX_EXPONENT - MIN_EXPONENT) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+
+    Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    static int bucketIndex(long nanos) {
+        if (nanos < (1L << MIN_EXPONENT)) {
+            return 0;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Exclusive upper bound of the bucket in nanoseconds.
+     */
+    static long upperBound(int index) {
+        if (index == 0) {
+            return 1L << MIN_EXPONENT;
+        }
+
+        int exponent = MIN_EXPONENT + (index - 1) / SUB_BUCKETS;
+        int subBucket = (index - 1) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    public void record(long nanos) {
+        buckets[bucketIndex(Math.max(0, nanos))].increment();
+        sum.add(nanos);
+    }
+
+    /**
+     * Records the time passed since the given {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Formats nanoseconds as exact decimal seconds, so bucket bounds are stable across scrapes.
+     */
+    private static String seconds(long nanos) {
+        return BigDecimal.valueOf(nanos, 9).stripTrailingZeros().toPlainString();
+    }
+
+    @Override
+    public void write(StringBuilder sb, String name, String labels) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            cumulative += buckets[i].sum();
+            Metrics.writeSample(sb, name + "_bucket",
+                    prefix + "le=\"" + seconds(upperBound(i)) + "\"", String.valueOf(cumulative));
+        }
+        cumulative += buckets[BUCKETS - 1].sum();
+        Metrics.writeSample(sb, name + "_bucket", prefix + "le=\"+Inf\"",
+                String.valueOf(cumulative));
+        Metrics.writeSample(sb, name + "_sum", labels, String.valueOf(sum.sum() / 1e9));
+        Metrics.writeSample(sb, name + "_count", labels, String.valueOf(cumulative));
+    }
+}
@@ -0,0 +1,181 @@
+package com.singlestore.fivetran.destination.connector.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Registry of the metrics of the process, exposed in the Prometheus text format by
+ * {@link MetricsServer}.
+ * <p>
+ * Metrics are grouped in families by name. A family has a fixed list of label names and a child
+ * metric for every list of label values. Looking up a child doesn't lock, and updating it only
+ * touches {@link java.util.concurrent.atomic.LongAdder}s, so metrics can be updated on hot paths.
+ * Callers that update a metric per row should still accumulate values locally and add them once
+ * per file or batch.
+ */
+public class Metrics {
+    private static final Metrics INSTANCE = new Metrics();
+
+    private final Map<String, Family<?>> families = new ConcurrentSkipListMap<>();
+    private volatile boolean detailed = false;
+
+    public static Metrics getInstance() {
+        return INSTANCE;
+    }
+
+    Metrics() {
+    }
+
+    /**
+     * Enables metrics which need to measure time per row, such as the time of file processing
+     * stages. They are enabled when the metrics are exposed.
+     */
+    public void setDetailed(boolean detailed) {
+        this.detailed = detailed;
+    }
+
+    public boolean isDetailed() {
+        return detailed;
+    }
+
+    public Family<Counter> counter(String name, String help, String... labelNames) {
+        return register(name, help, "counter", labelNames, labels -> new Counter());
+    }
+
+    public Family<Histogram> histogram(String name, String help, String... labelNames) {
+        return register(name, help, "histogram", labelNames, labels -> new Histogram());
+    }
+
+    /**
+     * Registers a gauge whose value is computed on every scrape.
+     */
+    public void gauge(String name, String help, DoubleSupplier value) {
+        register(name, help, "gauge", new String[0], labels -> new Gauge(value)).labels();
+    }
+
+    /**
+     * Registers a counter whose value is maintained elsewhere and read on every scrape.
+     */
+    public void counterFunction(String name, String help, DoubleSupplier value) {
+        register(name, help, "counter", new String[0], labels -> new Gauge(value)).labels();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Metric> Family<T> register(String name, String help, String type,
+                                                   String[] labelNames,
+                                                   Function<List<String>, T> factory) {
+        Family<?> family = families.computeIfAbsent(name,
+                k -> new Family<>(name, help, type, labelNames, factory));
+        if (!family.type.equals(type) || !Arrays.equals(family.labelNames, labelNames)) {
+            throw new IllegalArgumentException(
+                    String.format("Metric %s is already registered with a different type or labels",
+                            name));
+        }
+
+        return (Family<T>) family;
+    }
+
+    /**
+     * Returns all metrics in the Prometheus text exposition format.
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+        for (Family<?> family : families.values()) {
+            family.write(sb);
+        }
+
+        return sb.toString();
+    }
+
+    interface Metric {
+        void write(StringBuilder sb, String name, String labels);
+    }
+
+    public static class Family<T extends Metric> {
+        final String name;
+        final String help;
+        final String type;
+        final String[] labelNames;
+        private final Function<List<String>, T> factory;
+        private final Map<List<String>, T> children = new ConcurrentHashMap<>();
+
+        Family(String name, String help, String type, String[] labelNames,
+               Function<List<String>, T> factory) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labelNames = labelNames;
+            this.factory = factory;
+        }
+
+        /**
+         * Returns the metric with the given label values, creating it on the first call.
+         */
+        public T labels(String... values) {
+            if (values.length != labelNames.length) {
+                throw new IllegalArgumentException(String.format(
+                        "Metric %s has %d labels, but %d values are given", name,
+                        labelNames.length, values.length));
+            }
+
+            List<String> key = Arrays.asList(values);
+            T child = children.get(key);
+            if (child == null) {
+                child = children.computeIfAbsent(key, factory);
+            }
+            return child;
+        }
+
+        void write(StringBuilder sb) {
+            if (children.isEmpty()) {
+                return;
+            }
+
+            sb.append("# HELP ").append(name).append(' ').append(escapeHelp(help)).append('\n');
+            sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            for (Map.Entry<List<String>, T> child : children.entrySet()) {
+                child.getValue().write(sb, name, formatLabels(labelNames, child.getKey()));
+            }
+        }
+    }
+
+    static String formatLabels(String[] names, List<String> values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            if (i != 0) {
+                sb.append(',');
+            }
+            sb.append(names[i]).append("=\"").append(escapeLabelValue(values.get(i))).append('"');
+        }
+
+        return sb.toString();
+    }
+
+    static void writeSample(StringBuilder sb, String name, String labels, String value) {
+        sb.append(name);
+        if (!labels.isEmpty()) {
+            sb.append('{').append(labels).append('}');
+        }
+        sb.append(' ').append(value).append('\n');
+    }
+
+    static String formatDouble(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return String.valueOf((long) value);
+        }
+        return String.valueOf(value);
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\n", "\\n").replace("\"", "\\\"");
+    }
+}
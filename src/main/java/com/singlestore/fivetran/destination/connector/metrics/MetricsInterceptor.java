@@ -0,0 +1,39 @@
+package com.singlestore.fivetran.destination.connector.metrics;
+
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+/**
+ * Measures the latency of every gRPC method of the destination.
+ */
+public class MetricsInterceptor implements ServerInterceptor {
+    private final Metrics.Family<Histogram> duration;
+    private final Metrics.Family<Counter> calls;
+
+    public MetricsInterceptor(Metrics metrics) {
+        this.duration = metrics.histogram("fivetran_destination_rpc_duration_seconds",
+                "Time spent handling gRPC calls", "method");
+        this.calls = metrics.counter("fivetran_destination_rpc_calls_total",
+                "Number of handled gRPC calls", "method", "code");
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                 Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        String method = call.getMethodDescriptor().getBareMethodName();
+        long start = System.nanoTime();
+        return next.startCall(new ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+                duration.labels(method).recordSince(start);
+                calls.labels(method, status.getCode().name()).inc();
+                super.close(status, trailers);
+            }
+        }, headers);
+    }
+}
@@ -0,0 +1,54 @@
+package com.singlestore.fivetran.destination.connector.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts bytes read from the stream and the time spent reading them, which includes the time of
+ * decryption and decompression done by the wrapped stream. Must be read by one thread at a time.
+ */
+public class TimedInputStream extends FilterInputStream {
+    private final boolean timed;
+    private long count = 0;
+    private long nanos = 0;
+
+    public TimedInputStream(InputStream in, boolean timed) {
+        super(in);
+        this.timed = timed;
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = timed ? System.nanoTime() : 0;
+        int b = in.read();
+        if (timed) {
+            nanos += System.nanoTime() - start;
+        }
+        if (b != -1) {
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        long start = timed ? System.nanoTime() : 0;
+        int n = in.read(b, off, len);
+        if (timed) {
+            nanos += System.nanoTime() - start;
+        }
+        if (n > 0) {
+            count += n;
+        }
+        return n;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+}
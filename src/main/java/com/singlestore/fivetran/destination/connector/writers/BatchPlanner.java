@@ -0,0 +1,393 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import com.google.protobuf.ByteString;
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.FileParams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plans a batch of replace, update and delete files, which are applied in this order, so fewer
+ * rows are sent to the database.
+ * <p>
+ * {@link #plan} reads primary keys of delete and update files before the replace phase. Then
+ * <ul>
+ * <li>replace and update rows whose key is deleted later in the batch are skipped;</li>
+ * <li>updates of a key are merged into the last replace row of that key, and are skipped in the
+ * update phase.</li>
+ * </ul>
+ * Keys are matched by their values as strings. Updates are merged only if all updates and replace
+ * rows of keys which may be equal in the database, see {@link DmlBatcher#rowKey}, have the same
+ * values, so a row is never changed in a different order than the files specify.
+ * <p>
+ * Keys and merged update values are kept on the heap. If their estimated size exceeds the memory
+ * budget, or there are more than {@link #MAX_PLANNED_KEYS} keys, the batch is not planned.
+ */
+public class BatchPlanner {
+    // Limits the memory used by the plan, larger batches are applied as they are
+    public static final int MAX_PLANNED_KEYS = 1000000;
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+    // Rough size of the objects that hold a planned key and each of its merged values
+    private static final int KEY_OVERHEAD_BYTES = 128;
+    private static final int VALUE_OVERHEAD_BYTES = 96;
+    // Positions are formed from the index of the file and the index of the row in the file
+    private static final int ROW_BITS = 40;
+
+    private final List<Column> columns;
+    private final FileParams params;
+    private final Map<String, ByteString> secretKeys;
+    private final List<Column> keyColumns = new ArrayList<>();
+    private final long memoryBudget;
+    private long memoryUsed = 0;
+
+    private final Set<String> deletedKeys = new HashSet<>();
+    private final Map<String, KeyPlan> updatedKeys = new HashMap<>();
+    // Replace files can be loaded by several threads
+    private final AtomicLong skippedReplaceRows = new AtomicLong();
+    private long skippedUpdateRows = 0;
+
+    private static class KeyPlan {
+        final String exactKey;
+        // Merged values of updates of the key
+        final Map<String, String> values = new LinkedHashMap<>();
+        boolean ambiguous = false;
+        String replaceKey;
+        long replacePosition = -1;
+        boolean replaceAmbiguous = false;
+        boolean merged = false;
+
+        KeyPlan(String exactKey) {
+            this.exactKey = exactKey;
+        }
+    }
+
+    private static class Key {
+        final String exact;
+        final String rowKey;
+
+        Key(String exact, String rowKey) {
+            this.exact = exact;
+            this.rowKey = rowKey;
+        }
+    }
+
+    public BatchPlanner(List<Column> columns, FileParams params,
+                        Map<String, ByteString> secretKeys) {
+        this(columns, params, secretKeys, DEFAULT_MEMORY_BUDGET);
+    }
+
+    public BatchPlanner(List<Column> columns, FileParams params,
+                        Map<String, ByteString> secretKeys, long memoryBudget) {
+        this.columns = columns;
+        this.params = params;
+        this.secretKeys = secretKeys;
+        this.memoryBudget = memoryBudget;
+        for (Column c : columns) {
+            if (c.getPrimaryKey()) {
+                keyColumns.add(c);
+            }
+        }
+    }
+
+    /**
+     * Indexes keys of the batch. Returns false if the batch can't be planned, because a file
+     * doesn't contain all primary key columns, the batch has more than
+     * {@link #MAX_PLANNED_KEYS} distinct keys or the plan exceeds the memory budget.
+     */
+    public boolean plan(List<String> replaceFiles, List<String> updateFiles,
+                        List<String> deleteFiles) throws Exception {
+        if (keyColumns.isEmpty()) {
+            return false;
+        }
+
+        FileIndexer deletes = new FileIndexer() {
+            @Override
+            void index(Key key, List<String> header, CsvRecordReader record) {
+                if (deletedKeys.add(key.exact)) {
+                    memoryUsed += KEY_OVERHEAD_BYTES + 2L * key.exact.length();
+                }
+            }
+        };
+        if (!deletes.indexAll(deleteFiles)) {
+            return false;
+        }
+
+        FileIndexer updates = new FileIndexer() {
+            @Override
+            void index(Key key, List<String> header, CsvRecordReader record) {
+                KeyPlan plan = updatedKeys.get(key.rowKey);
+                if (plan == null) {
+                    plan = new KeyPlan(key.exact);
+                    updatedKeys.put(key.rowKey, plan);
+                    memoryUsed += KEY_OVERHEAD_BYTES
+                            + 2L * (key.rowKey.length() + key.exact.length());
+                } else if (!plan.exactKey.equals(key.exact)) {
+                    plan.ambiguous = true;
+                }
+                for (int i = 0; i < Math.min(header.size(), record.fieldCount()); i++) {
+                    String value = record.getString(i);
+                    if (!value.equals(params.getUnmodifiedString())) {
+                        String previous = plan.values.put(header.get(i), value);
+                        memoryUsed += previous == null
+                                ? VALUE_OVERHEAD_BYTES + 2L * value.length()
+                                : 2L * (value.length() - previous.length());
+                    }
+                }
+            }
+        };
+        if (!updates.indexAll(updateFiles)) {
+            return false;
+        }
+
+        if (updatedKeys.isEmpty()) {
+            return true;
+        }
+
+        FileIndexer replaces = new FileIndexer() {
+            @Override
+            void index(Key key, List<String> header, CsvRecordReader record) {
+                KeyPlan plan = updatedKeys.get(key.rowKey);
+                if (plan == null) {
+                    return;
+                }
+
+                if (plan.replaceKey == null) {
+                    plan.replaceKey = key.exact;
+                    memoryUsed += 2L * key.exact.length();
+                } else if (!plan.replaceKey.equals(key.exact)) {
+                    plan.replaceAmbiguous = true;
+                }
+                plan.replacePosition = position(fileIndex, rowIndex);
+            }
+        };
+        return replaces.indexAll(replaceFiles);
+    }
+
+    public long skippedReplaceRows() {
+        return skippedReplaceRows.get();
+    }
+
+    public long skippedUpdateRows() {
+        return skippedUpdateRows;
+    }
+
+    private static long position(long fileIndex, long rowIndex) {
+        return (fileIndex << ROW_BITS) | rowIndex;
+    }
+
+    /**
+     * Returns positions of key columns in the header in the order of table columns, or null if
+     * the header doesn't contain some of them.
+     */
+    private List<Integer> keyPositions(List<String> header) {
+        List<Integer> positions = new ArrayList<>();
+        for (Column c : keyColumns) {
+            int pos = header.indexOf(c.getName());
+            if (pos == -1) {
+                return null;
+            }
+            positions.add(pos);
+        }
+
+        return positions;
+    }
+
+    private Key key(List<String> values) {
+        StringBuilder exact = new StringBuilder();
+        for (String value : values) {
+            exact.append(value.length()).append(':').append(value).append(';');
+        }
+
+        return new Key(exact.toString(), DmlBatcher.rowKey(keyColumns, values,
+                params.getNullString()));
+    }
+
+    private Key key(CsvRecordReader record, List<Integer> positions) {
+        List<String> values = new ArrayList<>(positions.size());
+        for (Integer pos : positions) {
+            values.add(record.getString(pos));
+        }
+
+        return key(values);
+    }
+
+    private Key key(List<String> row, List<Integer> positions) {
+        List<String> values = new ArrayList<>(positions.size());
+        for (Integer pos : positions) {
+            values.add(row.get(pos));
+        }
+
+        return key(values);
+    }
+
+    /**
+     * Reads keys of files. Stops if a file can't be indexed or the number of keys or the memory
+     * used by the plan exceeds the limit.
+     */
+    private abstract class FileIndexer extends Writer {
+        long fileIndex;
+        long rowIndex;
+        boolean failed = false;
+
+        FileIndexer() {
+            super(null, null, null, BatchPlanner.this.columns, BatchPlanner.this.params,
+                    BatchPlanner.this.secretKeys, Integer.MAX_VALUE);
+        }
+
+        abstract void index(Key key, List<String> header, CsvRecordReader record);
+
+        boolean indexAll(List<String> files) throws Exception {
+            for (int i = 0; i < files.size() && !failed; i++) {
+                fileIndex = i;
+                rowIndex = 0;
+                write(files.get(i));
+            }
+
+            return !failed;
+        }
+
+        @Override
+        public void write(String file, InputStream is) throws Exception {
+            CsvRecordReader reader = new CsvRecordReader(decode(file, is));
+            if (!reader.next()) {
+                // finish if file is empty
+                return;
+            }
+
+            List<String> header = new ArrayList<>();
+            for (int i = 0; i < reader.fieldCount(); i++) {
+                header.add(reader.getString(i));
+            }
+            List<Integer> positions = keyPositions(header);
+            if (positions == null) {
+                failed = true;
+                return;
+            }
+
+            while (!failed && reader.next()) {
+                index(key(reader, positions), header, reader);
+                rowIndex++;
+                if (deletedKeys.size() + updatedKeys.size() > MAX_PLANNED_KEYS
+                        || memoryUsed > memoryBudget) {
+                    failed = true;
+                }
+            }
+        }
+
+        @Override
+        public void setHeader(List<String> header) {
+        }
+
+        @Override
+        public void writeRow(List<String> row) {
+        }
+
+        @Override
+        public void commit() {
+        }
+    }
+
+    /**
+     * Returns a filter for the replace file with the given index, which skips deleted rows and
+     * merges updates into replace rows.
+     */
+    public LoadDataWriter.RowFilter replaceFilter(int fileIndex) {
+        return new LoadDataWriter.RowFilter() {
+            List<String> header = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            long rowIndex = 0;
+            // Plan of the accepted record if updates are merged into it
+            KeyPlan mergePlan;
+
+            @Override
+            public void setHeader(List<String> header) {
+                this.header = header;
+                this.positions = keyPositions(header);
+            }
+
+            @Override
+            public boolean accept(CsvRecordReader record) {
+                long position = position(fileIndex, rowIndex++);
+                mergePlan = null;
+                if (positions == null) {
+                    return true;
+                }
+
+                Key key = key(record, positions);
+                if (deletedKeys.contains(key.exact)) {
+                    skippedReplaceRows.incrementAndGet();
+                    return false;
+                }
+
+                KeyPlan plan = updatedKeys.get(key.rowKey);
+                if (plan != null && !plan.ambiguous && !plan.replaceAmbiguous
+                        && plan.exactKey.equals(key.exact) && plan.replacePosition == position
+                        && header.containsAll(plan.values.keySet())) {
+                    mergePlan = plan;
+                }
+                return true;
+            }
+
+            @Override
+            public List<String> replacement(CsvRecordReader record) {
+                if (mergePlan == null) {
+                    return null;
+                }
+
+                List<String> row = new ArrayList<>();
+                for (int i = 0; i < record.fieldCount(); i++) {
+                    String value = mergePlan.values.get(header.get(i));
+                    row.add(value == null ? record.getString(i) : value);
+                }
+                mergePlan.merged = true;
+                return row;
+            }
+        };
+    }
+
+    /**
+     * Returns a writer which passes to the given writer only update rows that are neither merged
+     * into replace rows nor deleted later in the batch. Must be used after the replace phase.
+     */
+    public Writer updateWriter(Writer writer) {
+        return new Writer(null, null, null, columns, params, secretKeys, writer.batchSize) {
+            List<Integer> positions;
+
+            @Override
+            public void setHeader(List<String> header) throws SQLException, IOException {
+                positions = keyPositions(header);
+                writer.setHeader(header);
+            }
+
+            @Override
+            public void writeRow(List<String> row) throws Exception {
+                if (positions != null) {
+                    Key key = key(row, positions);
+                    KeyPlan plan = updatedKeys.get(key.rowKey);
+                    if (deletedKeys.contains(key.exact) || (plan != null && plan.merged)) {
+                        skippedUpdateRows++;
+                        return;
+                    }
+                }
+
+                writer.writeRow(row);
+            }
+
+            @Override
+            public void commit() throws InterruptedException, IOException, SQLException {
+                writer.commit();
+            }
+        };
+    }
+}
@@ -0,0 +1,198 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streaming CSV parser which works on bytes.
+ * <p>
+ * Fields of the current record are stored in a reusable buffer, so parsing doesn't allocate
+ * per value. Parsing follows the way the files were read with OpenCSV: fields are separated by
+ * ',', quoted with '"', a doubled quote inside of a quoted field is a literal quote, and there is
+ * no escape character. Line breaks inside of quoted fields are normalized to '\n', and an empty
+ * line is a record with a single empty field.
+ */
+public class CsvRecordReader {
+    private static final int BUFFER_SIZE = 65536;
+
+    private final InputStream in;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos = 0;
+    private int limit = 0;
+
+    private byte[] data = new byte[8192];
+    private int dataLength = 0;
+    // fieldEnds[i] is the end of field i in data, field i starts at fieldEnds[i - 1]
+    private int[] fieldEnds = new int[64];
+    private int fieldCount = 0;
+    private long recordNumber = 0;
+
+    public CsvRecordReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next record. Returns false if the end of the stream is reached.
+     */
+    public boolean next() throws IOException {
+        dataLength = 0;
+        fieldCount = 0;
+
+        if (!ensureAvailable()) {
+            return false;
+        }
+
+        recordNumber++;
+        while (true) {
+            if (ensureAvailable() && buf[pos] == '"') {
+                pos++;
+                readQuoted();
+            }
+            // Characters after the closing quote are appended to the field
+            boolean recordEnd = readUnquoted();
+            endField();
+
+            if (recordEnd) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reads the rest of the field after the opening quote, up to and including the closing quote.
+     */
+    private void readQuoted() throws IOException {
+        while (true) {
+            if (!ensureAvailable()) {
+                throw new IOException(String.format(
+                        "Unterminated quoted field at the end of CSV record %d", recordNumber));
+            }
+
+            int start = pos;
+            int end = limit;
+            byte[] b = buf;
+            int i = start;
+            while (i < end && b[i] != '"' && b[i] != '\r') {
+                i++;
+            }
+            append(b, start, i - start);
+            pos = i;
+
+            if (i == end) {
+                continue;
+            }
+
+            pos++;
+            if (b[i] == '\r') {
+                // Line breaks are normalized to '\n' like BufferedReader.readLine does
+                appendByte((byte) '\n');
+                if (ensureAvailable() && buf[pos] == '\n') {
+                    pos++;
+                }
+            } else if (ensureAvailable() && buf[pos] == '"') {
+                // Escaped quote
+                appendByte((byte) '"');
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads unquoted characters up to the end of the field. Returns true if the record ends.
+     */
+    private boolean readUnquoted() throws IOException {
+        while (true) {
+            if (!ensureAvailable()) {
+                return true;
+            }
+
+            int start = pos;
+            int end = limit;
+            byte[] b = buf;
+            int i = start;
+            while (i < end && b[i] != ',' && b[i] != '\n' && b[i] != '\r') {
+                i++;
+            }
+            append(b, start, i - start);
+            pos = i;
+
+            if (i == end) {
+                continue;
+            }
+
+            pos++;
+            if (b[i] == ',') {
+                return false;
+            }
+            if (b[i] == '\r' && ensureAvailable() && buf[pos] == '\n') {
+                pos++;
+            }
+            return true;
+        }
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        while (pos == limit) {
+            int n = in.read(buf, 0, buf.length);
+            if (n == -1) {
+                return false;
+            }
+            pos = 0;
+            limit = n;
+        }
+        return true;
+    }
+
+    private void append(byte[] b, int off, int len) {
+        if (len == 0) {
+            return;
+        }
+        if (dataLength + len > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, dataLength + len));
+        }
+        System.arraycopy(b, off, data, dataLength, len);
+        dataLength += len;
+    }
+
+    private void appendByte(byte b) {
+        if (dataLength == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[dataLength++] = b;
+    }
+
+    private void endField() {
+        if (fieldCount == fieldEnds.length) {
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldEnds.length * 2);
+        }
+        fieldEnds[fieldCount++] = dataLength;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Buffer which holds values of all fields of the current record. It is reused by the next call
+     * of {@link #next()}.
+     */
+    public byte[] data() {
+        return data;
+    }
+
+    public int fieldStart(int i) {
+        return i == 0 ? 0 : fieldEnds[i - 1];
+    }
+
+    public int fieldEnd(int i) {
+        return fieldEnds[i];
+    }
+
+    public String getString(int i) {
+        return new String(data, fieldStart(i), fieldEnd(i) - fieldStart(i), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,195 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import fivetran_sdk.v2.DataType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Converts CSV records to the TSV format expected by LOAD DATA, working directly on bytes.
+ * <p>
+ * Produces the same output as {@link LoadDataWriter#writeRow}: booleans are rewritten to 1/0,
+ * datetimes are formatted by the rules of {@link com.singlestore.fivetran.destination.connector.JDBCUtil#formatISODateTime},
+ * and backslashes, tabs and newlines are escaped. Rows are accumulated in a reusable buffer that
+ * is written to the output stream in large chunks.
+ */
+public class CsvToTsvTranscoder {
+    private static final int FLUSH_THRESHOLD = 65536;
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+
+    private final DataType[] types;
+    private final byte[] nullString;
+
+    private byte[] out = new byte[FLUSH_THRESHOLD * 2];
+    private int outLength = 0;
+
+    public CsvToTsvTranscoder(List<DataType> types, String nullString) {
+        this.types = types.toArray(new DataType[0]);
+        this.nullString = nullString.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends the current record of the reader. Data is written to the stream when enough of it
+     * is accumulated.
+     */
+    public void append(CsvRecordReader record, OutputStream stream) throws IOException {
+        int fieldCount = record.fieldCount();
+        if (fieldCount > types.length) {
+            throw new IOException(String.format("Row has %d values, but the header has %d columns",
+                    fieldCount, types.length));
+        }
+
+        byte[] data = record.data();
+        for (int i = 0; i < fieldCount; i++) {
+            int start = record.fieldStart(i);
+            int end = record.fieldEnd(i);
+
+            DataType type = types[i];
+            if (type == DataType.BOOLEAN && equalsIgnoreCase(data, start, end, TRUE)) {
+                appendByte((byte) '1');
+            } else if (type == DataType.BOOLEAN && equalsIgnoreCase(data, start, end, FALSE)) {
+                appendByte((byte) '0');
+            } else if ((type == DataType.NAIVE_DATETIME || type == DataType.UTC_DATETIME)
+                    && !equals(data, start, end, nullString)) {
+                appendDateTime(data, start, end);
+            } else {
+                appendEscaped(data, start, end);
+            }
+
+            appendByte(i != fieldCount - 1 ? (byte) '\t' : (byte) '\n');
+        }
+
+        if (outLength >= FLUSH_THRESHOLD) {
+            flush(stream);
+        }
+    }
+
+    public void flush(OutputStream stream) throws IOException {
+        if (outLength > 0) {
+            stream.write(out, 0, outLength);
+            outLength = 0;
+        }
+    }
+
+    private void appendEscaped(byte[] data, int start, int end) {
+        ensureCapacity(2 * (end - start));
+        byte[] o = out;
+        int len = outLength;
+        for (int i = start; i < end; i++) {
+            byte b = data[i];
+            if (b == '\\') {
+                o[len++] = '\\';
+                o[len++] = '\\';
+            } else if (b == '\n') {
+                o[len++] = '\\';
+                o[len++] = 'n';
+            } else if (b == '\t') {
+                o[len++] = '\\';
+                o[len++] = 't';
+            } else {
+                o[len++] = b;
+            }
+        }
+        outLength = len;
+    }
+
+    /**
+     * Replaces 'T' with ' ', removes 'Z' and makes the fractional part exactly 6 characters long.
+     */
+    private void appendDateTime(byte[] data, int start, int end) {
+        // The value is at most 7 bytes longer after formatting, and at most twice longer after escaping
+        ensureCapacity(2 * (end - start) + 7);
+        int valueStart = outLength;
+        int dotPos = -1;
+        for (int i = start; i < end; i++) {
+            byte b = data[i];
+            if (b == 'Z') {
+                continue;
+            }
+            if (b == 'T') {
+                b = ' ';
+            }
+            if (b == '.' && dotPos == -1) {
+                dotPos = outLength;
+            }
+            out[outLength++] = b;
+        }
+
+        if (dotPos == -1) {
+            out[outLength++] = '.';
+            for (int i = 0; i < 6; i++) {
+                out[outLength++] = '0';
+            }
+        } else {
+            int digitsAfterDot = outLength - dotPos - 1;
+            if (digitsAfterDot >= 6) {
+                outLength = dotPos + 7;
+            } else {
+                for (int i = digitsAfterDot; i < 6; i++) {
+                    out[outLength++] = '0';
+                }
+            }
+        }
+
+        escapeInPlace(valueStart);
+    }
+
+    /**
+     * Escapes bytes of the value that starts at the given position of the output buffer. This is
+     * rarely needed, so the value is copied only if it contains special characters.
+     */
+    private void escapeInPlace(int valueStart) {
+        for (int i = valueStart; i < outLength; i++) {
+            byte b = out[i];
+            if (b == '\\' || b == '\n' || b == '\t') {
+                byte[] value = Arrays.copyOfRange(out, valueStart, outLength);
+                outLength = valueStart;
+                appendEscaped(value, 0, value.length);
+                return;
+            }
+        }
+    }
+
+    private void appendByte(byte b) {
+        ensureCapacity(1);
+        out[outLength++] = b;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (outLength + additional > out.length) {
+            out = Arrays.copyOf(out, Math.max(out.length * 2, outLength + additional));
+        }
+    }
+
+    private static boolean equals(byte[] data, int start, int end, byte[] value) {
+        if (end - start != value.length) {
+            return false;
+        }
+        for (int i = 0; i < value.length; i++) {
+            if (data[start + i] != value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(byte[] data, int start, int end, byte[] lowerCaseValue) {
+        if (end - start != lowerCaseValue.length) {
+            return false;
+        }
+        for (int i = 0; i < lowerCaseValue.length; i++) {
+            byte b = data[start + i];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != lowerCaseValue[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -8,7 +8,6 @@ import fivetran_sdk.v2.FileParams;
 
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -19,8 +18,12 @@ public class DeleteHistoryWriter extends Writer {
 
     public DeleteHistoryWriter(Connection conn, String database, String table, List<Column> columns, FileParams params, Map<String, ByteString> secretKeys, Integer batchSize) {
         super(conn, database, table, columns, params, secretKeys, batchSize);
+        this.batcher = new DmlBatcher(conn, database, table, params.getNullString(), batchSize);
     }
 
+    DmlBatcher batcher;
+    String shapeId;
+
     List<Column> headerColumns = new ArrayList<>();
     Integer fivetranEndPos;
 
@@ -31,6 +34,8 @@ public class DeleteHistoryWriter extends Writer {
             nameToColumn.put(column.getName(), column);
         }
 
+        headerColumns = new ArrayList<>();
+        fivetranEndPos = null;
         for (int i = 0; i < header.size(); i++) {
             String name = header.get(i);
             if (name.equals("_fivetran_end")) {
@@ -42,43 +47,49 @@ public class DeleteHistoryWriter extends Writer {
         if (fivetranEndPos == null) {
             throw new IllegalArgumentException("File doesn't contain _fivetran_end column");
         }
+
+        shapeId = DmlBatcher.shapeId(columns, header);
     }
 
-    @Override
-    public void writeRow(List<String> row) throws Exception {
+    private String generateUpdateQuery() {
         StringBuilder updateQuery = new StringBuilder(String.format(
                 "UPDATE %s SET `_fivetran_active` = FALSE, `_fivetran_end` = ? WHERE `_fivetran_active` = TRUE ",
                 JDBCUtil.escapeTable(database, table)));
 
-        for (int i = 0; i < row.size(); i++) {
-            Column c = headerColumns.get(i);
+        for (Column c : headerColumns) {
             if (c != null && c.getPrimaryKey() && !c.getName().equals("_fivetran_start")) {
                 updateQuery.append(
                         String.format("AND %s = ? ", JDBCUtil.escapeIdentifier(c.getName())));
             }
         }
 
-        int paramIndex = 0;
-        try (PreparedStatement stmt = conn.prepareStatement(updateQuery.toString())) {
-            paramIndex++;
-            JDBCUtil.setParameter(stmt, paramIndex, DataType.UTC_DATETIME, row.get(fivetranEndPos), params.getNullString());
+        return updateQuery.toString();
+    }
 
-            for (int i = 0; i < row.size(); i++) {
-                String value = row.get(i);
-                Column c = headerColumns.get(i);
-                if (c == null || !c.getPrimaryKey() || c.getName().equals("_fivetran_start")) {
-                    continue;
-                }
+    @Override
+    public void writeRow(List<String> row) throws Exception {
+        List<DataType> types = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        types.add(DataType.UTC_DATETIME);
+        values.add(row.get(fivetranEndPos));
 
-                paramIndex++;
-                JDBCUtil.setParameter(stmt, paramIndex, c.getType(), value, params.getNullString());
+        for (int i = 0; i < row.size(); i++) {
+            String value = row.get(i);
+            Column c = headerColumns.get(i);
+            if (c == null || !c.getPrimaryKey() || c.getName().equals("_fivetran_start")) {
+                continue;
             }
 
-            stmt.execute();
+            types.add(c.getType());
+            values.add(value);
         }
+
+        batcher.add("deleteHistory:" + shapeId, this::generateUpdateQuery, types, values,
+                DmlBatcher.rowKey(headerColumns, row, params.getNullString()));
     }
 
     @Override
-    public void commit() {
+    public void commit() throws SQLException {
+        batcher.flush();
     }
 }
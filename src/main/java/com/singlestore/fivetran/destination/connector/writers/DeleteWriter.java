@@ -2,24 +2,55 @@ package com.singlestore.fivetran.destination.connector.writers;
 
 import com.google.protobuf.ByteString;
 import com.singlestore.fivetran.destination.connector.JDBCUtil;
+import com.singlestore.fivetran.destination.connector.metrics.DestinationMetrics;
+import com.singlestore.fivetran.destination.connector.warning_util.WarningHandler;
 import fivetran_sdk.v2.Column;
 import fivetran_sdk.v2.FileParams;
 
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Deletes rows by primary key. The form of the query depends on the number of rows in a batch:
+ * <ul>
+ * <li>small batches use {@code WHERE (pk1 = ? AND pk2 = ?) OR ...}</li>
+ * <li>mid-size batches use {@code WHERE (pk1, pk2) IN ((?, ?), ...)}, which is much cheaper to
+ * parse and plan</li>
+ * <li>large batches are loaded with LOAD DATA into a temporary key table and deleted with a single
+ * {@code DELETE ... JOIN}, so the query doesn't grow with the batch</li>
+ * </ul>
+ */
 public class DeleteWriter extends Writer {
+    public static final int TUPLE_IN_MIN_ROWS = 32;
+    public static final int STAGING_MIN_ROWS = 2000;
+    // Inline strategies bind a parameter per key value; bigger batches go to the key table
+    public static final int MAX_INLINE_PARAMETERS = 20000;
+
+    public enum Strategy {
+        OR, TUPLE_IN, STAGING
+    }
+
+    WarningHandler warningHandler;
     List<Integer> pkIds = new ArrayList<>();
     List<Column> pkColumns = new ArrayList<>();
     List<List<String>> rows = new ArrayList<>();
 
     public DeleteWriter(Connection conn, String database, String table, List<Column> columns,
             FileParams params, Map<String, ByteString> secretKeys, Integer batchSize) {
+        this(conn, database, table, columns, params, secretKeys, batchSize, new WarningHandler());
+    }
+
+    public DeleteWriter(Connection conn, String database, String table, List<Column> columns,
+            FileParams params, Map<String, ByteString> secretKeys, Integer batchSize,
+            WarningHandler warningHandler) {
         super(conn, database, table, columns, params, secretKeys, batchSize);
+        this.warningHandler = warningHandler;
     }
 
     @Override
@@ -31,6 +62,8 @@ public class DeleteWriter extends Writer {
             }
         }
 
+        pkIds = new ArrayList<>();
+        pkColumns = new ArrayList<>();
         for (int i = 0; i < header.size(); i++) {
             String columnName = header.get(i);
             if (nameToColumn.containsKey(columnName)) {
@@ -45,12 +78,43 @@ public class DeleteWriter extends Writer {
         rows.add(row);
     }
 
+    public static Strategy chooseStrategy(int rows, int keyColumns) {
+        if (rows >= STAGING_MIN_ROWS || (long) rows * keyColumns > MAX_INLINE_PARAMETERS) {
+            return Strategy.STAGING;
+        } else if (rows >= TUPLE_IN_MIN_ROWS) {
+            return Strategy.TUPLE_IN;
+        }
+        return Strategy.OR;
+    }
+
     @Override
-    public void commit() throws SQLException {
+    public void commit() throws InterruptedException, IOException, SQLException {
         if (rows.isEmpty()) {
             return;
         }
 
+        Strategy strategy = chooseStrategy(rows.size(), pkColumns.size());
+        long start = System.nanoTime();
+        try {
+            switch (strategy) {
+                case STAGING:
+                    deleteWithKeyTable();
+                    break;
+                case TUPLE_IN:
+                    deleteInline(generateTupleInQuery());
+                    break;
+                default:
+                    deleteInline(generateOrQuery());
+            }
+        } finally {
+            rows.clear();
+            DestinationMetrics.STATEMENT_DURATION
+                    .labels("delete_" + strategy.name().toLowerCase(Locale.ROOT))
+                    .recordSince(start);
+        }
+    }
+
+    private String generateOrQuery() {
         StringBuilder query = new StringBuilder(
                 String.format("DELETE FROM %s WHERE ", JDBCUtil.escapeTable(database, table)));
 
@@ -68,7 +132,31 @@ public class DeleteWriter extends Writer {
             }
         }
 
-        try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+        return query.toString();
+    }
+
+    private String generateTupleInQuery() {
+        String keyColumns = pkColumns.stream()
+                .map(column -> JDBCUtil.escapeIdentifier(column.getName()))
+                .collect(Collectors.joining(", "));
+        String tuple = pkColumns.stream().map(column -> "?")
+                .collect(Collectors.joining(", ", "(", ")"));
+
+        StringBuilder query = new StringBuilder(String.format("DELETE FROM %s WHERE (%s) IN (",
+                JDBCUtil.escapeTable(database, table), keyColumns));
+        for (int i = 0; i < rows.size(); i++) {
+            if (i != 0) {
+                query.append(", ");
+            }
+            query.append(tuple);
+        }
+        query.append(")");
+
+        return query.toString();
+    }
+
+    private void deleteInline(String query) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
             for (int i = 0; i < rows.size(); i++) {
                 List<String> row = rows.get(i);
                 for (int j = 0; j < pkIds.size(); j++) {
@@ -81,7 +169,62 @@ public class DeleteWriter extends Writer {
 
             stmt.execute();
         }
+    }
+
+    private String keyColumnDefinitions() {
+        List<String> definitions = new ArrayList<>();
+        for (Column c : pkColumns) {
+            definitions.add(StagingUpdateWriter.stagingColumnDefinition(c));
+        }
+
+        return String.join(", ", definitions);
+    }
+
+    /**
+     * Loads keys of the batch into a temporary table and deletes the matching rows with one query.
+     * The key table lives as long as the connection and is reused by the following batches.
+     */
+    private void deleteWithKeyTable() throws InterruptedException, IOException, SQLException {
+        String keyColumnDefinitions = keyColumnDefinitions();
+        String keyTable = StagingUpdateWriter.stagingTableName("__fivetran_delete_", database,
+                table, keyColumnDefinitions);
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("CREATE ROWSTORE TEMPORARY TABLE IF NOT EXISTS %s (%s)",
+                    JDBCUtil.escapeTable(database, keyTable), keyColumnDefinitions));
+            stmt.execute(String.format("TRUNCATE TABLE %s",
+                    JDBCUtil.escapeTable(database, keyTable)));
+        }
 
-        rows.clear();
+        LoadDataWriter<?> loader = new LoadDataWriter<>(conn, database, keyTable, pkColumns,
+                params, secretKeys, batchSize, warningHandler);
+        loader.setHeader(pkColumns.stream().map(Column::getName).collect(Collectors.toList()));
+        try {
+            for (List<String> row : rows) {
+                List<String> key = new ArrayList<>();
+                for (Integer pkId : pkIds) {
+                    key.add(row.get(pkId));
+                }
+                loader.writeRow(key);
+            }
+        } catch (InterruptedException | IOException | SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to load keys of deleted rows", e);
+        }
+        loader.commit();
+
+        String joinConditions = pkColumns.stream()
+                .map(column -> {
+                    String name = JDBCUtil.escapeIdentifier(column.getName());
+                    return String.format("t.%s = k.%s", name, name);
+                })
+                .collect(Collectors.joining(" AND "));
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("DELETE t FROM %s AS t JOIN %s AS k ON %s",
+                    JDBCUtil.escapeTable(database, table),
+                    JDBCUtil.escapeTable(database, keyTable), joinConditions));
+        }
     }
 }
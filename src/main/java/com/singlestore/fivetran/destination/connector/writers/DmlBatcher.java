@@ -0,0 +1,301 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import com.singlestore.fivetran.destination.connector.JDBCUtil;
+import com.singlestore.fivetran.destination.connector.PreparedStatementCache;
+import com.singlestore.fivetran.destination.connector.metrics.DestinationMetrics;
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.DataType;
+
+import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Collects row-level DML statements and executes them as JDBC batches.
+ * <p>
+ * Statements with the same shape are grouped and each group is sent with a single
+ * {@link PreparedStatement#executeBatch()}. A shape identifies the SQL text of a statement, which
+ * is built only if the statement isn't in the {@link PreparedStatementCache} of the connection.
+ * Groups are executed in the order they were created, so statements can be reordered only
+ * relative to statements of other rows. Every statement has the
+ * key of the row it changes; if a statement would be executed before an earlier statement with the
+ * same key, a new group is started instead. Keys are compared after a normalization which is
+ * coarser than the database comparison, so rows that may be equal in the database are never
+ * reordered.
+ * <p>
+ * Pending statements are executed when their number reaches the batch size or their parameters
+ * exceed {@link #MAX_BATCH_BYTES}, and on {@link #flush()}.
+ */
+public class DmlBatcher {
+    public static final long MAX_BATCH_BYTES = 4 * 1024 * 1024;
+    // Approximate size of a statement in a batch without its parameters
+    private static final int STATEMENT_OVERHEAD_BYTES = 16;
+    private static final Map<String, String> shapeIds = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextShapeId = new AtomicInteger();
+
+    private final Connection conn;
+    private final String database;
+    private final String table;
+    private final String nullString;
+    private final int maxStatements;
+    private final long maxBytes;
+    private PreparedStatementCache cache;
+    private boolean cacheResolved = false;
+
+    private final List<Group> groups = new ArrayList<>();
+    private final Map<String, Integer> lastGroupByShape = new HashMap<>();
+    private final Map<String, Integer> lastGroupByKey = new HashMap<>();
+    private int pendingStatements = 0;
+    private long pendingBytes = 0;
+    private int[] updateCounts = new int[0];
+
+    public DmlBatcher(Connection conn, String database, String table, String nullString,
+                      int maxStatements) {
+        this(conn, database, table, nullString, maxStatements, MAX_BATCH_BYTES);
+    }
+
+    public DmlBatcher(Connection conn, String database, String table, String nullString,
+                      int maxStatements, long maxBytes) {
+        this.conn = conn;
+        this.database = database;
+        this.table = table;
+        this.nullString = nullString;
+        this.maxStatements = maxStatements;
+        this.maxBytes = maxBytes;
+    }
+
+    private static class Group {
+        final String shape;
+        final Supplier<String> sql;
+        final List<DataType[]> types = new ArrayList<>();
+        final List<String[]> values = new ArrayList<>();
+        // Position of each statement among statements added since the last flush
+        final List<Integer> positions = new ArrayList<>();
+
+        Group(String shape, Supplier<String> sql) {
+            this.shape = shape;
+            this.sql = sql;
+        }
+    }
+
+    /**
+     * Adds a statement with the given parameters. Statements of the same table with equal shapes
+     * must have the same SQL text, see {@link #shapeId}. The key identifies the rows changed by the
+     * statement, see {@link #rowKey}.
+     */
+    public void add(String shape, Supplier<String> sql, List<DataType> types, List<String> values,
+                    String key) throws SQLException {
+        Integer groupIndex = lastGroupByShape.get(shape);
+        Integer keyGroupIndex = lastGroupByKey.get(key);
+        if (groupIndex == null || (keyGroupIndex != null && keyGroupIndex > groupIndex)) {
+            groups.add(new Group(shape, sql));
+            groupIndex = groups.size() - 1;
+            lastGroupByShape.put(shape, groupIndex);
+        }
+        lastGroupByKey.put(key, groupIndex);
+
+        Group group = groups.get(groupIndex);
+        group.types.add(types.toArray(new DataType[0]));
+        group.values.add(values.toArray(new String[0]));
+        group.positions.add(pendingStatements);
+
+        pendingStatements++;
+        pendingBytes += STATEMENT_OVERHEAD_BYTES;
+        for (String value : values) {
+            pendingBytes += value.length();
+        }
+
+        if (pendingStatements >= maxStatements || pendingBytes >= maxBytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Executes all pending statements.
+     */
+    public void flush() throws SQLException {
+        if (pendingStatements == 0) {
+            return;
+        }
+
+        int[] counts = new int[pendingStatements];
+        try {
+            for (Group group : groups) {
+                executeGroup(group, counts);
+            }
+        } finally {
+            groups.clear();
+            lastGroupByShape.clear();
+            lastGroupByKey.clear();
+            pendingStatements = 0;
+            pendingBytes = 0;
+            updateCounts = counts;
+        }
+    }
+
+    private void executeGroup(Group group, int[] counts) throws SQLException {
+        if (!cacheResolved) {
+            cache = PreparedStatementCache.forConnection(conn);
+            cacheResolved = true;
+        }
+
+        PreparedStatement stmt = cache != null
+                ? cache.prepare(database, table, group.shape, group.sql)
+                : conn.prepareStatement(group.sql.get());
+        try {
+            for (int i = 0; i < group.values.size(); i++) {
+                DataType[] types = group.types.get(i);
+                String[] values = group.values.get(i);
+                for (int j = 0; j < values.length; j++) {
+                    JDBCUtil.setParameter(stmt, j + 1, types[j], values[j], nullString);
+                }
+                stmt.addBatch();
+            }
+
+            long start = System.nanoTime();
+            int[] groupCounts = stmt.executeBatch();
+            DestinationMetrics.STATEMENT_DURATION.labels(statementKind(group.shape))
+                    .recordSince(start);
+            for (int i = 0; i < groupCounts.length; i++) {
+                counts[group.positions.get(i)] = groupCounts[i];
+            }
+        } catch (BatchUpdateException e) {
+            int[] groupCounts = e.getUpdateCounts();
+            int failed = groupCounts == null ? 0 : groupCounts.length;
+            for (int i = 0; groupCounts != null && i < groupCounts.length; i++) {
+                if (groupCounts[i] == Statement.EXECUTE_FAILED) {
+                    failed = i;
+                    break;
+                }
+            }
+            int position = group.positions.get(Math.min(failed, group.positions.size() - 1));
+
+            throw new SQLException(String.format("Failed to execute statement %d of the batch: %s",
+                    position + 1, e.getMessage()), e.getSQLState(), e.getErrorCode(), e);
+        } finally {
+            if (cache == null) {
+                stmt.close();
+            } else {
+                // The statement stays in the cache, so it must not keep parameters of this batch
+                stmt.clearBatch();
+                stmt.clearParameters();
+            }
+        }
+    }
+
+    /**
+     * Returns the kind of statement which prefixes its shape, so metrics don't get a label per
+     * table.
+     */
+    static String statementKind(String shape) {
+        int end = shape.indexOf(':');
+        return end == -1 ? shape : shape.substring(0, end);
+    }
+
+    /**
+     * Update counts of the statements executed by the last flush, in the order they were added.
+     */
+    public int[] getUpdateCounts() {
+        return Arrays.copyOf(updateCounts, updateCounts.length);
+    }
+
+    /**
+     * Returns a short identifier of the table columns and the file header. Writers combine it with
+     * the kind of the statement and the mask of its columns to form a shape.
+     */
+    public static String shapeId(List<Column> columns, List<String> header) {
+        StringBuilder sb = new StringBuilder();
+        for (Column c : columns) {
+            sb.append(c.getName().length()).append(':').append(c.getName()).append(';');
+        }
+        sb.append('|');
+        for (String name : header) {
+            sb.append(name.length()).append(':').append(name).append(';');
+        }
+
+        return shapeIds.computeIfAbsent(sb.toString(), k -> String.valueOf(nextShapeId.getAndIncrement()));
+    }
+
+    /**
+     * Returns the key of the row formed from values of primary key columns other than
+     * `_fivetran_start`, so all versions of a row in history mode have the same key.
+     */
+    public static String rowKey(List<Column> headerColumns, List<String> row, String nullString) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < row.size(); i++) {
+            Column c = headerColumns.get(i);
+            if (c == null || !c.getPrimaryKey() || c.getName().equals("_fivetran_start")) {
+                continue;
+            }
+
+            String value = keyValue(c, row.get(i), nullString);
+            key.append(value.length()).append(':').append(value).append(';');
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * Returns the value of a key column in the form used by {@link #rowKey}.
+     */
+    static String keyValue(Column c, String value, String nullString) {
+        return value.equals(nullString) ? "\0NULL" : normalizeKeyValue(c.getType(), value);
+    }
+
+    /**
+     * Maps values that can be equal in the database to the same string: numbers are compared by
+     * value, datetimes after formatting, and strings ignoring case, accents and trailing spaces.
+     */
+    private static String normalizeKeyValue(DataType type, String value) {
+        switch (type) {
+            case BOOLEAN:
+                if (value.equalsIgnoreCase("true")) {
+                    return "1";
+                } else if (value.equalsIgnoreCase("false")) {
+                    return "0";
+                }
+                return normalizeNumber(value);
+            case SHORT:
+            case INT:
+            case LONG:
+            case DECIMAL:
+            case FLOAT:
+            case DOUBLE:
+                return normalizeNumber(value);
+            case NAIVE_DATETIME:
+            case UTC_DATETIME:
+                return JDBCUtil.formatISODateTime(value);
+            case BINARY:
+                return value;
+            default:
+                String folded = Normalizer.normalize(value, Normalizer.Form.NFKD)
+                        .replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT);
+                int end = folded.length();
+                while (end > 0 && folded.charAt(end - 1) == ' ') {
+                    end--;
+                }
+                return folded.substring(0, end);
+        }
+    }
+
+    private static String normalizeNumber(String value) {
+        try {
+            return new BigDecimal(value.trim()).stripTrailingZeros().toPlainString();
+        } catch (NumberFormatException e) {
+            return value;
+        }
+    }
+}
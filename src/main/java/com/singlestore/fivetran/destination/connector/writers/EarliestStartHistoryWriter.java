@@ -10,7 +10,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -22,8 +21,12 @@ public class EarliestStartHistoryWriter extends Writer {
 
     public EarliestStartHistoryWriter(Connection conn, String database, String table, List<Column> columns, FileParams params, Map<String, ByteString> secretKeys, Integer batchSize) {
         super(conn, database, table, columns, params, secretKeys, batchSize);
+        this.batcher = new DmlBatcher(conn, database, table, params.getNullString(), batchSize);
     }
 
+    DmlBatcher batcher;
+    String shapeId;
+
     List<Column> headerColumns = new ArrayList<>();
     Integer earliestFivetranStartPos;
 
@@ -34,6 +37,8 @@ public class EarliestStartHistoryWriter extends Writer {
             nameToColumn.put(column.getName(), column);
         }
 
+        headerColumns = new ArrayList<>();
+        earliestFivetranStartPos = null;
         for (int i = 0; i < header.size(); i++) {
             String name = header.get(i);
             if (name.equals("_fivetran_start")) {
@@ -45,14 +50,15 @@ public class EarliestStartHistoryWriter extends Writer {
         if (earliestFivetranStartPos == null) {
             throw new IllegalArgumentException("File doesn't contain _fivetran_start column");
         }
+
+        shapeId = DmlBatcher.shapeId(columns, header);
     }
 
-    public void writeDelete(List<String> row) throws Exception {
+    private String generateDeleteQuery() {
         StringBuilder deleteQuery = new StringBuilder(String.format("DELETE FROM %s WHERE ", JDBCUtil.escapeTable(database, table)));
 
         boolean firstPKColumn = true;
-        for (int i = 0; i < row.size(); i++) {
-            Column c = headerColumns.get(i);
+        for (Column c : headerColumns) {
             if (c != null && c.getPrimaryKey() && !c.getName().equals("_fivetran_start")) {
                 if (firstPKColumn) {
                     deleteQuery.append(
@@ -67,57 +73,64 @@ public class EarliestStartHistoryWriter extends Writer {
 
         deleteQuery.append("AND `_fivetran_start` >= ?");
 
-        int paramIndex = 0;
-        try (PreparedStatement stmt = conn.prepareStatement(deleteQuery.toString())) {
-            for (int i = 0; i < row.size(); i++) {
-                String value = row.get(i);
-                Column c = headerColumns.get(i);
-                if (c == null || !c.getPrimaryKey() || c.getName().equals("_fivetran_start")) {
-                    continue;
-                }
+        return deleteQuery.toString();
+    }
 
-                paramIndex++;
-                JDBCUtil.setParameter(stmt, paramIndex, c.getType(), value, params.getNullString());
+    public void writeDelete(List<String> row) throws Exception {
+        List<DataType> types = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < row.size(); i++) {
+            String value = row.get(i);
+            Column c = headerColumns.get(i);
+            if (c == null || !c.getPrimaryKey() || c.getName().equals("_fivetran_start")) {
+                continue;
             }
 
-            paramIndex++;
-            JDBCUtil.setParameter(stmt, paramIndex, DataType.UTC_DATETIME, row.get(earliestFivetranStartPos), params.getNullString());
-
-            stmt.execute();
+            types.add(c.getType());
+            values.add(value);
         }
+
+        types.add(DataType.UTC_DATETIME);
+        values.add(row.get(earliestFivetranStartPos));
+
+        batcher.add("earliestDelete:" + shapeId, this::generateDeleteQuery, types, values,
+                DmlBatcher.rowKey(headerColumns, row, params.getNullString()));
     }
 
-    public void writeUpdate(List<String> row) throws Exception {
+    private String generateUpdateQuery() {
         StringBuilder updateQuery = new StringBuilder(String.format(
                 "UPDATE %s SET `_fivetran_active` = FALSE, `_fivetran_end` = DATE_SUB(?,  INTERVAL 1 MICROSECOND) WHERE `_fivetran_active` = TRUE ",
                 JDBCUtil.escapeTable(database, table)));
 
-        for (int i = 0; i < row.size(); i++) {
-            Column c = headerColumns.get(i);
+        for (Column c : headerColumns) {
             if (c != null && c.getPrimaryKey() && !c.getName().equals("_fivetran_start")) {
                 updateQuery.append(
                         String.format("AND %s = ? ", JDBCUtil.escapeIdentifier(c.getName())));
             }
         }
 
-        int paramIndex = 0;
-        try (PreparedStatement stmt = conn.prepareStatement(updateQuery.toString())) {
-            paramIndex++;
-            JDBCUtil.setParameter(stmt, paramIndex, DataType.UTC_DATETIME, row.get(earliestFivetranStartPos), params.getNullString());
+        return updateQuery.toString();
+    }
 
-            for (int i = 0; i < row.size(); i++) {
-                String value = row.get(i);
-                Column c = headerColumns.get(i);
-                if (c == null || !c.getPrimaryKey() || c.getName().equals("_fivetran_start")) {
-                    continue;
-                }
+    public void writeUpdate(List<String> row) throws Exception {
+        List<DataType> types = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        types.add(DataType.UTC_DATETIME);
+        values.add(row.get(earliestFivetranStartPos));
 
-                paramIndex++;
-                JDBCUtil.setParameter(stmt, paramIndex, c.getType(), value, params.getNullString());
+        for (int i = 0; i < row.size(); i++) {
+            String value = row.get(i);
+            Column c = headerColumns.get(i);
+            if (c == null || !c.getPrimaryKey() || c.getName().equals("_fivetran_start")) {
+                continue;
             }
 
-            stmt.execute();
+            types.add(c.getType());
+            values.add(value);
         }
+
+        batcher.add("earliestUpdate:" + shapeId, this::generateUpdateQuery, types, values,
+                DmlBatcher.rowKey(headerColumns, row, params.getNullString()));
     }
 
     @Override
@@ -128,6 +141,6 @@ public class EarliestStartHistoryWriter extends Writer {
 
     @Override
     public void commit() throws InterruptedException, IOException, SQLException {
-
+        batcher.flush();
     }
 }
@@ -0,0 +1,136 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+/**
+ * Codec used for the data sent by LOAD DATA LOCAL INFILE.
+ * <p>
+ * The server picks the codec by the extension of the file name, so the stream is compressed and
+ * the query is built with the matching extension. Each codec has a minimum server version which is
+ * able to decompress it.
+ */
+public enum LoadDataCompression {
+    NONE("none", "tsv", new int[]{0}),
+    GZIP("gzip", "tsv.gz", new int[]{7, 0}),
+    LZ4("lz4", "tsv.lz4", new int[]{7, 3});
+
+    private final String name;
+    private final String extension;
+    private final int[] minServerVersion;
+
+    LoadDataCompression(String name, String extension, int[] minServerVersion) {
+        this.name = name;
+        this.extension = extension;
+        this.minServerVersion = minServerVersion;
+    }
+
+    public static LoadDataCompression fromName(String name) {
+        for (LoadDataCompression compression : values()) {
+            if (compression.name.equalsIgnoreCase(name)) {
+                return compression;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("Unsupported LOAD DATA compression: %s",
+                name));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * File name used in the LOAD DATA query.
+     */
+    public String fileName() {
+        return String.format("###.%s", extension);
+    }
+
+    /**
+     * Returns the given codec, or the strongest weaker one if the server is too old for it.
+     * Compression is disabled if the server version is unknown.
+     */
+    public static LoadDataCompression forServerVersion(LoadDataCompression requested,
+                                                       String serverVersion) {
+        if (requested == NONE) {
+            return NONE;
+        }
+
+        int[] version = parseVersion(serverVersion);
+        if (version == null) {
+            return NONE;
+        }
+
+        for (int i = requested.ordinal(); i > 0; i--) {
+            LoadDataCompression compression = values()[i];
+            if (compareVersions(version, compression.minServerVersion) >= 0) {
+                return compression;
+            }
+        }
+
+        return NONE;
+    }
+
+    /**
+     * Wraps the stream with the compressor. Closing the returned stream finishes the compressed
+     * data and closes the underlying stream.
+     */
+    public OutputStream wrap(OutputStream out) throws IOException {
+        switch (this) {
+            case GZIP:
+                // The stream is compressed on the fly, so speed is preferred over the ratio
+                return new GZIPOutputStream(out, RingBufferPipe.CHUNK_SIZE) {
+                    {
+                        def.setLevel(Deflater.BEST_SPEED);
+                    }
+                };
+            case LZ4:
+                return new LZ4FrameOutputStream(out);
+            default:
+                return out;
+        }
+    }
+
+    private static int[] parseVersion(String version) {
+        if (version == null) {
+            return null;
+        }
+
+        String[] parts = version.trim().split("[.-]");
+        int[] res = new int[parts.length];
+        int count = 0;
+        for (String part : parts) {
+            try {
+                res[count] = Integer.parseInt(part);
+                count++;
+            } catch (NumberFormatException e) {
+                break;
+            }
+        }
+
+        if (count == 0) {
+            return null;
+        }
+
+        int[] trimmed = new int[count];
+        System.arraycopy(res, 0, trimmed, 0, count);
+        return trimmed;
+    }
+
+    private static int compareVersions(int[] a, int[] b) {
+        for (int i = 0; i < Math.max(a.length, b.length); i++) {
+            int x = i < a.length ? a[i] : 0;
+            int y = i < b.length ? b[i] : 0;
+            if (x != y) {
+                return Integer.compare(x, y);
+            }
+        }
+
+        return 0;
+    }
+}
@@ -2,6 +2,10 @@ package com.singlestore.fivetran.destination.connector.writers;
 
 import com.google.protobuf.ByteString;
 import com.singlestore.fivetran.destination.connector.JDBCUtil;
+import com.singlestore.fivetran.destination.connector.metrics.CountingOutputStream;
+import com.singlestore.fivetran.destination.connector.metrics.DestinationMetrics;
+import com.singlestore.fivetran.destination.connector.metrics.Metrics;
+import com.singlestore.fivetran.destination.connector.metrics.TimedInputStream;
 
 import com.singlestore.fivetran.destination.connector.warning_util.WarningHandler;
 import fivetran_sdk.v2.Column;
@@ -9,8 +13,8 @@ import fivetran_sdk.v2.FileParams;
 import fivetran_sdk.v2.DataType;
 
 import java.io.IOException;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -29,19 +33,89 @@ public class LoadDataWriter<T> extends Writer {
     final int BUFFER_SIZE = 524288;
 
     List<Column> headerColumns;
-    PipedOutputStream outputStream;
-    PipedInputStream inputStream;
+    OutputStream outputStream;
+    CountingOutputStream countingStream;
+    InputStream inputStream;
     Thread t;
+    Thread compressor;
     final SQLException[] queryException = new SQLException[1];
+    final IOException[] compressionException = new IOException[1];
     Statement stmt;
     WarningHandler warningHandler;
+    LoadDataCompression compression;
+    RowFilter rowFilter;
+
+    /**
+     * Selects the records of a file which are loaded by {@link #write(String, InputStream)}.
+     */
+    public interface RowFilter {
+        void setHeader(List<String> header);
+
+        boolean accept(CsvRecordReader record);
+
+        /**
+         * Returns values which are loaded instead of the accepted record, or null to load the
+         * record as it is.
+         */
+        default List<String> replacement(CsvRecordReader record) {
+            return null;
+        }
+
+        /**
+         * Returns a filter which accepts records accepted by both filters. Both filters see every
+         * record, and the replacement of the second filter is used.
+         */
+        static RowFilter both(RowFilter first, RowFilter second) {
+            if (first == null) {
+                return second;
+            } else if (second == null) {
+                return first;
+            }
+
+            return new RowFilter() {
+                @Override
+                public void setHeader(List<String> header) {
+                    first.setHeader(header);
+                    second.setHeader(header);
+                }
+
+                @Override
+                public boolean accept(CsvRecordReader record) {
+                    boolean accepted = first.accept(record);
+                    return second.accept(record) && accepted;
+                }
+
+                @Override
+                public List<String> replacement(CsvRecordReader record) {
+                    return second.replacement(record);
+                }
+            };
+        }
+    }
 
     public LoadDataWriter(Connection conn, String database, String table, List<Column> columns,
                           FileParams params, Map<String, ByteString> secretKeys, Integer batchSize,
                           WarningHandler warningHandler)
             throws IOException {
+        this(conn, database, table, columns, params, secretKeys, batchSize, warningHandler,
+                LoadDataCompression.NONE);
+    }
+
+    public LoadDataWriter(Connection conn, String database, String table, List<Column> columns,
+                          FileParams params, Map<String, ByteString> secretKeys, Integer batchSize,
+                          WarningHandler warningHandler, LoadDataCompression compression)
+            throws IOException {
         super(conn, database, table, columns, params, secretKeys, batchSize);
         this.warningHandler = warningHandler;
+        this.compression = compression;
+    }
+
+    /**
+     * Sets the filter used by the following calls of {@link #write(String)}, or removes it if the
+     * filter is null.
+     */
+    public void setRowFilter(RowFilter rowFilter) {
+        this.rowFilter = rowFilter;
     }
 
     private String tmpColumnName(String name) {
@@ -50,10 +124,14 @@ public class LoadDataWriter<T> extends Writer {
 
     @Override
     public void setHeader(List<String> header) throws SQLException, IOException {
-        outputStream = new PipedOutputStream();
-        inputStream = new PipedInputStream(outputStream, BUFFER_SIZE);
+        RingBufferPipe pipe = new RingBufferPipe(BUFFER_SIZE / RingBufferPipe.CHUNK_SIZE);
+        countingStream = new CountingOutputStream(pipe.outputStream());
+        outputStream = countingStream;
+        inputStream = pipe.inputStream();
         headerColumns = new ArrayList<>();
         queryException[0] = null;
+        compressionException[0] = null;
+        compressor = null;
 
         Map<String, Column> nameToColumn = new HashMap<>();
         for (Column column : columns) {
@@ -67,10 +145,10 @@ public class LoadDataWriter<T> extends Writer {
         List<Column> binaryColumns = headerColumns.stream()
                 .filter(column -> column.getType() == DataType.BINARY).collect(Collectors.toList());
 
-        // TODO: PLAT-6898 add compression
         String query = String.format(
-                "LOAD DATA LOCAL INFILE '###.tsv' REPLACE INTO TABLE %s (%s) NULL DEFINED BY %s %s",
-                JDBCUtil.escapeTable(database, table), headerColumns.stream().map(c -> {
+                "LOAD DATA LOCAL INFILE '%s' REPLACE INTO TABLE %s (%s) NULL DEFINED BY %s %s",
+                compression.fileName(), JDBCUtil.escapeTable(database, table),
+                headerColumns.stream().map(c -> {
                     String escapedName = JDBCUtil.escapeIdentifier(c.getName());
                     if (c.getType() == DataType.BINARY) {
                         return tmpColumnName(escapedName);
@@ -84,21 +162,174 @@ public class LoadDataWriter<T> extends Writer {
                 }).collect(Collectors.joining(", ")));
 
         stmt = conn.createStatement();
-        ((com.singlestore.jdbc.Statement) stmt).setNextLocalInfileInputStream(inputStream);
+        InputStream queryInputStream =
+                compression == LoadDataCompression.NONE ? inputStream : startCompressor(inputStream);
+        // Unwrapping also works for stand-in statements of benchmarks
+        stmt.unwrap(com.singlestore.jdbc.Statement.class)
+                .setNextLocalInfileInputStream(queryInputStream);
 
         t = new Thread(() -> {
             try {
+                long start = System.nanoTime();
                 stmt.executeUpdate(query);
+                DestinationMetrics.LOAD_DATA_DURATION.recordSince(start);
                 stmt.close();
             } catch (SQLException e) {
                 warningHandler.handle("Failed to execute LOAD DATA query", e);
 
                 queryException[0] = e;
+            } finally {
+                // Unblocks the writer if the query stopped reading the stream
+                try {
+                    queryInputStream.close();
+                } catch (IOException e) {
+                    warningHandler.handle("Failed to close the LOAD DATA stream", e);
+                }
             }
         });
         t.start();
     }
 
+    /**
+     * Starts a thread which compresses the TSV stream, so compression doesn't slow down parsing.
+     * Returns the compressed stream.
+     */
+    private InputStream startCompressor(InputStream tsvStream) {
+        RingBufferPipe compressedPipe = new RingBufferPipe(BUFFER_SIZE / RingBufferPipe.CHUNK_SIZE);
+        OutputStream compressedStream = compressedPipe.outputStream();
+
+        compressor = new Thread(() -> {
+            try {
+                OutputStream out = compression.wrap(compressedStream);
+                byte[] buf = new byte[RingBufferPipe.CHUNK_SIZE];
+                int n;
+                while ((n = tsvStream.read(buf)) != -1) {
+                    out.write(buf, 0, n);
+                }
+                // Writes the trailer of the compressed data
+                out.close();
+            } catch (IOException e) {
+                compressionException[0] = e;
+
+                // Ends the stream without the trailer, so the server rejects the truncated data
+                try {
+                    compressedStream.close();
+                } catch (IOException closeException) {
+                    warningHandler.handle("Failed to close the compressed stream", closeException);
+                }
+            } finally {
+                // Unblocks the writer if the compressor stopped reading the stream
+                try {
+                    tsvStream.close();
+                } catch (IOException e) {
+                    warningHandler.handle("Failed to close the TSV stream", e);
+                }
+            }
+        });
+        compressor.start();
+
+        return compressedPipe.inputStream();
+    }
+
+    /**
+     * Streams the file into LOAD DATA without converting values to strings.
+     */
+    @Override
+    public void write(String file, InputStream is) throws Exception {
+        // Stage times are measured only when metrics are exposed, as they cost a few clock reads per row
+        boolean timed = Metrics.getInstance().isDetailed();
+        TimedInputStream decoded = new TimedInputStream(decode(file, is), timed);
+        CsvRecordReader reader = new CsvRecordReader(decoded);
+        if (!reader.next()) {
+            // finish if file is empty
+            return;
+        }
+
+        List<String> header = new ArrayList<>();
+        for (int i = 0; i < reader.fieldCount(); i++) {
+            header.add(reader.getString(i));
+        }
+        setHeader(header);
+        if (rowFilter != null) {
+            rowFilter.setHeader(header);
+        }
+
+        CsvToTsvTranscoder transcoder = new CsvToTsvTranscoder(
+                headerColumns.stream().map(Column::getType).collect(Collectors.toList()),
+                params.getNullString());
+        int rowsInBatch = 0;
+        long rows = 0;
+        long readNanos = 0;
+        long transcodeNanos = 0;
+        try {
+            while (true) {
+                try {
+                    long start = timed ? System.nanoTime() : 0;
+                    boolean hasNext = reader.next();
+                    if (timed) {
+                        long end = System.nanoTime();
+                        readNanos += end - start;
+                        start = end;
+                    }
+                    if (!hasNext) {
+                        transcoder.flush(outputStream);
+                        if (timed) {
+                            transcodeNanos += System.nanoTime() - start;
+                        }
+                        break;
+                    }
+                    rows++;
+                    if (rowFilter != null && !rowFilter.accept(reader)) {
+                        continue;
+                    }
+                    List<String> replacement =
+                            rowFilter == null ? null : rowFilter.replacement(reader);
+                    if (timed) {
+                        start = System.nanoTime();
+                    }
+                    if (replacement == null) {
+                        transcoder.append(reader, outputStream);
+                    } else {
+                        // Keeps the order of rows in the stream
+                        transcoder.flush(outputStream);
+                        writeRow(replacement);
+                    }
+                    if (timed) {
+                        transcodeNanos += System.nanoTime() - start;
+                    }
+                } catch (Exception e) {
+                    warningHandler.handle("Failed to write TSV data to stream", e);
+
+                    abort(e);
+                }
+
+                rowsInBatch++;
+                if (rowsInBatch == batchSize) {
+                    try {
+                        transcoder.flush(outputStream);
+                    } catch (Exception e) {
+                        warningHandler.handle("Failed to write TSV data to stream", e);
+
+                        abort(e);
+                    }
+                    commit();
+                    setHeader(header);
+                    rowsInBatch = 0;
+                }
+            }
+        } finally {
+            DestinationMetrics.WRITER_ROWS.labels(writerType()).add(rows);
+            if (timed) {
+                DestinationMetrics.STAGE_DURATION.labels("decode").record(decoded.getNanos());
+                DestinationMetrics.STAGE_DURATION.labels("parse")
+                        .record(Math.max(0, readNanos - decoded.getNanos()));
+                DestinationMetrics.STAGE_DURATION.labels("transcode").record(transcodeNanos);
+            }
+        }
+
+        commit();
+    }
+
     @Override
     public void writeRow(List<String> row) throws Exception {
         try {
@@ -150,11 +381,18 @@ public class LoadDataWriter<T> extends Writer {
         }
 
         outputStream.close();
+        if (compressor != null) {
+            compressor.join();
+        }
         t.join();
+        DestinationMetrics.LOAD_DATA_BYTES.add(countingStream.getCount());
 
         if (queryException[0] != null) {
             throw queryException[0];
         }
+        if (compressionException[0] != null) {
+            throw compressionException[0];
+        }
     }
 
     private void abort(Exception writerException) throws Exception {
@@ -170,6 +408,9 @@ public class LoadDataWriter<T> extends Writer {
             } finally {
                 try {
                     t.interrupt();
+                    if (compressor != null) {
+                        compressor.interrupt();
+                    }
                 } catch (Exception e) {
                     warningHandler.handle("Failed to interrupt the thread during the abort", e);
                 }
@@ -178,8 +419,14 @@ public class LoadDataWriter<T> extends Writer {
 
         if (writerException instanceof IOException
                 && writerException.getMessage().contains("Pipe closed")) {
-            // The actual exception occurred in the query thread
-            throw queryException[0];
+            // The actual exception occurred in the query or compressor thread
+            if (queryException[0] != null) {
+                throw queryException[0];
+            }
+            if (compressionException[0] != null) {
+                throw compressionException[0];
+            }
+            throw writerException;
         } else {
             throw writerException;
         }
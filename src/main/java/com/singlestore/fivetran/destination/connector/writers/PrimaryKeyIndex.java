@@ -0,0 +1,269 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Maps encoded primary keys to the position of their last row.
+ * <p>
+ * The index is an open addressing hash table with linear probing. Slots and key bytes are kept in
+ * direct buffers outside of the Java heap, so indexing millions of keys doesn't create an object
+ * per key. A slot holds the 64-bit hash of the key, a reference to the key bytes and the position.
+ * Keys with equal hashes are compared byte by byte.
+ * <p>
+ * The index can be filled by one thread and then read by many threads. Direct buffers are freed
+ * only after they are garbage collected, so {@link #release()} drops them as soon as the index is
+ * not needed.
+ */
+public class PrimaryKeyIndex {
+    private static final int SLOT_BYTES = 24;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private final long maxMemory;
+    private ByteBuffer slots;
+    private int capacity;
+    private int size = 0;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private long chunksMemory = 0;
+
+    public PrimaryKeyIndex(long maxMemory) {
+        this.maxMemory = maxMemory;
+        this.capacity = INITIAL_CAPACITY;
+    }
+
+    /**
+     * Returns the maximum amount of direct memory of the JVM, which is the maximum heap size
+     * unless -XX:MaxDirectMemorySize is given.
+     */
+    public static long maxDirectMemory() {
+        String prefix = "-XX:MaxDirectMemorySize=";
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (arg.startsWith(prefix)) {
+                try {
+                    return parseSize(arg.substring(prefix.length()));
+                } catch (NumberFormatException e) {
+                    break;
+                }
+            }
+        }
+
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    /**
+     * Parses a size in the format of JVM options, e.g. 512m.
+     */
+    public static long parseSize(String size) {
+        String lower = size.toLowerCase(Locale.ROOT);
+        int shift;
+        switch (lower.isEmpty() ? ' ' : lower.charAt(lower.length() - 1)) {
+            case 't':
+                shift = 40;
+                break;
+            case 'g':
+                shift = 30;
+                break;
+            case 'm':
+                shift = 20;
+                break;
+            case 'k':
+                shift = 10;
+                break;
+            default:
+                return Long.parseLong(lower);
+        }
+
+        return Long.parseLong(lower.substring(0, lower.length() - 1)) << shift;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long memoryUsed() {
+        return (slots == null ? 0 : (long) capacity * SLOT_BYTES) + chunksMemory;
+    }
+
+    /**
+     * Drops all keys and the buffers which hold them.
+     */
+    public void release() {
+        slots = null;
+        capacity = INITIAL_CAPACITY;
+        size = 0;
+        chunks.clear();
+        chunksMemory = 0;
+    }
+
+    /**
+     * Allocates a direct buffer, or returns null if the direct memory of the JVM is exhausted.
+     */
+    private static ByteBuffer allocate(int size) {
+        try {
+            return ByteBuffer.allocateDirect(size);
+        } catch (OutOfMemoryError e) {
+            return null;
+        }
+    }
+
+    static long hash(byte[] key, int length) {
+        // FNV-1a followed by the MurmurHash3 finalizer, which spreads the low bits used as index
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            h ^= key[i] & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private int findSlot(byte[] key, int length, long hash) {
+        int mask = capacity - 1;
+        int slot = (int) hash & mask;
+        while (true) {
+            int offset = slot * SLOT_BYTES;
+            if (slots.getLong(offset + 16) == 0) {
+                return slot;
+            }
+            if (slots.getLong(offset) == hash && keyEquals(slots.getLong(offset + 8), key, length)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean keyEquals(long keyRef, byte[] key, int length) {
+        ByteBuffer chunk = chunks.get((int) (keyRef >>> 32));
+        int offset = (int) keyRef;
+        if (chunk.getInt(offset) != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (chunk.get(offset + 4 + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets the position of the key. Returns -1 if the key is new, the previous position if it was
+     * already indexed, and -2 if the index has reached its memory limit and the key was not added.
+     */
+    public long put(byte[] key, int length, long position) {
+        if (slots == null) {
+            if ((long) capacity * SLOT_BYTES > maxMemory
+                    || (slots = allocate(capacity * SLOT_BYTES)) == null) {
+                return -2;
+            }
+        }
+
+        long hash = hash(key, length);
+        int slot = findSlot(key, length, hash);
+        int offset = slot * SLOT_BYTES;
+        long previous = slots.getLong(offset + 16);
+        if (previous != 0) {
+            slots.putLong(offset + 16, position + 1);
+            return previous - 1;
+        }
+
+        // Keep the load factor at most 1/2
+        if ((size + 1) * 2 > capacity) {
+            if (!grow()) {
+                return -2;
+            }
+            slot = findSlot(key, length, hash);
+            offset = slot * SLOT_BYTES;
+        }
+
+        long keyRef = storeKey(key, length);
+        if (keyRef == -1) {
+            return -2;
+        }
+
+        slots.putLong(offset, hash);
+        slots.putLong(offset + 8, keyRef);
+        slots.putLong(offset + 16, position + 1);
+        size++;
+        return -1;
+    }
+
+    /**
+     * Returns the last position of the key, or -1 if it is not indexed.
+     */
+    public long get(byte[] key, int length) {
+        if (slots == null) {
+            return -1;
+        }
+
+        int slot = findSlot(key, length, hash(key, length));
+        return slots.getLong(slot * SLOT_BYTES + 16) - 1;
+    }
+
+    private long storeKey(byte[] key, int length) {
+        int recordSize = 4 + length;
+        ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (chunk == null || chunk.remaining() < recordSize) {
+            int chunkSize = Math.max(CHUNK_SIZE, recordSize);
+            if (memoryUsed() + chunkSize > maxMemory) {
+                return -1;
+            }
+            chunk = allocate(chunkSize);
+            if (chunk == null) {
+                return -1;
+            }
+            chunks.add(chunk);
+            chunksMemory += chunkSize;
+        }
+
+        int offset = chunk.position();
+        chunk.putInt(length);
+        chunk.put(key, 0, length);
+        return ((long) (chunks.size() - 1) << 32) | offset;
+    }
+
+    private boolean grow() {
+        int newCapacity = capacity * 2;
+        if (newCapacity > MAX_CAPACITY
+                || memoryUsed() + (long) newCapacity * SLOT_BYTES > maxMemory) {
+            return false;
+        }
+
+        ByteBuffer newSlots = allocate(newCapacity * SLOT_BYTES);
+        if (newSlots == null) {
+            return false;
+        }
+        int mask = newCapacity - 1;
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = slot * SLOT_BYTES;
+            long position = slots.getLong(offset + 16);
+            if (position == 0) {
+                continue;
+            }
+
+            long hash = slots.getLong(offset);
+            int newSlot = (int) hash & mask;
+            while (newSlots.getLong(newSlot * SLOT_BYTES + 16) != 0) {
+                newSlot = (newSlot + 1) & mask;
+            }
+            int newOffset = newSlot * SLOT_BYTES;
+            newSlots.putLong(newOffset, hash);
+            newSlots.putLong(newOffset + 8, slots.getLong(offset + 8));
+            newSlots.putLong(newOffset + 16, position);
+        }
+
+        slots = newSlots;
+        capacity = newCapacity;
+        return true;
+    }
+}
@@ -0,0 +1,342 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import com.google.protobuf.ByteString;
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.FileParams;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the last version of each primary key across replace files of a batch, so only that version
+ * is loaded.
+ * <p>
+ * {@link #index(List)} reads all files once and records in a {@link PrimaryKeyIndex} the position
+ * of the last row of every key. Then the filter returned by {@link #filter(int)} passes only those
+ * rows to {@link LoadDataWriter}. Keys are compared by the bytes of their values, so values which
+ * are equal only in the database, e.g. in a case-insensitive collation, are not merged and are
+ * applied by REPLACE in the order of the files.
+ * <p>
+ * Such keys are only applied in the right order if the files are loaded one after another. If
+ * requested, keys normalized as by {@link DmlBatcher#rowKey} are indexed as well, and
+ * {@link #hasEquivalentKeys()} tells whether different keys may be equal in the database.
+ * <p>
+ * Indexes are kept in direct memory limited by {@link #configure(long)}, which is split between
+ * both indexes if equivalent keys are detected. {@link #release()} drops them once the files are
+ * loaded.
+ */
+public class ReplaceDeduplicator extends Writer {
+    private static volatile long defaultMaxIndexBytes = 64L * 1024 * 1024;
+    // Positions are formed from the index of the file and the index of the row in the file
+    private static final int ROW_BITS = 40;
+
+    private final PrimaryKeyIndex index;
+    private final KeyBuffer indexBuffer = new KeyBuffer();
+    private final List<String> keyColumnNames = new ArrayList<>();
+    private final List<Column> keyColumns = new ArrayList<>();
+    private PrimaryKeyIndex normalizedIndex;
+    private boolean equivalentKeys = false;
+    private List<Integer> keyPositions = new ArrayList<>();
+    private long fileIndex;
+    private long rowIndex;
+    private long rows = 0;
+    private long duplicates = 0;
+    private boolean disabled = false;
+
+    private static class KeyBuffer {
+        byte[] bytes = new byte[256];
+
+        void ensureCapacity(int capacity) {
+            if (bytes.length < capacity) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+            }
+        }
+    }
+
+    public ReplaceDeduplicator(List<Column> columns, FileParams params,
+                               Map<String, ByteString> secretKeys) {
+        this(columns, params, secretKeys, false);
+    }
+
+    /**
+     * Keys which may be equal in the database are detected if detectEquivalentKeys is true.
+     */
+    public ReplaceDeduplicator(List<Column> columns, FileParams params,
+                               Map<String, ByteString> secretKeys, boolean detectEquivalentKeys) {
+        super(null, null, null, columns, params, secretKeys, Integer.MAX_VALUE);
+        for (Column c : columns) {
+            if (c.getPrimaryKey()) {
+                keyColumnNames.add(c.getName());
+                keyColumns.add(c);
+            }
+        }
+        long maxIndexBytes = defaultMaxIndexBytes;
+        if (detectEquivalentKeys) {
+            maxIndexBytes /= 2;
+            normalizedIndex = new PrimaryKeyIndex(maxIndexBytes);
+        }
+        index = new PrimaryKeyIndex(maxIndexBytes);
+    }
+
+    public static long defaultMaxIndexBytes() {
+        return defaultMaxIndexBytes;
+    }
+
+    /**
+     * Changes the memory limit of deduplicators created after this call. Every replace phase of a
+     * batch may use that much direct memory, so it must be well below the direct memory limit of
+     * the JVM.
+     */
+    public static void configure(long maxIndexBytes) {
+        if (maxIndexBytes <= 0) {
+            throw new IllegalArgumentException("Deduplication memory limit must be positive");
+        }
+        long maxDirectMemory = PrimaryKeyIndex.maxDirectMemory();
+        if (maxIndexBytes > maxDirectMemory / 2) {
+            throw new IllegalArgumentException(String.format(
+                    "Deduplication memory limit of %d bytes must not exceed half of the direct memory limit of %d bytes",
+                    maxIndexBytes, maxDirectMemory));
+        }
+
+        ReplaceDeduplicator.defaultMaxIndexBytes = maxIndexBytes;
+    }
+
+    /**
+     * Drops the indexes, so their memory can be freed. Filters can't be used after this call.
+     */
+    public void release() {
+        index.release();
+        releaseNormalizedIndex();
+    }
+
+    private void releaseNormalizedIndex() {
+        if (normalizedIndex != null) {
+            normalizedIndex.release();
+            normalizedIndex = null;
+        }
+    }
+
+    /**
+     * Indexes keys of all files. Returns false if the files can't be deduplicated, because a file
+     * doesn't contain all primary key columns or the index doesn't fit in its memory limit.
+     */
+    public boolean index(List<String> files) throws Exception {
+        if (keyColumnNames.isEmpty()) {
+            return false;
+        }
+
+        for (int i = 0; i < files.size() && !disabled; i++) {
+            fileIndex = i;
+            rowIndex = 0;
+            write(files.get(i));
+        }
+        // Only the result of the detection is needed after indexing
+        releaseNormalizedIndex();
+
+        return !disabled;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public long duplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Returns true if different keys of the files normalize to the same value, so they may be
+     * equal in the database. It is also true if that couldn't be checked because the normalized
+     * keys didn't fit in memory.
+     */
+    public boolean hasEquivalentKeys() {
+        return equivalentKeys;
+    }
+
+    private static long position(long fileIndex, long rowIndex) {
+        return (fileIndex << ROW_BITS) | rowIndex;
+    }
+
+    /**
+     * Returns positions of key columns in the header in the order of table columns, so keys of
+     * files with different column orders are encoded in the same way.
+     */
+    private List<Integer> keyPositions(List<String> header) {
+        List<Integer> positions = new ArrayList<>();
+        for (String name : keyColumnNames) {
+            int pos = header.indexOf(name);
+            if (pos != -1) {
+                positions.add(pos);
+            }
+        }
+
+        return positions;
+    }
+
+    /**
+     * Writes key values as a sequence of lengths and bytes into the buffer and returns the length
+     * of the key.
+     */
+    private static int encodeKey(KeyBuffer buffer, byte[] data, int[] starts, int[] ends) {
+        int length = 0;
+        for (int i = 0; i < starts.length; i++) {
+            int valueLength = ends[i] - starts[i];
+            buffer.ensureCapacity(length + 4 + valueLength);
+            byte[] b = buffer.bytes;
+            b[length++] = (byte) (valueLength >>> 24);
+            b[length++] = (byte) (valueLength >>> 16);
+            b[length++] = (byte) (valueLength >>> 8);
+            b[length++] = (byte) valueLength;
+            System.arraycopy(data, starts[i], b, length, valueLength);
+            length += valueLength;
+        }
+
+        return length;
+    }
+
+    private int encodeKey(CsvRecordReader record, List<Integer> positions, KeyBuffer buffer) {
+        int[] starts = new int[positions.size()];
+        int[] ends = new int[positions.size()];
+        for (int i = 0; i < positions.size(); i++) {
+            starts[i] = record.fieldStart(positions.get(i));
+            ends[i] = record.fieldEnd(positions.get(i));
+        }
+
+        return encodeKey(buffer, record.data(), starts, ends);
+    }
+
+    /**
+     * Indexes the key and returns true if the key is new.
+     */
+    private boolean indexKey(byte[] keyBytes, int length) {
+        long previous = index.put(keyBytes, length, position(fileIndex, rowIndex++));
+        rows++;
+        if (previous == -2) {
+            disabled = true;
+        } else if (previous >= 0) {
+            duplicates++;
+        }
+
+        return previous == -1;
+    }
+
+    private boolean detectsEquivalentKeys() {
+        return normalizedIndex != null;
+    }
+
+    /**
+     * Indexes the normalized form of a new key. A new key whose normalized form is already
+     * indexed is equal to a different key in the database.
+     */
+    private void indexNormalizedKey(List<String> keyValues) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < keyValues.size(); i++) {
+            String value =
+                    DmlBatcher.keyValue(keyColumns.get(i), keyValues.get(i), params.getNullString());
+            key.append(value.length()).append(':').append(value).append(';');
+        }
+
+        byte[] keyBytes = key.toString().getBytes(StandardCharsets.UTF_8);
+        if (normalizedIndex.put(keyBytes, keyBytes.length, 0) != -1) {
+            // Either an equivalent key is found or the index is full. In both cases the answer
+            // can't change anymore, so the index is not needed.
+            equivalentKeys = true;
+            releaseNormalizedIndex();
+        }
+    }
+
+    @Override
+    public void setHeader(List<String> header) {
+        keyPositions = keyPositions(header);
+        if (keyPositions.size() != keyColumnNames.size()) {
+            // Rows can't be matched by key
+            disabled = true;
+        }
+    }
+
+    @Override
+    public void write(String file, InputStream is) throws Exception {
+        CsvRecordReader reader = new CsvRecordReader(decode(file, is));
+        if (!reader.next()) {
+            // finish if file is empty
+            return;
+        }
+
+        List<String> header = new ArrayList<>();
+        for (int i = 0; i < reader.fieldCount(); i++) {
+            header.add(reader.getString(i));
+        }
+        setHeader(header);
+
+        while (!disabled && reader.next()) {
+            int length = encodeKey(reader, keyPositions, indexBuffer);
+            if (indexKey(indexBuffer.bytes, length) && detectsEquivalentKeys()) {
+                List<String> keyValues = new ArrayList<>();
+                for (Integer pos : keyPositions) {
+                    keyValues.add(reader.getString(pos));
+                }
+                indexNormalizedKey(keyValues);
+            }
+        }
+    }
+
+    @Override
+    public void writeRow(List<String> row) {
+        List<String> keyValues = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        int size = 0;
+        for (Integer pos : keyPositions) {
+            keyValues.add(row.get(pos));
+            byte[] value = row.get(pos).getBytes(StandardCharsets.UTF_8);
+            values.add(value);
+            size += value.length;
+        }
+
+        byte[] data = new byte[size];
+        int[] starts = new int[values.size()];
+        int[] ends = new int[values.size()];
+        int offset = 0;
+        for (int i = 0; i < values.size(); i++) {
+            starts[i] = offset;
+            System.arraycopy(values.get(i), 0, data, offset, values.get(i).length);
+            offset += values.get(i).length;
+            ends[i] = offset;
+        }
+
+        int length = encodeKey(indexBuffer, data, starts, ends);
+        if (indexKey(indexBuffer.bytes, length) && detectsEquivalentKeys()) {
+            indexNormalizedKey(keyValues);
+        }
+    }
+
+    @Override
+    public void commit() {
+    }
+
+    /**
+     * Returns a filter which accepts only the last version of each key in the file with the given
+     * index. Filters of different files can be used concurrently.
+     */
+    public LoadDataWriter.RowFilter filter(int fileIndex) {
+        return new LoadDataWriter.RowFilter() {
+            final KeyBuffer buffer = new KeyBuffer();
+            List<Integer> positions = new ArrayList<>();
+            long rowIndex = 0;
+
+            @Override
+            public void setHeader(List<String> header) {
+                positions = keyPositions(header);
+            }
+
+            @Override
+            public boolean accept(CsvRecordReader record) {
+                int length = encodeKey(record, positions, buffer);
+                return index.get(buffer.bytes, length) == position(fileIndex, rowIndex++);
+            }
+        };
+    }
+}
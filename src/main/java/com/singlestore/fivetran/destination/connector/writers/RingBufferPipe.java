@@ -0,0 +1,317 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-producer/single-consumer pipe built on a ring of byte chunks.
+ * <p>
+ * Replaces {@link java.io.PipedOutputStream}/{@link java.io.PipedInputStream}: the producer fills
+ * a chunk without any synchronization and publishes it with a single volatile write, and a
+ * blocked side is woken with {@link LockSupport#unpark} instead of polling. Chunks are heap arrays
+ * taken from a process-wide pool, since the consumer copies data into the caller's array anyway.
+ * <p>
+ * Like the piped streams, writes fail with "Pipe closed" after the consumer closes its side, and
+ * both sides fail if the thread on the other side dies without closing its stream.
+ */
+public class RingBufferPipe {
+    public static final int CHUNK_SIZE = 65536;
+    private static final int MAX_POOLED_CHUNKS = 256;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final ConcurrentLinkedQueue<byte[]> chunkPool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooledChunks = new AtomicInteger();
+
+    private final byte[][] chunks;
+    private final int[] lengths;
+    private final int capacity;
+
+    // Number of chunks published by the producer
+    private volatile long head = 0;
+    // Number of chunks consumed by the consumer
+    private volatile long tail = 0;
+
+    private volatile boolean producerClosed = false;
+    private volatile boolean consumerClosed = false;
+    private final AtomicInteger closedSides = new AtomicInteger();
+
+    private volatile Thread producerThread;
+    private volatile Thread consumerThread;
+    private volatile Thread waitingProducer;
+    private volatile Thread waitingConsumer;
+
+    private final Output output = new Output();
+    private final Input input = new Input();
+
+    /**
+     * Creates a pipe which buffers up to capacity chunks of {@link #CHUNK_SIZE} bytes.
+     */
+    public RingBufferPipe(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pipe capacity must be positive");
+        }
+
+        this.capacity = capacity;
+        this.chunks = new byte[capacity][];
+        this.lengths = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            byte[] chunk = chunkPool.poll();
+            if (chunk != null) {
+                pooledChunks.decrementAndGet();
+            } else {
+                chunk = new byte[CHUNK_SIZE];
+            }
+            chunks[i] = chunk;
+        }
+    }
+
+    public OutputStream outputStream() {
+        return output;
+    }
+
+    public InputStream inputStream() {
+        return input;
+    }
+
+    private void sideClosed() {
+        if (closedSides.incrementAndGet() == 2) {
+            // Nobody touches the chunks anymore
+            for (byte[] chunk : chunks) {
+                if (pooledChunks.incrementAndGet() <= MAX_POOLED_CHUNKS) {
+                    chunkPool.offer(chunk);
+                } else {
+                    pooledChunks.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static void unpark(Thread t) {
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    private class Output extends OutputStream {
+        private byte[] chunk = null;
+        private int pos = 0;
+
+        private void ensureOpen() throws IOException {
+            if (producerClosed) {
+                throw new IOException("Stream closed");
+            }
+            if (consumerClosed) {
+                throw new IOException("Pipe closed");
+            }
+        }
+
+        /**
+         * Waits for a free chunk.
+         */
+        private void acquire() throws IOException {
+            if (producerThread == null) {
+                producerThread = Thread.currentThread();
+            }
+
+            while (head - tail == capacity) {
+                ensureOpen();
+                Thread consumer = consumerThread;
+                if (consumer != null && !consumer.isAlive()) {
+                    throw new IOException("Read end dead");
+                }
+
+                waitingProducer = Thread.currentThread();
+                if (head - tail == capacity && !consumerClosed) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                waitingProducer = null;
+
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException();
+                }
+            }
+
+            chunk = chunks[(int) (head % capacity)];
+            pos = 0;
+        }
+
+        private void publish() {
+            lengths[(int) (head % capacity)] = pos;
+            head = head + 1;
+            chunk = null;
+            unpark(waitingConsumer);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (chunk == null) {
+                ensureOpen();
+                acquire();
+            }
+
+            chunk[pos++] = (byte) b;
+            if (pos == CHUNK_SIZE) {
+                publish();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            while (len > 0) {
+                if (chunk == null) {
+                    acquire();
+                }
+
+                int n = Math.min(len, CHUNK_SIZE - pos);
+                System.arraycopy(b, off, chunk, pos, n);
+                pos += n;
+                off += n;
+                len -= n;
+                if (pos == CHUNK_SIZE) {
+                    publish();
+                }
+            }
+        }
+
+        /**
+         * Makes all written data available to the consumer.
+         */
+        @Override
+        public void flush() throws IOException {
+            ensureOpen();
+            if (chunk != null && pos > 0) {
+                publish();
+            }
+        }
+
+        /**
+         * Publishes remaining data and signals the end of the stream. Data is discarded if the
+         * consumer is already closed.
+         */
+        @Override
+        public void close() {
+            if (producerClosed) {
+                return;
+            }
+
+            if (chunk != null && pos > 0 && !consumerClosed) {
+                publish();
+            }
+            chunk = null;
+            producerClosed = true;
+            unpark(waitingConsumer);
+            sideClosed();
+        }
+    }
+
+    private class Input extends InputStream {
+        private int pos = 0;
+
+        /**
+         * Waits for a published chunk. Returns false at the end of the stream.
+         */
+        private boolean await() throws IOException {
+            if (consumerClosed) {
+                throw new IOException("Pipe closed");
+            }
+            if (consumerThread == null) {
+                consumerThread = Thread.currentThread();
+            }
+
+            while (true) {
+                // producerClosed is set after the last publish, so it is read before head
+                boolean closed = producerClosed;
+                if (tail != head) {
+                    return true;
+                }
+                if (closed) {
+                    return false;
+                }
+
+                Thread producer = producerThread;
+                if (producer != null && !producer.isAlive()) {
+                    throw new IOException("Write end dead");
+                }
+
+                waitingConsumer = Thread.currentThread();
+                if (tail == head && !producerClosed) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                waitingConsumer = null;
+
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+
+        private void consumed(int idx) {
+            if (pos == lengths[idx]) {
+                pos = 0;
+                tail = tail + 1;
+                unpark(waitingProducer);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!await()) {
+                return -1;
+            }
+
+            int idx = (int) (tail % capacity);
+            int b = chunks[idx][pos++] & 0xff;
+            consumed(idx);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!await()) {
+                return -1;
+            }
+
+            int read = 0;
+            // Drain all published chunks without waiting for more
+            while (read < len && tail != head) {
+                int idx = (int) (tail % capacity);
+                int n = Math.min(len - read, lengths[idx] - pos);
+                System.arraycopy(chunks[idx], pos, b, off + read, n);
+                pos += n;
+                read += n;
+                consumed(idx);
+            }
+
+            return read;
+        }
+
+        @Override
+        public int available() {
+            if (consumerClosed || tail == head) {
+                return 0;
+            }
+
+            return lengths[(int) (tail % capacity)] - pos;
+        }
+
+        @Override
+        public void close() {
+            if (consumerClosed) {
+                return;
+            }
+
+            consumerClosed = true;
+            unpark(waitingProducer);
+            sideClosed();
+        }
+    }
+}
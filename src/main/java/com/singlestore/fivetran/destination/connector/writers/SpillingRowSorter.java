@@ -0,0 +1,346 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts rows by a primitive key. Rows with equal keys keep the order in which they were added.
+ * <p>
+ * Rows are kept in memory until their estimated size exceeds the memory budget. Then they are
+ * sorted and written to a temporary file as a sorted run, and {@link #forEachSorted} merges the
+ * runs with the rows left in memory.
+ * <p>
+ * Rows come from decrypted batch files, so every run is encrypted with its own random AES key
+ * which is kept only in memory, and temporary files are readable only by their owner. Runs are
+ * deleted by {@link #clear}.
+ */
+public class SpillingRowSorter implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(SpillingRowSorter.class);
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final String RUN_CIPHER = "AES/CTR/NoPadding";
+
+    private static volatile long defaultMemoryBudget = 256L * 1024 * 1024;
+
+    // Rough size of the objects that hold a row and each of its values
+    private static final int ROW_OVERHEAD_BYTES = 64;
+    private static final int VALUE_OVERHEAD_BYTES = 48;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    public interface RowConsumer<E extends Exception> {
+        void accept(List<String> row) throws E;
+    }
+
+    private final long memoryBudget;
+    private final List<SpilledRun> runs = new ArrayList<>();
+    private List<List<String>> rows = new ArrayList<>();
+    private long[] keys = new long[1024];
+    private long firstSequence = 0;
+    private long memoryUsed = 0;
+
+    public SpillingRowSorter() {
+        this(defaultMemoryBudget);
+    }
+
+    public SpillingRowSorter(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public static long defaultMemoryBudget() {
+        return defaultMemoryBudget;
+    }
+
+    /**
+     * Changes the memory budget of sorters created after this call.
+     */
+    public static void configure(long memoryBudget) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("Sort memory budget must be positive");
+        }
+
+        SpillingRowSorter.defaultMemoryBudget = memoryBudget;
+    }
+
+    public void add(long key, List<String> row) throws IOException {
+        if (rows.size() == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+        }
+        keys[rows.size()] = key;
+        rows.add(row);
+
+        memoryUsed += ROW_OVERHEAD_BYTES;
+        for (String value : row) {
+            memoryUsed += VALUE_OVERHEAD_BYTES + 2L * value.length();
+        }
+
+        if (memoryUsed > memoryBudget) {
+            spill();
+        }
+    }
+
+    public long size() {
+        return firstSequence + rows.size();
+    }
+
+    public int spilledRuns() {
+        return runs.size();
+    }
+
+    /**
+     * Returns positions of the rows in memory ordered by key. Merge sort is stable, so rows with
+     * equal keys stay in the order they were added.
+     */
+    private int[] sortedOrder() {
+        int n = rows.size();
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+
+        int[] buffer = new int[n];
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n - width; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, n);
+                if (keys[order[mid - 1]] <= keys[order[mid]]) {
+                    // Already in order
+                    continue;
+                }
+
+                int i = lo;
+                int j = mid;
+                int k = lo;
+                while (i < mid && j < hi) {
+                    buffer[k++] = keys[order[j]] < keys[order[i]] ? order[j++] : order[i++];
+                }
+                while (i < mid) {
+                    buffer[k++] = order[i++];
+                }
+                while (j < hi) {
+                    buffer[k++] = order[j++];
+                }
+                System.arraycopy(buffer, lo, order, lo, hi - lo);
+            }
+        }
+
+        return order;
+    }
+
+    private void spill() throws IOException {
+        // Files.createTempFile creates files which are readable only by the owner
+        SpilledRun run = new SpilledRun(Files.createTempFile("fivetran-sort-", ".run"));
+        runs.add(run);
+
+        int[] order = sortedOrder();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CipherOutputStream(Files.newOutputStream(run.file),
+                        run.cipher(Cipher.ENCRYPT_MODE)), IO_BUFFER_SIZE))) {
+            for (int pos : order) {
+                List<String> row = rows.get(pos);
+                out.writeLong(keys[pos]);
+                out.writeLong(firstSequence + pos);
+                out.writeInt(row.size());
+                for (String value : row) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+        }
+
+        firstSequence += rows.size();
+        rows = new ArrayList<>();
+        memoryUsed = 0;
+    }
+
+    /**
+     * Passes all added rows to the consumer in the order of their keys.
+     */
+    public <E extends Exception> void forEachSorted(RowConsumer<E> consumer)
+            throws E, IOException {
+        int[] order = sortedOrder();
+        if (runs.isEmpty()) {
+            for (int pos : order) {
+                consumer.accept(rows.get(pos));
+            }
+            return;
+        }
+
+        PriorityQueue<Run> queue = new PriorityQueue<>((a, b) -> a.key != b.key
+                ? Long.compare(a.key, b.key)
+                : Long.compare(a.sequence, b.sequence));
+        List<Run> opened = new ArrayList<>();
+        try {
+            for (SpilledRun spilledRun : runs) {
+                Run run = new FileRun(spilledRun);
+                opened.add(run);
+                if (run.advance()) {
+                    queue.add(run);
+                }
+            }
+
+            Run memoryRun = new MemoryRun(order);
+            if (memoryRun.advance()) {
+                queue.add(memoryRun);
+            }
+
+            while (!queue.isEmpty()) {
+                Run run = queue.poll();
+                consumer.accept(run.row);
+                if (run.advance()) {
+                    queue.add(run);
+                }
+            }
+        } finally {
+            for (Run run : opened) {
+                run.close();
+            }
+        }
+    }
+
+    /**
+     * Removes all rows and deletes spilled runs.
+     */
+    public void clear() {
+        for (SpilledRun run : runs) {
+            try {
+                Files.deleteIfExists(run.file);
+            } catch (IOException e) {
+                // The run can't be decrypted once its key is dropped
+                logger.warn(String.format("Failed to delete sorted run %s", run.file), e);
+            }
+        }
+        runs.clear();
+        rows = new ArrayList<>();
+        firstSequence = 0;
+        memoryUsed = 0;
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+
+    /**
+     * Sorted run in a temporary file with the key and IV it is encrypted with.
+     */
+    private static class SpilledRun {
+        final Path file;
+        final SecretKey key;
+        final IvParameterSpec iv;
+
+        SpilledRun(Path file) throws IOException {
+            this.file = file;
+            try {
+                KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+                keyGenerator.init(128, RANDOM);
+                this.key = keyGenerator.generateKey();
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Failed to generate a key for a sorted run", e);
+            }
+            byte[] iv = new byte[16];
+            RANDOM.nextBytes(iv);
+            this.iv = new IvParameterSpec(iv);
+        }
+
+        Cipher cipher(int mode) throws IOException {
+            try {
+                Cipher cipher = Cipher.getInstance(RUN_CIPHER);
+                cipher.init(mode, key, iv);
+                return cipher;
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Failed to initialize the cipher of a sorted run", e);
+            }
+        }
+    }
+
+    private abstract static class Run implements Closeable {
+        long key;
+        long sequence;
+        List<String> row;
+
+        abstract boolean advance() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    private class MemoryRun extends Run {
+        private final int[] order;
+        private int next = 0;
+
+        MemoryRun(int[] order) {
+            this.order = order;
+        }
+
+        @Override
+        boolean advance() {
+            if (next == order.length) {
+                return false;
+            }
+
+            int pos = order[next++];
+            key = keys[pos];
+            sequence = firstSequence + pos;
+            row = rows.get(pos);
+            return true;
+        }
+    }
+
+    private static class FileRun extends Run {
+        private final DataInputStream in;
+
+        FileRun(SpilledRun run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(
+                    new CipherInputStream(Files.newInputStream(run.file),
+                            run.cipher(Cipher.DECRYPT_MODE)), IO_BUFFER_SIZE));
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            try {
+                key = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+
+            sequence = in.readLong();
+            int size = in.readInt();
+            row = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                row.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import com.google.protobuf.ByteString;
+import com.singlestore.fivetran.destination.connector.JDBCUtil;
+import com.singlestore.fivetran.destination.connector.warning_util.WarningHandler;
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.DataType;
+import fivetran_sdk.v2.FileParams;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Applies history mode delete files with one query per batch instead of one query per row.
+ * <p>
+ * Keys of a batch are loaded with LOAD DATA into a temporary table together with their
+ * `_fivetran_end`. Then one UPDATE ... JOIN closes the active versions. If a key appears in several
+ * rows, the active version is closed by the first of them, as {@link DeleteHistoryWriter} does.
+ * <p>
+ * The staging table lives as long as the connection and is reused by the following batches.
+ */
+public class StagingDeleteHistoryWriter extends Writer {
+    static final String SEQUENCE_COLUMN = "__fivetran_sequence";
+
+    WarningHandler warningHandler;
+    List<Integer> keyPositions = new ArrayList<>();
+    List<Column> stagingColumns = new ArrayList<>();
+    Integer fivetranEndPos;
+    String stagingTable;
+    LoadDataWriter<?> loader;
+    long sequence = 0;
+
+    public StagingDeleteHistoryWriter(Connection conn, String database, String table,
+                                      List<Column> columns, FileParams params,
+                                      Map<String, ByteString> secretKeys,
+                                      Integer batchSize, WarningHandler warningHandler) {
+        super(conn, database, table, columns, params, secretKeys, batchSize);
+        this.warningHandler = warningHandler;
+    }
+
+    @Override
+    public void setHeader(List<String> header) {
+        Map<String, Column> nameToColumn = new HashMap<>();
+        for (Column column : columns) {
+            nameToColumn.put(column.getName(), column);
+        }
+
+        keyPositions = new ArrayList<>();
+        stagingColumns = new ArrayList<>();
+        fivetranEndPos = null;
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i);
+            Column c = nameToColumn.get(name);
+            if (name.equals("_fivetran_end")) {
+                fivetranEndPos = i;
+            } else if (c != null && c.getPrimaryKey() && !name.equals("_fivetran_start")) {
+                keyPositions.add(i);
+                stagingColumns.add(c);
+            }
+        }
+
+        if (fivetranEndPos == null) {
+            throw new IllegalArgumentException("File doesn't contain _fivetran_end column");
+        }
+
+        stagingColumns.add(Column.newBuilder().setName("_fivetran_end")
+                .setType(DataType.UTC_DATETIME).build());
+        stagingColumns.add(Column.newBuilder().setName(SEQUENCE_COLUMN).setType(DataType.LONG)
+                .build());
+
+        stagingTable = StagingUpdateWriter.stagingTableName("__fivetran_delete_history_", database,
+                table, stagingColumnDefinitions());
+    }
+
+    private List<String> keyColumns() {
+        // Key columns are followed by `_fivetran_end` and the sequence column
+        return stagingColumns.subList(0, keyPositions.size()).stream()
+                .map(c -> JDBCUtil.escapeIdentifier(c.getName())).collect(Collectors.toList());
+    }
+
+    private String stagingColumnDefinitions() {
+        List<String> definitions = new ArrayList<>();
+        for (Column c : stagingColumns) {
+            definitions.add(StagingUpdateWriter.stagingColumnDefinition(c));
+        }
+
+        List<String> keyColumns = keyColumns();
+        if (!keyColumns.isEmpty()) {
+            definitions.add(String.format("SHARD KEY (%s)", String.join(", ", keyColumns)));
+        }
+
+        return String.join(", ", definitions);
+    }
+
+    /**
+     * Creates the staging table if the connection doesn't have it yet, removes rows left by a
+     * failed batch and starts loading the batch.
+     */
+    private void startBatch() throws SQLException, IOException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("CREATE ROWSTORE TEMPORARY TABLE IF NOT EXISTS %s (%s)",
+                    JDBCUtil.escapeTable(database, stagingTable), stagingColumnDefinitions()));
+            stmt.execute(String.format("TRUNCATE TABLE %s",
+                    JDBCUtil.escapeTable(database, stagingTable)));
+        }
+
+        loader = new LoadDataWriter<>(conn, database, stagingTable, stagingColumns, params,
+                secretKeys, batchSize, warningHandler);
+        loader.setHeader(stagingColumns.stream().map(Column::getName)
+                .collect(Collectors.toList()));
+        sequence = 0;
+    }
+
+    @Override
+    public void writeRow(List<String> row) throws Exception {
+        if (loader == null) {
+            startBatch();
+        }
+
+        List<String> stagingRow = new ArrayList<>();
+        for (Integer pos : keyPositions) {
+            stagingRow.add(row.get(pos));
+        }
+        stagingRow.add(row.get(fivetranEndPos));
+        stagingRow.add(String.valueOf(sequence++));
+        loader.writeRow(stagingRow);
+    }
+
+    private String joinConditions() {
+        return keyColumns().stream().map(name -> String.format("t.%s = s.%s", name, name))
+                .collect(Collectors.joining(" AND "));
+    }
+
+    private String generateUpdateQuery() {
+        String keyColumns = String.join(", ", keyColumns());
+        return String.format(
+                "UPDATE %s AS t JOIN (SELECT %s, `_fivetran_end`, ROW_NUMBER() OVER (PARTITION BY %s ORDER BY %s) AS n FROM %s) AS s ON %s " +
+                        "SET t.`_fivetran_active` = FALSE, t.`_fivetran_end` = s.`_fivetran_end` " +
+                        "WHERE t.`_fivetran_active` = TRUE AND s.n = 1",
+                JDBCUtil.escapeTable(database, table), keyColumns, keyColumns,
+                JDBCUtil.escapeIdentifier(SEQUENCE_COLUMN),
+                JDBCUtil.escapeTable(database, stagingTable), joinConditions());
+    }
+
+    @Override
+    public void commit() throws InterruptedException, IOException, SQLException {
+        if (loader == null) {
+            // nothing is written
+            return;
+        }
+
+        try {
+            loader.commit();
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(generateUpdateQuery());
+            }
+        } finally {
+            loader = null;
+        }
+    }
+}
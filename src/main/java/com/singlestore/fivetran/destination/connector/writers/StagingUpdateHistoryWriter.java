@@ -0,0 +1,235 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import com.google.protobuf.ByteString;
+import com.singlestore.fivetran.destination.connector.JDBCUtil;
+import com.singlestore.fivetran.destination.connector.warning_util.WarningHandler;
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.DataType;
+import fivetran_sdk.v2.FileParams;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Applies history mode update files with set-based queries instead of two queries per row.
+ * <p>
+ * Rows of a batch are loaded with LOAD DATA into a temporary table together with a mask of
+ * modified columns and their position in the file. Then the versions of each primary key are
+ * numbered by `_fivetran_start` with a window function, and every generation of versions is
+ * applied with one INSERT ... SELECT, which copies unmodified values from the active version, and
+ * one UPDATE ... JOIN, which closes the previous version. The result is the same as applying rows
+ * one by one in the order of `_fivetran_start` as {@link UpdateHistoryWriter} does.
+ * <p>
+ * The temporary tables live as long as the connection and are reused by the following batches.
+ */
+public class StagingUpdateHistoryWriter extends Writer {
+    static final String MASK_COLUMN = "__fivetran_mask";
+    static final String SEQUENCE_COLUMN = "__fivetran_sequence";
+    static final String GENERATION_COLUMN = "__fivetran_generation";
+
+    WarningHandler warningHandler;
+    List<Column> headerColumns = new ArrayList<>();
+    List<String> stagingHeader = new ArrayList<>();
+    Map<String, Integer> nameToHeaderPos = new HashMap<>();
+    String stagingTable;
+    String versionsTable;
+    LoadDataWriter<?> loader;
+    long sequence = 0;
+
+    public StagingUpdateHistoryWriter(Connection conn, String database, String table,
+                                      List<Column> columns, FileParams params,
+                                      Map<String, ByteString> secretKeys, Integer batchSize,
+                                      WarningHandler warningHandler) {
+        super(conn, database, table, columns, params, secretKeys, batchSize);
+        this.warningHandler = warningHandler;
+    }
+
+    @Override
+    public void setHeader(List<String> header) {
+        Map<String, Column> nameToColumn = new HashMap<>();
+        for (Column column : columns) {
+            nameToColumn.put(column.getName(), column);
+        }
+
+        headerColumns = new ArrayList<>();
+        nameToHeaderPos = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            headerColumns.add(nameToColumn.get(header.get(i)));
+            nameToHeaderPos.put(header.get(i), i);
+        }
+
+        if (!nameToHeaderPos.containsKey("_fivetran_start")) {
+            throw new IllegalArgumentException("File doesn't contain _fivetran_start column");
+        }
+
+        stagingHeader = new ArrayList<>(header);
+        stagingHeader.add(MASK_COLUMN);
+        stagingHeader.add(SEQUENCE_COLUMN);
+
+        stagingTable = StagingUpdateWriter.stagingTableName("__fivetran_history_", database,
+                table, stagingColumnDefinitions(false));
+        versionsTable = stagingTable + "_v";
+    }
+
+    private List<String> keyColumns() {
+        return headerColumns.stream()
+                .filter(c -> c.getPrimaryKey() && !c.getName().equals("_fivetran_start"))
+                .map(c -> JDBCUtil.escapeIdentifier(c.getName())).collect(Collectors.toList());
+    }
+
+    private String stagingColumnDefinitions(boolean withGeneration) {
+        List<String> definitions = new ArrayList<>();
+        for (Column c : headerColumns) {
+            definitions.add(StagingUpdateWriter.stagingColumnDefinition(c));
+        }
+        definitions.add(String.format("%s BLOB", JDBCUtil.escapeIdentifier(MASK_COLUMN)));
+        definitions.add(String.format("%s BIGINT", JDBCUtil.escapeIdentifier(SEQUENCE_COLUMN)));
+        if (withGeneration) {
+            definitions.add(String.format("%s INT", JDBCUtil.escapeIdentifier(GENERATION_COLUMN)));
+        }
+
+        List<String> keyColumns = keyColumns();
+        if (!keyColumns.isEmpty()) {
+            definitions.add(String.format("SHARD KEY (%s)", String.join(", ", keyColumns)));
+        }
+
+        return String.join(", ", definitions);
+    }
+
+    /**
+     * Creates the temporary tables if the connection doesn't have them yet, removes rows left by a
+     * failed batch and starts loading the batch.
+     */
+    private void startBatch() throws SQLException, IOException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("CREATE ROWSTORE TEMPORARY TABLE IF NOT EXISTS %s (%s)",
+                    JDBCUtil.escapeTable(database, stagingTable), stagingColumnDefinitions(false)));
+            stmt.execute(String.format("CREATE ROWSTORE TEMPORARY TABLE IF NOT EXISTS %s (%s)",
+                    JDBCUtil.escapeTable(database, versionsTable), stagingColumnDefinitions(true)));
+            stmt.execute(String.format("TRUNCATE TABLE %s",
+                    JDBCUtil.escapeTable(database, stagingTable)));
+            stmt.execute(String.format("TRUNCATE TABLE %s",
+                    JDBCUtil.escapeTable(database, versionsTable)));
+        }
+
+        List<Column> stagingColumns = new ArrayList<>(headerColumns);
+        stagingColumns.add(Column.newBuilder().setName(MASK_COLUMN).setType(DataType.STRING)
+                .build());
+        stagingColumns.add(Column.newBuilder().setName(SEQUENCE_COLUMN).setType(DataType.LONG)
+                .build());
+
+        loader = new LoadDataWriter<>(conn, database, stagingTable, stagingColumns, params,
+                secretKeys, batchSize, warningHandler);
+        loader.setHeader(stagingHeader);
+        sequence = 0;
+    }
+
+    @Override
+    public void writeRow(List<String> row) throws Exception {
+        if (loader == null) {
+            startBatch();
+        }
+
+        StringBuilder mask = new StringBuilder();
+        List<String> stagingRow = new ArrayList<>();
+        for (String value : row) {
+            boolean modified = !value.equals(params.getUnmodifiedString());
+            mask.append(modified ? '1' : '0');
+            stagingRow.add(modified ? value : params.getNullString());
+        }
+
+        stagingRow.add(mask.toString());
+        stagingRow.add(String.valueOf(sequence++));
+        loader.writeRow(stagingRow);
+    }
+
+    private String joinConditions() {
+        return keyColumns().stream().map(name -> String.format("t.%s = v.%s", name, name))
+                .collect(Collectors.joining(" AND "));
+    }
+
+    /**
+     * Numbers the versions of each key in the order they must be applied. Rows with equal
+     * `_fivetran_start` keep the order of the file.
+     */
+    private String generateNumberVersionsQuery() {
+        List<String> columns = stagingHeader.stream().map(JDBCUtil::escapeIdentifier)
+                .collect(Collectors.toList());
+        String columnList = String.join(", ", columns);
+
+        return String.format(
+                "INSERT INTO %s (%s, %s) SELECT %s, ROW_NUMBER() OVER (PARTITION BY %s ORDER BY `_fivetran_start`, %s) FROM %s",
+                JDBCUtil.escapeTable(database, versionsTable), columnList,
+                JDBCUtil.escapeIdentifier(GENERATION_COLUMN), columnList,
+                String.join(", ", keyColumns()), JDBCUtil.escapeIdentifier(SEQUENCE_COLUMN),
+                JDBCUtil.escapeTable(database, stagingTable));
+    }
+
+    private String generateInsertQuery(long generation) {
+        List<String> values = new ArrayList<>();
+        for (Column c : columns) {
+            String name = JDBCUtil.escapeIdentifier(c.getName());
+            Integer pos = nameToHeaderPos.get(c.getName());
+            if (pos == null) {
+                values.add(String.format("t.%s", name));
+            } else {
+                values.add(String.format("IF(SUBSTRING(v.%s, %d, 1) = '1', v.%s, t.%s)",
+                        JDBCUtil.escapeIdentifier(MASK_COLUMN), pos + 1, name, name));
+            }
+        }
+
+        return String.format(
+                "INSERT INTO %s SELECT %s FROM %s AS t JOIN %s AS v ON %s WHERE t.`_fivetran_active` = TRUE AND v.%s = %d",
+                JDBCUtil.escapeTable(database, table), String.join(", ", values),
+                JDBCUtil.escapeTable(database, table),
+                JDBCUtil.escapeTable(database, versionsTable), joinConditions(),
+                JDBCUtil.escapeIdentifier(GENERATION_COLUMN), generation);
+    }
+
+    private String generateUpdateQuery(long generation) {
+        return String.format(
+                "UPDATE %s AS t JOIN %s AS v ON %s SET t.`_fivetran_active` = FALSE, t.`_fivetran_end` = DATE_SUB(v.`_fivetran_start`, INTERVAL 1 MICROSECOND) WHERE t.`_fivetran_active` = TRUE AND t.`_fivetran_start` < v.`_fivetran_start` AND v.%s = %d",
+                JDBCUtil.escapeTable(database, table),
+                JDBCUtil.escapeTable(database, versionsTable), joinConditions(),
+                JDBCUtil.escapeIdentifier(GENERATION_COLUMN), generation);
+    }
+
+    @Override
+    public void commit() throws InterruptedException, IOException, SQLException {
+        if (loader == null) {
+            // nothing is written
+            return;
+        }
+
+        try {
+            loader.commit();
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(generateNumberVersionsQuery());
+
+                long generations;
+                try (ResultSet rs = stmt.executeQuery(String.format("SELECT MAX(%s) FROM %s",
+                        JDBCUtil.escapeIdentifier(GENERATION_COLUMN),
+                        JDBCUtil.escapeTable(database, versionsTable)))) {
+                    rs.next();
+                    generations = rs.getLong(1);
+                }
+
+                for (long generation = 1; generation <= generations; generation++) {
+                    stmt.execute(generateInsertQuery(generation));
+                    stmt.execute(generateUpdateQuery(generation));
+                }
+            }
+        } finally {
+            loader = null;
+        }
+    }
+}
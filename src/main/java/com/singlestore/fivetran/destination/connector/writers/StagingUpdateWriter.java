@@ -0,0 +1,217 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import com.google.protobuf.ByteString;
+import com.singlestore.fivetran.destination.connector.JDBCUtil;
+import com.singlestore.fivetran.destination.connector.warning_util.WarningHandler;
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.DataType;
+import fivetran_sdk.v2.FileParams;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Applies update files with a few set-based queries instead of one query per row.
+ * <p>
+ * Rows of a batch are loaded with LOAD DATA into a temporary staging table together with a mask
+ * that marks which columns are modified. Unmodified values are stored as NULL. Then the target
+ * table is updated with one UPDATE ... JOIN per distinct mask. If a key appears in several rows of
+ * a batch, its rows get increasing generations that are applied one after another, so the result
+ * is the same as applying rows one by one.
+ * <p>
+ * The staging table lives as long as the connection and is reused by the following batches.
+ */
+public class StagingUpdateWriter extends Writer {
+    static final String MASK_COLUMN = "__fivetran_mask";
+    static final String GENERATION_COLUMN = "__fivetran_generation";
+
+    WarningHandler warningHandler;
+    List<Column> headerColumns = new ArrayList<>();
+    List<String> stagingHeader = new ArrayList<>();
+    String stagingTable;
+    LoadDataWriter<?> loader;
+    // Keys are normalized, so rows whose keys are equal only in the database still get different
+    // generations
+    Map<String, Integer> generations = new HashMap<>();
+    TreeMap<Integer, Set<String>> masksByGeneration = new TreeMap<>();
+
+    public StagingUpdateWriter(Connection conn, String database, String table, List<Column> columns,
+                               FileParams params, Map<String, ByteString> secretKeys,
+                               Integer batchSize, WarningHandler warningHandler) {
+        super(conn, database, table, columns, params, secretKeys, batchSize);
+        this.warningHandler = warningHandler;
+    }
+
+    @Override
+    public void setHeader(List<String> header) {
+        Map<String, Column> nameToColumn = new HashMap<>();
+        for (Column column : columns) {
+            nameToColumn.put(column.getName(), column);
+        }
+
+        headerColumns = new ArrayList<>();
+        for (String name : header) {
+            headerColumns.add(nameToColumn.get(name));
+        }
+
+        stagingHeader = new ArrayList<>(header);
+        stagingHeader.add(MASK_COLUMN);
+        stagingHeader.add(GENERATION_COLUMN);
+
+        stagingTable = stagingTableName("__fivetran_update_", database, table,
+                stagingColumnDefinitions());
+    }
+
+    /**
+     * Returns the name of a temporary table. The name depends on the columns, so a changed schema
+     * gets a new table.
+     */
+    static String stagingTableName(String prefix, String database, String table,
+                                   String columnDefinitions) {
+        return prefix + UUID.nameUUIDFromBytes(String.format("%s.%s(%s)", database, table,
+                        columnDefinitions).getBytes(StandardCharsets.UTF_8))
+                .toString().replace("-", "");
+    }
+
+    /**
+     * Returns the definition of a temporary table column that holds values of the column. Binary
+     * values of any size are accepted, since LOAD DATA decodes them after loading.
+     */
+    static String stagingColumnDefinition(Column c) {
+        String type = c.getType() == DataType.BINARY
+                ? "LONGBLOB"
+                : JDBCUtil.mapDataTypes(c.getType(), c.getParams());
+        return String.format("%s %s", JDBCUtil.escapeIdentifier(c.getName()), type);
+    }
+
+    private String stagingColumnDefinitions() {
+        List<String> definitions = new ArrayList<>();
+        for (Column c : headerColumns) {
+            definitions.add(stagingColumnDefinition(c));
+        }
+        definitions.add(String.format("%s BLOB", JDBCUtil.escapeIdentifier(MASK_COLUMN)));
+        definitions.add(String.format("%s INT", JDBCUtil.escapeIdentifier(GENERATION_COLUMN)));
+
+        List<String> primaryKeyColumns = headerColumns.stream().filter(Column::getPrimaryKey)
+                .map(c -> JDBCUtil.escapeIdentifier(c.getName())).collect(Collectors.toList());
+        if (!primaryKeyColumns.isEmpty()) {
+            definitions.add(String.format("SHARD KEY (%s)", String.join(", ", primaryKeyColumns)));
+        }
+
+        return String.join(", ", definitions);
+    }
+
+    /**
+     * Creates the staging table if the connection doesn't have it yet, removes rows left by a
+     * failed batch and starts loading the batch.
+     */
+    private void startBatch() throws SQLException, IOException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("CREATE ROWSTORE TEMPORARY TABLE IF NOT EXISTS %s (%s)",
+                    JDBCUtil.escapeTable(database, stagingTable), stagingColumnDefinitions()));
+            stmt.execute(String.format("TRUNCATE TABLE %s",
+                    JDBCUtil.escapeTable(database, stagingTable)));
+        }
+
+        List<Column> stagingColumns = new ArrayList<>(headerColumns);
+        stagingColumns.add(Column.newBuilder().setName(MASK_COLUMN).setType(DataType.STRING)
+                .build());
+        stagingColumns.add(Column.newBuilder().setName(GENERATION_COLUMN).setType(DataType.INT)
+                .build());
+
+        loader = new LoadDataWriter<>(conn, database, stagingTable, stagingColumns, params,
+                secretKeys, batchSize, warningHandler);
+        loader.setHeader(stagingHeader);
+    }
+
+    @Override
+    public void writeRow(List<String> row) throws Exception {
+        StringBuilder mask = new StringBuilder();
+        List<String> stagingRow = new ArrayList<>();
+        boolean updatesColumns = false;
+        for (int i = 0; i < row.size(); i++) {
+            Column c = headerColumns.get(i);
+            String value = row.get(i);
+            boolean modified = !value.equals(params.getUnmodifiedString());
+            if (modified && !c.getPrimaryKey()) {
+                updatesColumns = true;
+            }
+
+            mask.append(modified ? '1' : '0');
+            stagingRow.add(modified || c.getPrimaryKey() ? value : params.getNullString());
+        }
+
+        if (!updatesColumns) {
+            // No column is updated
+            return;
+        }
+
+        if (loader == null) {
+            startBatch();
+        }
+
+        String key = DmlBatcher.rowKey(headerColumns, row, params.getNullString());
+        int generation = generations.merge(key, 0, (previous, ignored) -> previous + 1);
+        masksByGeneration.computeIfAbsent(generation, g -> new LinkedHashSet<>())
+                .add(mask.toString());
+
+        stagingRow.add(mask.toString());
+        stagingRow.add(String.valueOf(generation));
+        loader.writeRow(stagingRow);
+    }
+
+    private String generateUpdateQuery(String mask, int generation) {
+        List<String> joinConditions = new ArrayList<>();
+        List<String> assignments = new ArrayList<>();
+        for (int i = 0; i < headerColumns.size(); i++) {
+            String name = JDBCUtil.escapeIdentifier(headerColumns.get(i).getName());
+            if (headerColumns.get(i).getPrimaryKey()) {
+                joinConditions.add(String.format("t.%s = s.%s", name, name));
+            } else if (mask.charAt(i) == '1') {
+                assignments.add(String.format("t.%s = s.%s", name, name));
+            }
+        }
+
+        return String.format("UPDATE %s AS t JOIN %s AS s ON %s SET %s WHERE s.%s = %s AND s.%s = %d",
+                JDBCUtil.escapeTable(database, table), JDBCUtil.escapeTable(database, stagingTable),
+                String.join(" AND ", joinConditions), String.join(", ", assignments),
+                JDBCUtil.escapeIdentifier(MASK_COLUMN), JDBCUtil.escapeString(mask),
+                JDBCUtil.escapeIdentifier(GENERATION_COLUMN), generation);
+    }
+
+    @Override
+    public void commit() throws InterruptedException, IOException, SQLException {
+        if (loader == null) {
+            // nothing is written
+            return;
+        }
+
+        try {
+            loader.commit();
+
+            try (Statement stmt = conn.createStatement()) {
+                for (Map.Entry<Integer, Set<String>> entry : masksByGeneration.entrySet()) {
+                    for (String mask : entry.getValue()) {
+                        stmt.execute(generateUpdateQuery(mask, entry.getKey()));
+                    }
+                }
+            }
+        } finally {
+            loader = null;
+            generations.clear();
+            masksByGeneration.clear();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.singlestore.fivetran.destination.connector.writers;
+
+import fivetran_sdk.v2.Column;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges successive partial updates of a row into one update.
+ * <p>
+ * A later modified value of a column replaces an earlier one, and a column stays unmodified only if
+ * it is unmodified in all merged updates. Updates are merged only if their primary key values are
+ * the same strings. Pending updates are grouped by {@link DmlBatcher#rowKey}, so if an update has a
+ * key which may be equal to the key of a pending update in the database but is written
+ * differently, the pending update is emitted first and the order of the updates is kept.
+ * <p>
+ * Pending updates are emitted to the consumer when their estimated size exceeds the memory budget
+ * and on {@link #flush()}.
+ */
+public class UpdateCoalescer {
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+    // Rough size of the objects that hold a pending update and each of its values
+    private static final int ROW_OVERHEAD_BYTES = 128;
+    private static final int VALUE_OVERHEAD_BYTES = 48;
+
+    public interface RowConsumer {
+        void accept(List<String> row) throws SQLException;
+    }
+
+    private static class PendingUpdate {
+        final String exactKey;
+        final List<String> row;
+
+        PendingUpdate(String exactKey, List<String> row) {
+            this.exactKey = exactKey;
+            this.row = row;
+        }
+    }
+
+    private final List<Column> headerColumns;
+    private final String nullString;
+    private final String unmodifiedString;
+    private final long memoryBudget;
+    private final RowConsumer consumer;
+    private final Map<String, PendingUpdate> pending = new LinkedHashMap<>();
+    private long memoryUsed = 0;
+    private long merged = 0;
+
+    public UpdateCoalescer(List<Column> headerColumns, String nullString, String unmodifiedString,
+                           long memoryBudget, RowConsumer consumer) {
+        this.headerColumns = headerColumns;
+        this.nullString = nullString;
+        this.unmodifiedString = unmodifiedString;
+        this.memoryBudget = memoryBudget;
+        this.consumer = consumer;
+    }
+
+    private String exactKey(List<String> row) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < row.size(); i++) {
+            Column c = headerColumns.get(i);
+            if (c != null && c.getPrimaryKey()) {
+                key.append(row.get(i).length()).append(':').append(row.get(i)).append(';');
+            }
+        }
+
+        return key.toString();
+    }
+
+    private static long estimateSize(List<String> row) {
+        long size = ROW_OVERHEAD_BYTES;
+        for (String value : row) {
+            size += VALUE_OVERHEAD_BYTES + 2L * value.length();
+        }
+        return size;
+    }
+
+    public void add(List<String> row) throws SQLException {
+        String rowKey = DmlBatcher.rowKey(headerColumns, row, nullString);
+        String exactKey = exactKey(row);
+
+        PendingUpdate update = pending.get(rowKey);
+        if (update != null && update.exactKey.equals(exactKey)) {
+            for (int i = 0; i < row.size(); i++) {
+                String value = row.get(i);
+                if (!value.equals(unmodifiedString)) {
+                    memoryUsed += 2L * (value.length() - update.row.get(i).length());
+                    update.row.set(i, value);
+                }
+            }
+            merged++;
+        } else {
+            if (update != null) {
+                // The keys may be equal in the database, so the pending update must be applied first
+                pending.remove(rowKey);
+                memoryUsed -= estimateSize(update.row);
+                consumer.accept(update.row);
+            }
+
+            List<String> copy = new ArrayList<>(row);
+            pending.put(rowKey, new PendingUpdate(exactKey, copy));
+            memoryUsed += estimateSize(copy);
+        }
+
+        if (memoryUsed > memoryBudget) {
+            flush();
+        }
+    }
+
+    /**
+     * Passes all pending updates to the consumer.
+     */
+    public void flush() throws SQLException {
+        try {
+            Iterator<PendingUpdate> it = pending.values().iterator();
+            while (it.hasNext()) {
+                PendingUpdate update = it.next();
+                it.remove();
+                consumer.accept(update.row);
+            }
+        } finally {
+            pending.clear();
+            memoryUsed = 0;
+        }
+    }
+
+    /**
+     * Number of updates merged into earlier updates.
+     */
+    public long merged() {
+        return merged;
+    }
+}
@@ -5,23 +5,65 @@ import com.singlestore.fivetran.destination.connector.JDBCUtil;
 import fivetran_sdk.v2.Column;
 import fivetran_sdk.v2.DataType;
 import fivetran_sdk.v2.FileParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Applies history mode update files row by row in the order of `_fivetran_start`.
+ * <p>
+ * With parallelism greater than 1, rows are partitioned by a hash of their primary key and each
+ * partition is applied on its own pooled connection. Versions of a row always fall into the same
+ * partition, so they are still applied in order. If fewer connections are free, the partitions are
+ * shared by the connections that are.
+ */
 public class UpdateHistoryWriter extends Writer {
+    private static final Logger logger = LoggerFactory.getLogger(UpdateHistoryWriter.class);
 
-    private final List<List<String>> rows = new ArrayList<>();
+    private final int parallelism;
+    private final Callable<Connection> connectionFactory;
+    private final SpillingRowSorter[] partitions;
 
     public UpdateHistoryWriter(Connection conn, String database, String table, List<Column> columns,
                                FileParams params, Map<String, ByteString> secretKeys, Integer batchSize) {
+        this(conn, database, table, columns, params, secretKeys, batchSize, 1, null);
+    }
+
+    /**
+     * The connection factory provides additional connections for partitions besides the given
+     * connection. It must not wait for a connection, and returns null if none is free.
+     */
+    public UpdateHistoryWriter(Connection conn, String database, String table, List<Column> columns,
+                               FileParams params, Map<String, ByteString> secretKeys, Integer batchSize,
+                               int parallelism, Callable<Connection> connectionFactory) {
         super(conn, database, table, columns, params, secretKeys, batchSize);
+        this.batcher = new DmlBatcher(conn, database, table, params.getNullString(), batchSize);
+        this.parallelism = parallelism;
+        this.connectionFactory = connectionFactory;
+        this.partitions = new SpillingRowSorter[parallelism];
+        // The memory budget is shared by all partitions
+        for (int i = 0; i < parallelism; i++) {
+            partitions[i] = new SpillingRowSorter(
+                    Math.max(1, SpillingRowSorter.defaultMemoryBudget() / parallelism));
+        }
     }
 
+    DmlBatcher batcher;
+    String shapeId;
+
 
     List<Column> headerColumns = new ArrayList<>();
     Integer fivetranStartPos;
@@ -30,6 +72,7 @@ public class UpdateHistoryWriter extends Writer {
 
     @Override
     public void setHeader(List<String> header) {
+        nameToHeaderPos = new HashMap<>();
         for (int i = 0; i < header.size(); i++) {
             nameToHeaderPos.put(header.get(i), i);
         }
@@ -39,6 +82,8 @@ public class UpdateHistoryWriter extends Writer {
             nameToColumn.put(column.getName(), column);
         }
 
+        headerColumns = new ArrayList<>();
+        fivetranStartPos = null;
         for (int i = 0; i < header.size(); i++) {
             String name = header.get(i);
             if (name.equals("_fivetran_start")) {
@@ -50,45 +95,208 @@ public class UpdateHistoryWriter extends Writer {
         if (fivetranStartPos == null) {
             throw new IllegalArgumentException("File doesn't contain _fivetran_start column");
         }
+
+        shapeId = DmlBatcher.shapeId(columns, header);
+    }
+
+    @Override
+    public void writeRow(List<String> row) throws SQLException, IOException {
+        int partition = 0;
+        if (parallelism > 1) {
+            // Keys that may be equal in the database have equal normalized keys
+            partition = Math.floorMod(
+                    DmlBatcher.rowKey(headerColumns, row, params.getNullString()).hashCode(),
+                    parallelism);
+        }
+
+        partitions[partition].add(JDBCUtil.parseEpochMicros(row.get(fivetranStartPos)), row);
     }
 
     @Override
-    public void writeRow(List<String> row) throws SQLException {
-        rows.add(row);
+    public void write(String file, InputStream is) throws Exception {
+        try {
+            super.write(file, is);
+        } finally {
+            // Delete spilled rows if the file fails before it is committed
+            for (SpillingRowSorter partition : partitions) {
+                partition.clear();
+            }
+        }
     }
 
     @Override
-    public void commit() throws SQLException {
-        rows.sort(Comparator.comparing(row -> {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
-            String dateString = JDBCUtil.formatISODateTime(row.get(fivetranStartPos));
+    public void commit() throws InterruptedException, IOException, SQLException {
+        try {
+            if (parallelism <= 1) {
+                applyPartition(partitions[0], batcher, new AtomicBoolean(false));
+            } else {
+                applyPartitionsInParallel();
+            }
+        } finally {
+            for (SpillingRowSorter partition : partitions) {
+                partition.clear();
+            }
+        }
+    }
 
-            return LocalDateTime.parse(dateString, formatter);
-        }));
-        for (List<String> row : rows) {
-            processRow(row);
+    private void applyPartition(SpillingRowSorter partition, DmlBatcher batcher,
+                                AtomicBoolean failed) throws SQLException, IOException {
+        try {
+            partition.forEachSorted(row -> {
+                // Stop applying rows as soon as any of the partitions fails
+                if (!failed.get()) {
+                    processRow(batcher, row);
+                }
+            });
+            if (!failed.get()) {
+                batcher.flush();
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            failed.set(true);
+            throw e;
+        }
+    }
+
+    private void applyPartitionsInParallel()
+            throws InterruptedException, IOException, SQLException {
+        ConcurrentLinkedQueue<SpillingRowSorter> queue = new ConcurrentLinkedQueue<>();
+        for (SpillingRowSorter partition : partitions) {
+            if (partition.size() != 0) {
+                queue.add(partition);
+            }
+        }
+
+        List<Connection> workerConns = new ArrayList<>();
+        try {
+            int partitionCount = queue.size();
+            for (int i = 1; i < partitionCount; i++) {
+                Connection workerConn;
+                try {
+                    workerConn = connectionFactory.call();
+                } catch (Exception e) {
+                    logger.warn("Failed to get a connection for history mode updates", e);
+                    workerConn = null;
+                }
+                if (workerConn == null) {
+                    break;
+                }
+                workerConns.add(workerConn);
+            }
+            if (workerConns.size() + 1 < partitionCount) {
+                logger.info(String.format(
+                        "Applying history mode updates of %s with %d of %d connections, other connections of the pool are in use",
+                        JDBCUtil.escapeTable(database, table), workerConns.size() + 1,
+                        partitionCount));
+            }
+
+            if (workerConns.isEmpty()) {
+                applyFromQueue(queue, batcher, new AtomicBoolean(false));
+                return;
+            }
+            applyInParallel(queue, workerConns);
+        } finally {
+            for (Connection workerConn : workerConns) {
+                workerConn.close();
+            }
         }
-        rows.clear();
     }
 
-    private void processRow(List<String> row) throws SQLException {
-        insertNewRow(row);
-        updateOldRow(row);
+    private void applyFromQueue(ConcurrentLinkedQueue<SpillingRowSorter> queue,
+                                DmlBatcher batcher, AtomicBoolean failed)
+            throws SQLException, IOException {
+        SpillingRowSorter partition;
+        while (!failed.get() && (partition = queue.poll()) != null) {
+            applyPartition(partition, batcher, failed);
+        }
     }
 
-    private void insertNewRow(List<String> row) throws SQLException {
+    private void applyInParallel(ConcurrentLinkedQueue<SpillingRowSorter> queue,
+                                 List<Connection> workerConns)
+            throws InterruptedException, IOException, SQLException {
+        AtomicBoolean failed = new AtomicBoolean(false);
+        AtomicInteger threadId = new AtomicInteger();
+        // The calling thread applies partitions too
+        ExecutorService executor = Executors.newFixedThreadPool(workerConns.size(), r -> {
+            Thread t = new Thread(r, String.format("history-writer-%s-%d", table,
+                    threadId.incrementAndGet()));
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Connection workerConn : workerConns) {
+                futures.add(executor.submit(() -> {
+                    applyFromQueue(queue, new DmlBatcher(workerConn, database, table,
+                            params.getNullString(), batchSize), failed);
+                    return null;
+                }));
+            }
+
+            Exception error = null;
+            int failedWorkers = 0;
+            try {
+                applyFromQueue(queue, batcher, failed);
+            } catch (Exception e) {
+                failedWorkers++;
+                error = e;
+            }
+
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    failedWorkers++;
+                    Exception cause = e.getCause() instanceof Exception
+                            ? (Exception) e.getCause()
+                            : new Exception(e.getCause());
+                    if (error == null) {
+                        error = cause;
+                    } else {
+                        error.addSuppressed(cause);
+                    }
+                }
+            }
+
+            if (error != null) {
+                logger.warn(String.format("%d of %d history update workers failed for %s",
+                        failedWorkers, workerConns.size() + 1,
+                        JDBCUtil.escapeTable(database, table)));
+                if (error instanceof SQLException) {
+                    throw (SQLException) error;
+                } else if (error instanceof IOException) {
+                    throw (IOException) error;
+                } else if (error instanceof InterruptedException) {
+                    throw (InterruptedException) error;
+                }
+                throw new SQLException("Failed to apply history mode updates", error);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void processRow(DmlBatcher batcher, List<String> row) throws SQLException {
+        insertNewRow(batcher, row);
+        updateOldRow(batcher, row);
+    }
+
+    /**
+     * Mask contains '1' for each column of the table that is modified by the row.
+     */
+    private String generateInsertQuery(String mask) {
         StringBuilder insertQuery = new StringBuilder(String.format(
                 "INSERT INTO %s SELECT ",
                 JDBCUtil.escapeTable(database, table)));
 
         boolean firstColumn = true;
-        for (Column c : columns) {
+        for (int i = 0; i < columns.size(); i++) {
+            Column c = columns.get(i);
             if (!firstColumn) {
                 insertQuery.append(", ");
             }
 
-            Integer pos = nameToHeaderPos.get(c.getName());
-            if (pos == null || row.get(pos).equals(params.getUnmodifiedString())) {
+            if (mask.charAt(i) == '0') {
                 insertQuery.append(JDBCUtil.escapeIdentifier(c.getName()));
             } else {
                 insertQuery.append("?");
@@ -105,61 +313,74 @@ public class UpdateHistoryWriter extends Writer {
             }
         }
 
-        int paramIndex = 0;
-        try (PreparedStatement stmt = conn.prepareStatement(insertQuery.toString())) {
-            for (Column c : columns) {
-                Integer pos = nameToHeaderPos.get(c.getName());
-                if (pos != null && !row.get(pos).equals(params.getUnmodifiedString())) {
-                    paramIndex++;
-                    JDBCUtil.setParameter(stmt, paramIndex, c.getType(), row.get(pos), params.getNullString());
-                }
-            }
+        return insertQuery.toString();
+    }
 
-            for (int i = 0; i < row.size(); i++) {
-                String value = row.get(i);
-                Column c = headerColumns.get(i);
-                if (c != null && c.getPrimaryKey() && !c.getName().equals("_fivetran_start")) {
-                    paramIndex++;
-                    JDBCUtil.setParameter(stmt, paramIndex, c.getType(), value, params.getNullString());
-                }
+    private void insertNewRow(DmlBatcher batcher, List<String> row) throws SQLException {
+        StringBuilder mask = new StringBuilder();
+        List<DataType> types = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        for (Column c : columns) {
+            Integer pos = nameToHeaderPos.get(c.getName());
+            if (pos != null && !row.get(pos).equals(params.getUnmodifiedString())) {
+                mask.append('1');
+                types.add(c.getType());
+                values.add(row.get(pos));
+            } else {
+                mask.append('0');
             }
+        }
 
-            stmt.execute();
+        for (int i = 0; i < row.size(); i++) {
+            String value = row.get(i);
+            Column c = headerColumns.get(i);
+            if (c != null && c.getPrimaryKey() && !c.getName().equals("_fivetran_start")) {
+                types.add(c.getType());
+                values.add(value);
+            }
         }
+
+        String insertMask = mask.toString();
+        batcher.add("historyInsert:" + shapeId + ":" + insertMask,
+                () -> generateInsertQuery(insertMask), types, values,
+                DmlBatcher.rowKey(headerColumns, row, params.getNullString()));
     }
 
-    private void updateOldRow(List<String> row) throws SQLException {
+    private String generateUpdateQuery() {
         StringBuilder updateQuery = new StringBuilder(String.format(
                 "UPDATE %s SET `_fivetran_active` = FALSE, `_fivetran_end` = DATE_SUB(?,  INTERVAL 1 MICROSECOND) WHERE `_fivetran_active` = TRUE AND `_fivetran_start` < ? ",
                 JDBCUtil.escapeTable(database, table)));
 
-        for (int i = 0; i < row.size(); i++) {
-            Column c = headerColumns.get(i);
+        for (Column c : headerColumns) {
             if (c != null && c.getPrimaryKey() && !c.getName().equals("_fivetran_start")) {
                 updateQuery.append(
                         String.format("AND %s = ? ", JDBCUtil.escapeIdentifier(c.getName())));
             }
         }
 
-        int paramIndex = 0;
-        try (PreparedStatement stmt = conn.prepareStatement(updateQuery.toString())) {
-            paramIndex++;
-            JDBCUtil.setParameter(stmt, paramIndex, DataType.UTC_DATETIME, row.get(fivetranStartPos), params.getNullString());
-            paramIndex++;
-            JDBCUtil.setParameter(stmt, paramIndex, DataType.UTC_DATETIME, row.get(fivetranStartPos), params.getNullString());
+        return updateQuery.toString();
+    }
 
-            for (int i = 0; i < row.size(); i++) {
-                String value = row.get(i);
-                Column c = headerColumns.get(i);
-                if (c == null || !c.getPrimaryKey() || c.getName().equals("_fivetran_start")) {
-                    continue;
-                }
+    private void updateOldRow(DmlBatcher batcher, List<String> row) throws SQLException {
+        List<DataType> types = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        types.add(DataType.UTC_DATETIME);
+        values.add(row.get(fivetranStartPos));
+        types.add(DataType.UTC_DATETIME);
+        values.add(row.get(fivetranStartPos));
 
-                paramIndex++;
-                JDBCUtil.setParameter(stmt, paramIndex, c.getType(), value, params.getNullString());
+        for (int i = 0; i < row.size(); i++) {
+            String value = row.get(i);
+            Column c = headerColumns.get(i);
+            if (c == null || !c.getPrimaryKey() || c.getName().equals("_fivetran_start")) {
+                continue;
             }
 
-            stmt.execute();
+            types.add(c.getType());
+            values.add(value);
         }
+
+        batcher.add("historyUpdate:" + shapeId, this::generateUpdateQuery, types, values,
+                DmlBatcher.rowKey(headerColumns, row, params.getNullString()));
     }
 }
@@ -3,6 +3,7 @@ package com.singlestore.fivetran.destination.connector.writers;
 import com.google.protobuf.ByteString;
 import com.singlestore.fivetran.destination.connector.JDBCUtil;
 import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.DataType;
 import fivetran_sdk.v2.FileParams;
 
 import java.sql.*;
@@ -11,12 +12,21 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Applies update files with an UPDATE statement per row. Successive updates of a row within a
+ * batch are merged by an {@link UpdateCoalescer}, so only one statement is executed for them.
+ */
 public class UpdateWriter extends Writer {
     public UpdateWriter(Connection conn, String database, String table, List<Column> columns,
                         FileParams params, Map<String, ByteString> secretKeys, Integer batchSize) {
         super(conn, database, table, columns, params, secretKeys, batchSize);
+        this.batcher = new DmlBatcher(conn, database, table, params.getNullString(), batchSize);
     }
 
+    DmlBatcher batcher;
+    UpdateCoalescer coalescer;
+    String shapeId;
+
     List<Column> headerColumns = new ArrayList<>();
 
     @Override
@@ -26,13 +36,18 @@ public class UpdateWriter extends Writer {
             nameToColumn.put(column.getName(), column);
         }
 
+        headerColumns = new ArrayList<>();
         for (String name : header) {
             headerColumns.add(nameToColumn.get(name));
         }
+
+        shapeId = DmlBatcher.shapeId(columns, header);
+        coalescer = new UpdateCoalescer(headerColumns, params.getNullString(),
+                params.getUnmodifiedString(), UpdateCoalescer.DEFAULT_MEMORY_BUDGET,
+                this::applyRow);
     }
 
-    @Override
-    public void writeRow(List<String> row) throws SQLException {
+    private String generateUpdateQuery(String mask) {
         StringBuilder updateClause = new StringBuilder(
                 String.format("UPDATE %s SET ", JDBCUtil.escapeTable(database, table)));
         StringBuilder whereClause = new StringBuilder("WHERE ");
@@ -40,9 +55,9 @@ public class UpdateWriter extends Writer {
         boolean firstUpdateColumn = true;
         boolean firstPKColumn = true;
 
-        for (int i = 0; i < row.size(); i++) {
+        for (int i = 0; i < headerColumns.size(); i++) {
             Column c = headerColumns.get(i);
-            if (!row.get(i).equals(params.getUnmodifiedString())) {
+            if (mask.charAt(i) == '1') {
                 if (firstUpdateColumn) {
                     updateClause.append(
                             String.format("%s = ? ", JDBCUtil.escapeIdentifier(c.getName())));
@@ -65,42 +80,56 @@ public class UpdateWriter extends Writer {
             }
         }
 
-        if (firstUpdateColumn) {
-            // No column is updated
-            return;
-        }
-
-        String query = updateClause.toString() + " " + whereClause;
+        return updateClause.toString() + " " + whereClause;
+    }
 
-        int paramIndex = 0;
-        try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
-            for (int i = 0; i < row.size(); i++) {
-                String value = row.get(i);
-                if (value.equals(params.getUnmodifiedString())) {
-                    continue;
-                }
+    @Override
+    public void writeRow(List<String> row) throws SQLException {
+        coalescer.add(row);
+    }
 
-                paramIndex++;
-                JDBCUtil.setParameter(stmt, paramIndex, headerColumns.get(i).getType(), value,
-                        params.getNullString());
+    private void applyRow(List<String> row) throws SQLException {
+        StringBuilder mask = new StringBuilder();
+        List<DataType> types = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < row.size(); i++) {
+            String value = row.get(i);
+            if (value.equals(params.getUnmodifiedString())) {
+                mask.append('0');
+                continue;
             }
 
-            for (int i = 0; i < row.size(); i++) {
-                String value = row.get(i);
-                if (!headerColumns.get(i).getPrimaryKey()) {
-                    continue;
-                }
+            mask.append('1');
+            types.add(headerColumns.get(i).getType());
+            values.add(value);
+        }
+
+        if (values.isEmpty()) {
+            // No column is updated
+            return;
+        }
 
-                paramIndex++;
-                JDBCUtil.setParameter(stmt, paramIndex, headerColumns.get(i).getType(), value,
-                        params.getNullString());
+        for (int i = 0; i < row.size(); i++) {
+            String value = row.get(i);
+            if (!headerColumns.get(i).getPrimaryKey()) {
+                continue;
             }
 
-            stmt.execute();
+            types.add(headerColumns.get(i).getType());
+            values.add(value);
         }
+
+        String updateMask = mask.toString();
+        batcher.add("update:" + shapeId + ":" + updateMask,
+                () -> generateUpdateQuery(updateMask), types, values,
+                DmlBatcher.rowKey(headerColumns, row, params.getNullString()));
     }
 
     @Override
-    public void commit() {
+    public void commit() throws SQLException {
+        if (coalescer != null) {
+            coalescer.flush();
+        }
+        batcher.flush();
     }
 }
@@ -2,6 +2,8 @@ package com.singlestore.fivetran.destination.connector.writers;
 
 import com.github.luben.zstd.ZstdInputStream;
 import com.google.protobuf.ByteString;
+import com.singlestore.fivetran.destination.connector.metrics.DestinationMetrics;
+import com.singlestore.fivetran.destination.connector.metrics.TimedInputStream;
 import com.opencsv.CSVParserBuilder;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
@@ -77,12 +79,30 @@ abstract public class Writer {
     }
 
     public void write(String file) throws Exception {
-        try (FileInputStream is = new FileInputStream(file)) {
-            write(file, is);
+        try (TimedInputStream is = new TimedInputStream(new FileInputStream(file), false)) {
+            try {
+                write(file, is);
+            } finally {
+                DestinationMetrics.WRITER_BYTES.labels(writerType()).add(is.getCount());
+            }
         }
     }
 
-    public void write(String file, InputStream is) throws Exception {
+    /**
+     * Name of the writer in metrics. Anonymous writers are named after the enclosing class.
+     */
+    String writerType() {
+        Class<?> c = getClass();
+        while (c.isAnonymousClass()) {
+            c = c.getEnclosingClass();
+        }
+        return c.getSimpleName();
+    }
+
+    /**
+     * Decrypts and decompresses the file according to the file params, returning CSV bytes.
+     */
+    InputStream decode(String file, InputStream is) throws Exception {
         InputStream decoded = is;
         if (params.getEncryption() == Encryption.AES) {
             decoded = decodeAES(is, secretKeys.get(file).toByteArray(), file);
@@ -95,6 +115,12 @@ abstract public class Writer {
             uncompressed = new GZIPInputStream(decoded);
         }
 
+        return uncompressed;
+    }
+
+    public void write(String file, InputStream is) throws Exception {
+        InputStream uncompressed = decode(file, is);
+
         try (CSVReader csvReader =
                 new CSVReaderBuilder(new BufferedReader(new InputStreamReader(uncompressed)))
                         .withCSVParser(new CSVParserBuilder().withEscapeChar('\0').build())
@@ -110,15 +136,21 @@ abstract public class Writer {
 
             String[] tokens;
             int rowsInBatch = 0;
-            while ((tokens = csvReader.readNext()) != null) {
-                List<String> row = new ArrayList<>(Arrays.asList(tokens));
-                writeRow(row);
-                rowsInBatch++;
-                if (rowsInBatch == batchSize) {
-                    commit();
-                    setHeader(header);
-                    rowsInBatch = 0;
+            long rows = 0;
+            try {
+                while ((tokens = csvReader.readNext()) != null) {
+                    List<String> row = new ArrayList<>(Arrays.asList(tokens));
+                    writeRow(row);
+                    rows++;
+                    rowsInBatch++;
+                    if (rowsInBatch == batchSize) {
+                        commit();
+                        setHeader(header);
+                        rowsInBatch = 0;
+                    }
                 }
+            } finally {
+                DestinationMetrics.WRITER_ROWS.labels(writerType()).add(rows);
             }
         }
 
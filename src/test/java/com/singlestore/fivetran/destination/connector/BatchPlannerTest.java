@@ -0,0 +1,148 @@
+package com.singlestore.fivetran.destination.connector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.singlestore.fivetran.destination.connector.writers.BatchPlanner;
+import com.singlestore.fivetran.destination.connector.writers.CsvRecordReader;
+import com.singlestore.fivetran.destination.connector.writers.LoadDataWriter;
+import com.singlestore.fivetran.destination.connector.writers.Writer;
+
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.DataType;
+import fivetran_sdk.v2.FileParams;
+
+public class BatchPlannerTest extends IntegrationTestBase {
+    private static final List<Column> columns = List.of(
+            Column.newBuilder().setName("id").setType(DataType.STRING).setPrimaryKey(true).build(),
+            Column.newBuilder().setName("a").setType(DataType.STRING).build(),
+            Column.newBuilder().setName("b").setType(DataType.STRING).build());
+    private static final FileParams params = FileParams.newBuilder().setNullString("NULL")
+            .setUnmodifiedString("unm").build();
+
+    private String writeFile(String content) throws Exception {
+        Path file = Files.createTempFile("plan", ".csv");
+        file.toFile().deleteOnExit();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file.toString();
+    }
+
+    private List<List<String>> loadedRows(BatchPlanner planner, int fileIndex, String content)
+            throws Exception {
+        LoadDataWriter.RowFilter filter = planner.replaceFilter(fileIndex);
+        CsvRecordReader reader = new CsvRecordReader(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        reader.next();
+        List<String> header = new ArrayList<>();
+        for (int i = 0; i < reader.fieldCount(); i++) {
+            header.add(reader.getString(i));
+        }
+        filter.setHeader(header);
+
+        List<List<String>> rows = new ArrayList<>();
+        while (reader.next()) {
+            if (!filter.accept(reader)) {
+                continue;
+            }
+            List<String> replacement = filter.replacement(reader);
+            if (replacement != null) {
+                rows.add(replacement);
+            } else {
+                List<String> row = new ArrayList<>();
+                for (int i = 0; i < reader.fieldCount(); i++) {
+                    row.add(reader.getString(i));
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private List<List<String>> appliedUpdates(BatchPlanner planner, String file) throws Exception {
+        List<List<String>> rows = new ArrayList<>();
+        Writer w = planner.updateWriter(new Writer(null, null, null, columns, params, null, 100) {
+            @Override
+            public void setHeader(List<String> header) {
+            }
+
+            @Override
+            public void writeRow(List<String> row) {
+                rows.add(row);
+            }
+
+            @Override
+            public void commit() {
+            }
+        });
+        w.write(file);
+        return rows;
+    }
+
+    @Test
+    public void skipsDeletedAndMergesUpdates() throws Exception {
+        String replace1 = "id,a,b\n1,a1,b1\n2,a2,b2\n3,a3,b3\n";
+        String replace2 = "b,id,a\nc1,1,c1\n";
+        String update = "id,a,b\n1,unm,u1\n4,u4,unm\n1,v1,unm\n5,u5,unm\n";
+        String delete = "id,a,b\n2,unm,unm\n5,unm,unm\n";
+
+        BatchPlanner planner = new BatchPlanner(columns, params, null);
+        String updateFile = writeFile(update);
+        assertTrue(planner.plan(List.of(writeFile(replace1), writeFile(replace2)),
+                List.of(updateFile), List.of(writeFile(delete))));
+
+        // Updates of key 1 are merged into its last replace row, key 2 is deleted
+        assertEquals(List.of(List.of("1", "a1", "b1"), List.of("3", "a3", "b3")),
+                loadedRows(planner, 0, replace1));
+        assertEquals(List.of(List.of("u1", "1", "v1")), loadedRows(planner, 1, replace2));
+
+        // Key 4 isn't replaced and key 5 is deleted
+        assertEquals(List.of(List.of("4", "u4", "unm")), appliedUpdates(planner, updateFile));
+        assertEquals(1, planner.skippedReplaceRows());
+        assertEquals(3, planner.skippedUpdateRows());
+    }
+
+    @Test
+    public void keysWhichMayBeEqualAreNotMerged() throws Exception {
+        String replace = "id,a,b\nx,a1,b1\n";
+        String update = "id,a,b\nx,u1,unm\nX,u2,unm\n";
+
+        BatchPlanner planner = new BatchPlanner(columns, params, null);
+        String updateFile = writeFile(update);
+        assertTrue(planner.plan(List.of(writeFile(replace)), List.of(updateFile), List.of()));
+
+        assertEquals(List.of(List.of("x", "a1", "b1")), loadedRows(planner, 0, replace));
+        assertEquals(List.of(List.of("x", "u1", "unm"), List.of("X", "u2", "unm")),
+                appliedUpdates(planner, updateFile));
+    }
+
+    @Test
+    public void missingKeyColumn() throws Exception {
+        BatchPlanner planner = new BatchPlanner(columns, params, null);
+        assertFalse(planner.plan(List.of(), List.of(writeFile("a,b\n1,2\n")), List.of()));
+    }
+
+    @Test
+    public void memoryBudget() throws Exception {
+        // Few keys, but wide update values
+        StringBuilder updates = new StringBuilder("id,a,b\n");
+        for (int i = 0; i < 10; i++) {
+            updates.append(i).append(',').append("x".repeat(100000)).append(",unm\n");
+        }
+        String updateFile = writeFile(updates.toString());
+
+        assertFalse(new BatchPlanner(columns, params, null, 1024L * 1024)
+                .plan(List.of(), List.of(updateFile), List.of()));
+        assertTrue(new BatchPlanner(columns, params, null, 4L * 1024 * 1024)
+                .plan(List.of(), List.of(updateFile), List.of()));
+    }
+}
@@ -0,0 +1,151 @@
+package com.singlestore.fivetran.destination.connector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class ConnectionPoolTest extends IntegrationTestBase {
+    private long connectionId(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT CONNECTION_ID()")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    public void reusesConnection() throws Exception {
+        ConnectionPool pool = new ConnectionPool();
+
+        long id;
+        try (Connection conn = pool.getConnection(conf)) {
+            id = connectionId(conn);
+        }
+        try (Connection conn = pool.getConnection(conf)) {
+            assertEquals(id, connectionId(conn));
+        }
+
+        assertEquals(1, pool.getStats().created());
+        assertEquals(1, pool.getStats().reused());
+        assertEquals(0, pool.getStats().active());
+        assertEquals(1, pool.getStats().idle());
+    }
+
+    @Test
+    public void concurrentBorrowsGetDifferentConnections() throws Exception {
+        ConnectionPool pool = new ConnectionPool();
+
+        try (Connection conn1 = pool.getConnection(conf);
+             Connection conn2 = pool.getConnection(conf)) {
+            assertNotEquals(connectionId(conn1), connectionId(conn2));
+            assertEquals(2, pool.getStats().active());
+        }
+
+        assertEquals(2, pool.getStats().idle());
+    }
+
+    @Test
+    public void differentConfigurations() throws Exception {
+        ConnectionPool pool = new ConnectionPool();
+        SingleStoreConfiguration other = new SingleStoreConfiguration(ImmutableMap.of(
+                "host", host, "port", port, "user", user, "password", password,
+                "batch.size", "100"));
+        SingleStoreConfiguration withDatabase = new SingleStoreConfiguration(ImmutableMap.of(
+                "host", host, "port", port, "user", user, "password", password,
+                "database", database));
+
+        // batch.size doesn't affect the connection, so it is shared
+        assertEquals(conf.fingerprint(), other.fingerprint());
+        assertNotEquals(conf.fingerprint(), withDatabase.fingerprint());
+
+        try (Connection conn = pool.getConnection(conf)) {
+        }
+        try (Connection conn = pool.getConnection(other)) {
+        }
+        try (Connection conn = pool.getConnection(withDatabase)) {
+        }
+
+        assertEquals(2, pool.getStats().keys());
+        assertEquals(2, pool.getStats().created());
+    }
+
+    @Test
+    public void resetsTransactionOnRelease() throws Exception {
+        ConnectionPool pool = new ConnectionPool();
+
+        try (Connection conn = pool.getConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("CREATE TABLE `%s`.`poolRollback`(id INT PRIMARY KEY)", database));
+            conn.setAutoCommit(false);
+            stmt.execute(String.format("INSERT INTO `%s`.`poolRollback` VALUES(1)", database));
+        }
+
+        try (Connection conn = pool.getConnection(conf)) {
+            assertTrue(conn.getAutoCommit());
+        }
+
+        checkResult("SELECT * FROM `poolRollback`", List.of());
+    }
+
+    @Test
+    public void closedLease() throws Exception {
+        ConnectionPool pool = new ConnectionPool();
+
+        Connection conn = pool.getConnection(conf);
+        assertFalse(conn.isClosed());
+        conn.close();
+        assertTrue(conn.isClosed());
+        // Closing twice must not return the connection to the pool twice
+        conn.close();
+        assertEquals(1, pool.getStats().idle());
+
+        assertThrows(SQLException.class, conn::createStatement);
+    }
+
+    @Test
+    public void closesStatementsOnRelease() throws Exception {
+        ConnectionPool pool = new ConnectionPool();
+
+        Statement stmt;
+        PreparedStatement prepared;
+        try (Connection conn = pool.getConnection(conf)) {
+            stmt = conn.createStatement();
+            prepared = conn.prepareStatement("SELECT ?");
+            assertTrue(conn.isWrapperFor(PreparedStatementCache.class));
+        }
+
+        assertTrue(stmt.isClosed());
+        assertTrue(prepared.isClosed());
+    }
+
+    @Test
+    public void tryGetConnectionDoesNotWait() throws Exception {
+        ConnectionPool pool = new ConnectionPool();
+        pool.configure(1, 60000);
+
+        try (Connection conn = pool.getConnection(conf)) {
+            assertNull(pool.tryGetConnection(conf));
+        }
+        try (Connection conn = pool.tryGetConnection(conf)) {
+            assertNotNull(conn);
+        }
+
+        assertEquals(0, pool.getStats().borrowTimeouts());
+        assertEquals(1, pool.getStats().created());
+    }
+}
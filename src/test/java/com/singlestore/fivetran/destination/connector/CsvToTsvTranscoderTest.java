@@ -0,0 +1,67 @@
+package com.singlestore.fivetran.destination.connector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.singlestore.fivetran.destination.connector.writers.CsvRecordReader;
+import com.singlestore.fivetran.destination.connector.writers.CsvToTsvTranscoder;
+
+import fivetran_sdk.v2.DataType;
+
+public class CsvToTsvTranscoderTest extends IntegrationTestBase {
+    private String transcode(String csv, List<DataType> types) throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+        CsvToTsvTranscoder transcoder = new CsvToTsvTranscoder(types, "NULL");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while (reader.next()) {
+            transcoder.append(reader, out);
+        }
+        transcoder.flush(out);
+
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void quoting() throws Exception {
+        List<DataType> types = List.of(DataType.STRING, DataType.STRING, DataType.STRING);
+
+        assertEquals("a\tb\tc\n", transcode("a,b,c\n", types));
+        assertEquals("a,b\tq\"q\t\n", transcode("\"a,b\",\"q\"\"q\",\"\"\n", types));
+        assertEquals("multi\\nline\tcr\\nlf\tx\ny\t\t\n",
+                transcode("\"multi\nline\",\"cr\r\nlf\",x\r\ny,,", types));
+        assertEquals("tab\\there\tback\\\\slash\tü日本\n",
+                transcode("\"tab\there\",back\\slash,ü日本\n", types));
+        // Empty line is a record with a single empty value
+        assertEquals("a\n\nb\n", transcode("a\n\nb\n", types));
+    }
+
+    @Test
+    public void booleansAndDateTimes() throws Exception {
+        List<DataType> types = List.of(DataType.BOOLEAN, DataType.NAIVE_DATETIME,
+                DataType.UTC_DATETIME);
+
+        assertEquals("1\t2020-01-01 00:00:00.000000\t2020-01-01 00:00:00.123000\n",
+                transcode("true,2020-01-01T00:00:00,2020-01-01T00:00:00.123Z\n", types));
+        assertEquals("0\tNULL\t2020-01-01 00:00:00.123456\n",
+                transcode("FALSE,NULL,2020-01-01T00:00:00.1234567Z\n", types));
+        assertEquals("NULL\t2020-01-01 00:00:00.000000\tNULL\n",
+                transcode("NULL,\"2020-01-01T00:00:00Z\",NULL\n", types));
+    }
+
+    @Test
+    public void errors() {
+        List<DataType> types = List.of(DataType.STRING);
+
+        assertThrows(IOException.class, () -> transcode("a,b\n", types));
+        assertThrows(IOException.class, () -> transcode("\"a\nb", types));
+    }
+}
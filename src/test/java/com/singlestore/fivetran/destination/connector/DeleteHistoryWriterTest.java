@@ -5,6 +5,9 @@ import fivetran_sdk.v2.FileParams;
 import fivetran_sdk.v2.Table;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
@@ -121,4 +124,50 @@ public class DeleteHistoryWriterTest extends IntegrationTestBase {
                 Arrays.asList("3", "3", "c", "1", "2005-05-24 20:57:00.000000", "9999-12-31 23:59:59.999999")
         ));
     }
+
+    @Test
+    public void multipleFiles() throws Exception {
+        Path file1 = Files.createTempFile("deleteHistory", ".csv");
+        file1.toFile().deleteOnExit();
+        Files.write(file1, ("id,_fivetran_end\n" +
+                "1,2005-05-25T20:57:00Z\n" +
+                "2,2005-05-25T20:57:00Z\n" +
+                "3,2005-05-25T20:57:00Z\n").getBytes(StandardCharsets.UTF_8));
+        Path file2 = Files.createTempFile("deleteHistory", ".csv");
+        file2.toFile().deleteOnExit();
+        Files.write(file2, ("id,_fivetran_end\n" +
+                "4,2005-05-26T20:57:00Z\n").getBytes(StandardCharsets.UTF_8));
+
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE multipleFiles(" +
+                    "id INT, " +
+                    "data TEXT, " +
+                    "_fivetran_active BOOL, " +
+                    "_fivetran_start DATETIME(6)," +
+                    "_fivetran_end DATETIME(6)," +
+                    "PRIMARY KEY(id, _fivetran_start))");
+            for (int id = 1; id <= 5; id++) {
+                stmt.execute(String.format("INSERT INTO multipleFiles VALUES(%d, 'a', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')", id));
+            }
+
+            Table t = JDBCUtil.getTable(conf, database, "multipleFiles", "multipleFiles", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            // The header is set again after every batch and for every file
+            DeleteHistoryWriter d = new DeleteHistoryWriter(conn, database, t.getName(), t.getColumnsList(), params, null, 2);
+            d.write(file1.toString());
+            d.write(file2.toString());
+        }
+
+        checkResult("SELECT * FROM `multipleFiles` ORDER BY id, _fivetran_start", Arrays.asList(
+                Arrays.asList("1", "a", "0", "2005-05-24 20:57:00.000000", "2005-05-25 20:57:00.000000"),
+                Arrays.asList("2", "a", "0", "2005-05-24 20:57:00.000000", "2005-05-25 20:57:00.000000"),
+                Arrays.asList("3", "a", "0", "2005-05-24 20:57:00.000000", "2005-05-25 20:57:00.000000"),
+                Arrays.asList("4", "a", "0", "2005-05-24 20:57:00.000000", "2005-05-26 20:57:00.000000"),
+                Arrays.asList("5", "a", "1", "2005-05-24 20:57:00.000000", "9999-12-31 23:59:59.999999")
+        ));
+    }
 }
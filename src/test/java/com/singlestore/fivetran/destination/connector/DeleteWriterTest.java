@@ -1,5 +1,7 @@
 package com.singlestore.fivetran.destination.connector;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 import java.io.ByteArrayInputStream;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -268,4 +270,65 @@ public class DeleteWriterTest extends IntegrationTestBase {
 
         checkResult("SELECT * FROM `batchSize` ORDER BY id", res);
     }
+
+    private void deleteCompositeKeys(String tableName, int keys) throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute(String.format(
+                    "CREATE TABLE %s(id INT, name VARCHAR(10), v INT, PRIMARY KEY(id, name))",
+                    tableName));
+
+            FileParams params = FileParams.newBuilder().setNullString("NULL").build();
+            Table t = JDBCUtil.getTable(conf, database, tableName, tableName, testWarningHandle);
+            LoadDataWriter w = new LoadDataWriter(conn, database, t.getName(), t.getColumnsList(),
+                    params, null, 100000, testWarningHandle);
+            w.setHeader(List.of("id", "name", "v"));
+            for (Integer i = 0; i < keys * 2; i++) {
+                w.writeRow(List.of(i.toString(), "a", "1"));
+                w.writeRow(List.of(i.toString(), "b", "2"));
+            }
+            w.commit();
+
+            DeleteWriter d = new DeleteWriter(conn, database, t.getName(), t.getColumnsList(),
+                    params, null, 100000);
+            d.setHeader(List.of("id", "name", "v"));
+            for (Integer i = 0; i < keys; i++) {
+                d.writeRow(List.of(i.toString(), "a", "NULL"));
+            }
+            d.commit();
+        }
+
+        List<List<String>> res = new ArrayList<>();
+        for (Integer i = 0; i < keys * 2; i++) {
+            if (i >= keys) {
+                res.add(Arrays.asList(i.toString(), "a", "1"));
+            }
+            res.add(Arrays.asList(i.toString(), "b", "2"));
+        }
+
+        checkResult(String.format("SELECT * FROM `%s` ORDER BY id, name", tableName), res);
+    }
+
+    @Test
+    public void chooseStrategy() {
+        assertEquals(DeleteWriter.Strategy.OR, DeleteWriter.chooseStrategy(1, 2));
+        assertEquals(DeleteWriter.Strategy.TUPLE_IN,
+                DeleteWriter.chooseStrategy(DeleteWriter.TUPLE_IN_MIN_ROWS, 2));
+        assertEquals(DeleteWriter.Strategy.STAGING,
+                DeleteWriter.chooseStrategy(DeleteWriter.STAGING_MIN_ROWS, 2));
+        // Wide keys go to the key table before the parameter limit is reached
+        assertEquals(DeleteWriter.Strategy.STAGING,
+                DeleteWriter.chooseStrategy(DeleteWriter.TUPLE_IN_MIN_ROWS, 1000));
+    }
+
+    @Test
+    public void tupleInDelete() throws Exception {
+        deleteCompositeKeys("tupleInDelete", DeleteWriter.TUPLE_IN_MIN_ROWS);
+    }
+
+    @Test
+    public void keyTableDelete() throws Exception {
+        deleteCompositeKeys("keyTableDelete", DeleteWriter.STAGING_MIN_ROWS);
+    }
 }
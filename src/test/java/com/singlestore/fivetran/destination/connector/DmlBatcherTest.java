@@ -0,0 +1,77 @@
+package com.singlestore.fivetran.destination.connector;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.singlestore.fivetran.destination.connector.writers.DmlBatcher;
+
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.DataType;
+
+public class DmlBatcherTest extends IntegrationTestBase {
+    private static final List<Column> header = List.of(
+            Column.newBuilder().setName("id").setType(DataType.INT).setPrimaryKey(true).build(),
+            Column.newBuilder().setName("name").setType(DataType.STRING).setPrimaryKey(true)
+                    .build(),
+            Column.newBuilder().setName("_fivetran_start").setType(DataType.UTC_DATETIME)
+                    .setPrimaryKey(true).build(),
+            Column.newBuilder().setName("a").setType(DataType.INT).build());
+
+    private String key(String id, String name, String start, String a) {
+        return DmlBatcher.rowKey(header, List.of(id, name, start, a), "NULL");
+    }
+
+    @Test
+    public void rowKey() {
+        String key = key("1", "abc", "2005-05-25T20:57:00Z", "1");
+        // Non-key columns and _fivetran_start are ignored
+        assertEquals(key, key("1", "abc", "2006-05-25T20:57:00Z", "2"));
+        // Values that can be equal in the database have the same key
+        assertEquals(key, key("01", "ABC  ", "2005-05-25T20:57:00Z", "1"));
+        assertEquals(key("1", "é", "", ""), key("1.0", "E", "", ""));
+
+        assertNotEquals(key, key("2", "abc", "2005-05-25T20:57:00Z", "1"));
+        assertNotEquals(key, key("1", "abd", "2005-05-25T20:57:00Z", "1"));
+        assertNotEquals(key("1", "NULL", "", ""), key("1", "null", "", ""));
+        assertNotEquals(key("1", "a;1:b", "", ""), key("1", "a", "", ""));
+    }
+
+    @Test
+    public void preservesOrderForSameKey() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE batched(id INT PRIMARY KEY, a INT, b INT)");
+            stmt.execute("INSERT INTO batched VALUES(1, 0, 0), (2, 0, 0), (3, 0, 0)");
+
+            String setA = String.format("UPDATE %s SET a = ? WHERE id = ?",
+                    JDBCUtil.escapeTable(database, "batched"));
+            String setB = String.format("UPDATE %s SET b = a + ? WHERE id = ?",
+                    JDBCUtil.escapeTable(database, "batched"));
+            List<DataType> types = List.of(DataType.INT, DataType.INT);
+
+            DmlBatcher batcher = new DmlBatcher(conn, database, "batched", "NULL", 100);
+            batcher.add("a", () -> setA, types, List.of("10", "1"), "1");
+            batcher.add("b", () -> setB, types, List.of("1", "1"), "1");
+            batcher.add("a", () -> setA, types, List.of("20", "1"), "1");
+            batcher.add("a", () -> setA, types, List.of("30", "2"), "2");
+            batcher.add("b", () -> setB, types, List.of("2", "2"), "2");
+            batcher.add("a", () -> setA, types, List.of("40", "4"), "4");
+            batcher.flush();
+
+            assertArrayEquals(new int[]{1, 1, 1, 1, 1, 0}, batcher.getUpdateCounts());
+        }
+
+        checkResult("SELECT * FROM `batched` ORDER BY id",
+                Arrays.asList(Arrays.asList("1", "20", "11"), Arrays.asList("2", "30", "32"),
+                        Arrays.asList("3", "0", "0")));
+    }
+}
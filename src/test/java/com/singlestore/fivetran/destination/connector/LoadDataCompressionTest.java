@@ -0,0 +1,87 @@
+package com.singlestore.fivetran.destination.connector;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.singlestore.fivetran.destination.connector.writers.LoadDataCompression;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+
+public class LoadDataCompressionTest extends IntegrationTestBase {
+    private byte[] roundTrip(LoadDataCompression compression, byte[] data) throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = compression.wrap(compressed)) {
+            out.write(data);
+        }
+
+        InputStream in = new ByteArrayInputStream(compressed.toByteArray());
+        if (compression == LoadDataCompression.GZIP) {
+            in = new GZIPInputStream(in);
+        } else if (compression == LoadDataCompression.LZ4) {
+            in = new LZ4FrameInputStream(in);
+        }
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            result.write(buf, 0, n);
+        }
+        return result.toByteArray();
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        byte[] data = new byte[1000000];
+        Random random = new Random(42);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + random.nextInt(4));
+        }
+
+        for (LoadDataCompression compression : LoadDataCompression.values()) {
+            assertArrayEquals(data, roundTrip(compression, data));
+            assertArrayEquals(new byte[0], roundTrip(compression, new byte[0]));
+        }
+    }
+
+    @Test
+    public void fileNames() {
+        assertEquals("###.tsv", LoadDataCompression.NONE.fileName());
+        assertEquals("###.tsv.gz", LoadDataCompression.GZIP.fileName());
+        assertEquals("###.tsv.lz4", LoadDataCompression.LZ4.fileName());
+    }
+
+    @Test
+    public void fromName() {
+        assertEquals(LoadDataCompression.GZIP, LoadDataCompression.fromName("GZip"));
+        assertThrows(IllegalArgumentException.class, () -> LoadDataCompression.fromName("zstd"));
+    }
+
+    @Test
+    public void serverVersionFallback() {
+        assertEquals(LoadDataCompression.LZ4,
+                LoadDataCompression.forServerVersion(LoadDataCompression.LZ4, "8.9.3"));
+        assertEquals(LoadDataCompression.LZ4,
+                LoadDataCompression.forServerVersion(LoadDataCompression.LZ4, "7.3"));
+        assertEquals(LoadDataCompression.GZIP,
+                LoadDataCompression.forServerVersion(LoadDataCompression.LZ4, "7.1.2"));
+        assertEquals(LoadDataCompression.GZIP,
+                LoadDataCompression.forServerVersion(LoadDataCompression.GZIP, "8.9.3"));
+        assertEquals(LoadDataCompression.NONE,
+                LoadDataCompression.forServerVersion(LoadDataCompression.GZIP, "6.8.1"));
+        assertEquals(LoadDataCompression.NONE,
+                LoadDataCompression.forServerVersion(LoadDataCompression.LZ4, null));
+        assertEquals(LoadDataCompression.NONE,
+                LoadDataCompression.forServerVersion(LoadDataCompression.NONE, "8.9.3"));
+    }
+}
@@ -1,6 +1,7 @@
 package com.singlestore.fivetran.destination.connector;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -13,6 +14,7 @@ import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import com.singlestore.fivetran.destination.connector.writers.LoadDataCompression;
 import com.singlestore.fivetran.destination.connector.writers.LoadDataWriter;
 
 import fivetran_sdk.v2.FileParams;
@@ -119,4 +121,35 @@ public class LoadDataWriterTest extends IntegrationTestBase {
             }
         }
     }
+
+    @Test
+    public void compressed() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE compressed(id INT PRIMARY KEY, a TEXT)");
+            Table compressedTable = JDBCUtil.getTable(conf, database, "compressed", "compressed", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL").build();
+
+            for (LoadDataCompression compression : LoadDataCompression.values()) {
+                stmt.execute("TRUNCATE TABLE compressed");
+                LoadDataWriter w = new LoadDataWriter(conn, database, compressedTable.getName(),
+                        compressedTable.getColumnsList(), params, null, 1000, testWarningHandle,
+                        compression);
+                w.setHeader(List.of("id", "a"));
+                for (int i = 0; i < 10000; i++) {
+                    w.writeRow(List.of(String.valueOf(i), "value\t" + i));
+                }
+                w.commit();
+
+                try (ResultSet rs = stmt.executeQuery(
+                        "SELECT COUNT(*), SUM(id), MIN(a = CONCAT('value\t', id)) FROM compressed")) {
+                    assertTrue(rs.next());
+                    assertEquals(10000, rs.getInt(1));
+                    assertEquals(49995000, rs.getLong(2));
+                    assertEquals(1, rs.getInt(3));
+                }
+            }
+        }
+    }
 }
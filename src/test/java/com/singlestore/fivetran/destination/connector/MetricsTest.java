@@ -0,0 +1,85 @@
+package com.singlestore.fivetran.destination.connector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.singlestore.fivetran.destination.connector.metrics.Counter;
+import com.singlestore.fivetran.destination.connector.metrics.Histogram;
+import com.singlestore.fivetran.destination.connector.metrics.Metrics;
+import com.singlestore.fivetran.destination.connector.metrics.MetricsServer;
+
+public class MetricsTest extends IntegrationTestBase {
+    @Test
+    public void counter() {
+        Metrics.Family<Counter> family = Metrics.getInstance()
+                .counter("test_metrics_counter_total", "Test counter", "writer");
+        family.labels("UpdateWriter").add(5);
+        family.labels("UpdateWriter").inc();
+        family.labels("Delete\"Writer").inc();
+
+        String scrape = Metrics.getInstance().scrape();
+        assertTrue(scrape.contains("# HELP test_metrics_counter_total Test counter\n"));
+        assertTrue(scrape.contains("# TYPE test_metrics_counter_total counter\n"));
+        assertTrue(scrape.contains("test_metrics_counter_total{writer=\"UpdateWriter\"} 6\n"));
+        assertTrue(scrape.contains("test_metrics_counter_total{writer=\"Delete\\\"Writer\"} 1\n"));
+
+        assertThrows(IllegalArgumentException.class, () -> family.labels("a", "b"));
+        assertThrows(IllegalArgumentException.class,
+                () -> Metrics.getInstance().histogram("test_metrics_counter_total", "Test", "writer"));
+    }
+
+    @Test
+    public void histogram() {
+        Histogram histogram = Metrics.getInstance()
+                .histogram("test_metrics_duration_seconds", "Test histogram").labels();
+        histogram.record(500);
+        histogram.record(1_500_000);
+        histogram.record(1_000_000_000_000L);
+
+        String scrape = Metrics.getInstance().scrape();
+        assertTrue(scrape.contains("# TYPE test_metrics_duration_seconds histogram\n"));
+        assertTrue(scrape.contains("test_metrics_duration_seconds_bucket{le=\"0.000001024\"} 1\n"));
+        // 1.5ms is between 2^20 * 1.375 and 2^20 * 1.5 nanoseconds
+        assertTrue(scrape.contains("test_metrics_duration_seconds_bucket{le=\"0.001048576\"} 1\n"));
+        assertTrue(scrape.contains("test_metrics_duration_seconds_bucket{le=\"0.001441792\"} 1\n"));
+        assertTrue(scrape.contains("test_metrics_duration_seconds_bucket{le=\"0.001572864\"} 2\n"));
+        assertTrue(scrape.contains("test_metrics_duration_seconds_bucket{le=\"+Inf\"} 3\n"));
+        assertTrue(scrape.contains("test_metrics_duration_seconds_count 3\n"));
+        assertEquals(3, histogram.count());
+    }
+
+    @Test
+    public void server() throws Exception {
+        Metrics.getInstance().gauge("test_metrics_gauge", "Test gauge", () -> 42);
+        MetricsServer server = new MetricsServer(0, Metrics.getInstance());
+        server.start();
+        try {
+            HttpURLConnection conn = (HttpURLConnection) new URL(
+                    String.format("http://localhost:%d/metrics", server.getPort())).openConnection();
+            assertEquals(200, conn.getResponseCode());
+            assertTrue(conn.getContentType().startsWith("text/plain"));
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream is = conn.getInputStream()) {
+                byte[] buf = new byte[4096];
+                int n;
+                while ((n = is.read(buf)) != -1) {
+                    body.write(buf, 0, n);
+                }
+            }
+            String scrape = new String(body.toByteArray(), StandardCharsets.UTF_8);
+            assertTrue(scrape.contains("# TYPE test_metrics_gauge gauge\ntest_metrics_gauge 42\n"));
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.singlestore.fivetran.destination.connector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.Test;
+
+public class PreparedStatementCacheTest extends IntegrationTestBase {
+    @Test
+    public void reusesStatements() throws Exception {
+        ConnectionPool pool = new ConnectionPool();
+        try (Connection conn = pool.getConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE cached(id INT PRIMARY KEY, a INT)");
+            stmt.execute("INSERT INTO cached VALUES(1, 10)");
+
+            PreparedStatementCache cache = PreparedStatementCache.forConnection(conn);
+            String sql = String.format("SELECT a FROM %s WHERE id = ?",
+                    JDBCUtil.escapeTable(database, "cached"));
+
+            long misses = PreparedStatementCache.misses();
+            long hits = PreparedStatementCache.hits();
+            PreparedStatement first = cache.prepare(database, "cached", "select", () -> sql);
+            PreparedStatement second = cache.prepare(database, "cached", "select", () -> {
+                throw new AssertionError("Cached statement is prepared again");
+            });
+            assertSame(first, second);
+            assertEquals(misses + 1, PreparedStatementCache.misses());
+            assertEquals(hits + 1, PreparedStatementCache.hits());
+
+            second.setInt(1, 1);
+            try (ResultSet rs = second.executeQuery()) {
+                rs.next();
+                assertEquals(10, rs.getInt(1));
+            }
+        }
+
+        // The statement outlives the lease
+        try (Connection conn = pool.getConnection(conf)) {
+            assertEquals(1, PreparedStatementCache.forConnection(conn).size());
+        }
+    }
+
+    @Test
+    public void schemaChange() throws Exception {
+        ConnectionPool pool = new ConnectionPool();
+        try (Connection conn = pool.getConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE changed(id INT PRIMARY KEY, a INT)");
+
+            PreparedStatementCache cache = PreparedStatementCache.forConnection(conn);
+            String sql = String.format("SELECT * FROM %s WHERE id = ?",
+                    JDBCUtil.escapeTable(database, "changed"));
+
+            PreparedStatement first = cache.prepare(database, "changed", "select", () -> sql);
+            stmt.execute("ALTER TABLE changed ADD COLUMN b INT");
+            PreparedStatementCache.schemaChanged(database, "changed");
+
+            long invalidations = PreparedStatementCache.invalidations();
+            PreparedStatement second = cache.prepare(database, "changed", "select", () -> sql);
+            assertNotSame(first, second);
+            assertEquals(invalidations + 1, PreparedStatementCache.invalidations());
+            assertEquals(3, second.getMetaData().getColumnCount());
+        }
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws Exception {
+        ConnectionPool pool = new ConnectionPool();
+        PreparedStatementCache.configure(2);
+        try (Connection conn = pool.getConnection(conf)) {
+            PreparedStatementCache cache = PreparedStatementCache.forConnection(conn);
+
+            long evictions = PreparedStatementCache.evictions();
+            PreparedStatement one = cache.prepare(database, "t", "1", () -> "SELECT 1");
+            cache.prepare(database, "t", "2", () -> "SELECT 2");
+            assertSame(one, cache.prepare(database, "t", "1", () -> "SELECT 1"));
+            cache.prepare(database, "t", "3", () -> "SELECT 3");
+
+            assertEquals(2, cache.size());
+            assertEquals(evictions + 1, PreparedStatementCache.evictions());
+            assertSame(one, cache.prepare(database, "t", "1", () -> "SELECT 1"));
+        } finally {
+            PreparedStatementCache.configure(256);
+        }
+    }
+
+    @Test
+    public void directConnectionHasNoCache() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf)) {
+            assertNull(PreparedStatementCache.forConnection(conn));
+        }
+    }
+}
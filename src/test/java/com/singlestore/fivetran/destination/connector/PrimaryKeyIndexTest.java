@@ -0,0 +1,92 @@
+package com.singlestore.fivetran.destination.connector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.singlestore.fivetran.destination.connector.writers.PrimaryKeyIndex;
+
+public class PrimaryKeyIndexTest extends IntegrationTestBase {
+    private byte[] key(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void lastPositionWins() {
+        PrimaryKeyIndex index = new PrimaryKeyIndex(64L * 1024 * 1024);
+        assertEquals(-1, index.put(key("a"), 1, 0));
+        assertEquals(-1, index.put(key("b"), 1, 1));
+        assertEquals(0, index.put(key("a"), 1, 2));
+
+        assertEquals(2, index.get(key("a"), 1));
+        assertEquals(1, index.get(key("b"), 1));
+        assertEquals(-1, index.get(key("c"), 1));
+        // Only the given length of the buffer is a part of the key
+        assertEquals(2, index.get(key("ab"), 1));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void grow() {
+        PrimaryKeyIndex index = new PrimaryKeyIndex(256L * 1024 * 1024);
+        int count = 300000;
+        for (int i = 0; i < count; i++) {
+            byte[] k = key("key" + i);
+            assertEquals(-1, index.put(k, k.length, i));
+        }
+        for (int i = 0; i < count; i++) {
+            byte[] k = key("key" + i);
+            assertEquals(i, index.put(k, k.length, count + i));
+        }
+
+        assertEquals(count, index.size());
+        for (int i = 0; i < count; i++) {
+            byte[] k = key("key" + i);
+            assertEquals(count + i, index.get(k, k.length));
+        }
+    }
+
+    @Test
+    public void memoryLimit() {
+        PrimaryKeyIndex index = new PrimaryKeyIndex(8L * 1024 * 1024);
+        long result = 0;
+        int added = 0;
+        while (result != -2) {
+            byte[] k = key("key" + added);
+            result = index.put(k, k.length, added);
+            if (result == -1) {
+                added++;
+            }
+        }
+
+        assertTrue(index.memoryUsed() <= 8L * 1024 * 1024);
+        assertEquals(added, index.size());
+        byte[] k = key("key0");
+        assertEquals(0, index.get(k, k.length));
+    }
+
+    @Test
+    public void release() {
+        PrimaryKeyIndex index = new PrimaryKeyIndex(8L * 1024 * 1024);
+        byte[] k = key("key");
+        index.put(k, k.length, 1);
+        assertTrue(index.memoryUsed() > 0);
+
+        index.release();
+        assertEquals(0, index.memoryUsed());
+        assertEquals(0, index.size());
+        assertEquals(-1, index.get(k, k.length));
+    }
+
+    @Test
+    public void maxDirectMemory() {
+        assertEquals(1024L * 1024 * 1024, PrimaryKeyIndex.parseSize("1g"));
+        assertEquals(512L * 1024 * 1024, PrimaryKeyIndex.parseSize("512M"));
+        assertEquals(64L * 1024, PrimaryKeyIndex.parseSize("64k"));
+        assertEquals(1000, PrimaryKeyIndex.parseSize("1000"));
+        assertTrue(PrimaryKeyIndex.maxDirectMemory() > 0);
+    }
+}
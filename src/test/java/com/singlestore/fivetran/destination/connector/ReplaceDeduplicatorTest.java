@@ -0,0 +1,84 @@
+package com.singlestore.fivetran.destination.connector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.singlestore.fivetran.destination.connector.writers.PrimaryKeyIndex;
+import com.singlestore.fivetran.destination.connector.writers.ReplaceDeduplicator;
+
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.DataType;
+import fivetran_sdk.v2.FileParams;
+
+public class ReplaceDeduplicatorTest extends IntegrationTestBase {
+    private static final List<Column> COLUMNS = List.of(
+            Column.newBuilder().setName("id").setType(DataType.STRING).setPrimaryKey(true).build(),
+            Column.newBuilder().setName("n").setType(DataType.DECIMAL).setPrimaryKey(true).build(),
+            Column.newBuilder().setName("a").setType(DataType.STRING).build());
+    private static final FileParams PARAMS = FileParams.newBuilder().setNullString("NULL").build();
+
+    private String writeFile(String content) throws Exception {
+        Path file = Files.createTempFile("replace", ".csv");
+        file.toFile().deleteOnExit();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file.toString();
+    }
+
+    @Test
+    public void equivalentKeys() throws Exception {
+        // Keys differ only in case, accents, trailing spaces or the spelling of a number
+        List<List<String>> pairs = List.of(List.of("abc,1", "ABC,1"), List.of("abc,1", "ábc ,1"),
+                List.of("abc,1", "abc,1.0"));
+        for (List<String> pair : pairs) {
+            ReplaceDeduplicator deduplicator =
+                    new ReplaceDeduplicator(COLUMNS, PARAMS, null, true);
+            assertTrue(deduplicator.index(List.of(writeFile("id,n,a\n" + pair.get(0) + ",x\n"),
+                    writeFile("id,n,a\n" + pair.get(1) + ",y\n"))));
+            assertEquals(0, deduplicator.duplicates());
+            assertTrue(deduplicator.hasEquivalentKeys(), pair.toString());
+        }
+    }
+
+    @Test
+    public void differentKeys() throws Exception {
+        ReplaceDeduplicator deduplicator = new ReplaceDeduplicator(COLUMNS, PARAMS, null, true);
+        assertTrue(deduplicator.index(List.of(writeFile("id,n,a\nabc,1,x\nabd,1,x\n"),
+                writeFile("n,a,id\n1,y,abc\n2,y,abc\n"))));
+        assertEquals(1, deduplicator.duplicates());
+        assertFalse(deduplicator.hasEquivalentKeys());
+    }
+
+    @Test
+    public void notDetectedByDefault() throws Exception {
+        ReplaceDeduplicator deduplicator = new ReplaceDeduplicator(COLUMNS, PARAMS, null);
+        assertTrue(deduplicator.index(List.of(writeFile("id,n,a\nabc,1,x\n"),
+                writeFile("id,n,a\nABC,1,y\n"))));
+        assertFalse(deduplicator.hasEquivalentKeys());
+    }
+
+    @Test
+    public void memoryLimit() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> ReplaceDeduplicator.configure(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> ReplaceDeduplicator.configure(PrimaryKeyIndex.maxDirectMemory()));
+
+        long defaultMaxIndexBytes = ReplaceDeduplicator.defaultMaxIndexBytes();
+        // Too small for the slots of the index
+        ReplaceDeduplicator.configure(1024);
+        try {
+            ReplaceDeduplicator deduplicator = new ReplaceDeduplicator(COLUMNS, PARAMS, null);
+            assertFalse(deduplicator.index(List.of(writeFile("id,n,a\nabc,1,x\n"))));
+        } finally {
+            ReplaceDeduplicator.configure(defaultMaxIndexBytes);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.singlestore.fivetran.destination.connector;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.DataType;
+import fivetran_sdk.v2.FileParams;
+import fivetran_sdk.v2.Table;
+
+public class ReplaceFilesLoaderTest extends IntegrationTestBase {
+    private String writeFile(String content) throws Exception {
+        Path file = Files.createTempFile("replace", ".csv");
+        file.toFile().deleteOnExit();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file.toString();
+    }
+
+    private SingleStoreConfiguration parallelConf(int parallelism) {
+        return new SingleStoreConfiguration(ImmutableMap.of("host", host, "port", port, "user",
+                user, "password", password, "replace.parallelism", String.valueOf(parallelism)));
+    }
+
+    @Test
+    public void parallel() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("CREATE TABLE `%s`.`parallelReplace`(id INT PRIMARY KEY, a TEXT)", database));
+        }
+
+        List<String> files = new ArrayList<>();
+        List<List<String>> expected = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            files.add(writeFile(String.format("id,a\n%d,a%d\n%d,b%d\n", 2 * i, i, 2 * i + 1, i)));
+            expected.add(List.of(String.valueOf(2 * i), "a" + i));
+            expected.add(List.of(String.valueOf(2 * i + 1), "b" + i));
+        }
+        expected.sort((r1, r2) -> Integer.compare(Integer.parseInt(r1.get(0)), Integer.parseInt(r2.get(0))));
+
+        SingleStoreConfiguration parallelConf = parallelConf(3);
+        Table t = JDBCUtil.getTable(conf, database, "parallelReplace", "parallelReplace", testWarningHandle);
+        try (Connection conn = JDBCUtil.createConnection(parallelConf)) {
+            new ReplaceFilesLoader(parallelConf, database, "parallelReplace", t.getColumnsList(),
+                    FileParams.newBuilder().setNullString("NULL").build(), null, testWarningHandle)
+                    .load(conn, files);
+        }
+
+        checkResult("SELECT * FROM `parallelReplace` ORDER BY id", expected);
+    }
+
+    @Test
+    public void aggregatesErrors() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("CREATE TABLE `%s`.`parallelReplaceErrors`(id INT PRIMARY KEY)", database));
+        }
+
+        // Files are indexed for deduplication, so they fail only when they are loaded into a
+        // column which doesn't exist in the table
+        List<String> files = List.of(writeFile("id\n1\n"), writeFile("id,missing\n2,a\n"),
+                writeFile("id,missing\n3,b\n"));
+
+        SingleStoreConfiguration parallelConf = parallelConf(3);
+        Table t = JDBCUtil.getTable(conf, database, "parallelReplaceErrors", "parallelReplaceErrors", testWarningHandle);
+        List<Column> columns = new ArrayList<>(t.getColumnsList());
+        columns.add(Column.newBuilder().setName("missing").setType(DataType.STRING).build());
+        try (Connection conn = JDBCUtil.createConnection(parallelConf)) {
+            Exception e = assertThrows(Exception.class,
+                    () -> new ReplaceFilesLoader(parallelConf, database, "parallelReplaceErrors",
+                            columns, FileParams.newBuilder().setNullString("NULL").build(),
+                            null, testWarningHandle).load(conn, files));
+            assertTrue(e.getMessage().contains("Failed to load file"));
+        }
+    }
+
+    @Test
+    public void parallelDeduplicatesFiles() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("CREATE TABLE `%s`.`parallelReplaceVersions`(id INT PRIMARY KEY, a TEXT)", database));
+        }
+
+        // Deduplication is not enabled, but the last version must win regardless of the order
+        // in which files are loaded
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            files.add(writeFile(String.format("id,a\n1,a%d\n2,b%d\n", i, i)));
+        }
+
+        SingleStoreConfiguration parallelConf = parallelConf(3);
+        Table t = JDBCUtil.getTable(conf, database, "parallelReplaceVersions", "parallelReplaceVersions", testWarningHandle);
+        try (Connection conn = JDBCUtil.createConnection(parallelConf)) {
+            new ReplaceFilesLoader(parallelConf, database, "parallelReplaceVersions",
+                    t.getColumnsList(), FileParams.newBuilder().setNullString("NULL").build(),
+                    null, testWarningHandle).load(conn, files);
+        }
+
+        checkResult("SELECT * FROM `parallelReplaceVersions` ORDER BY id", List.of(
+                List.of("1", "a5"),
+                List.of("2", "b5")));
+    }
+
+    @Test
+    public void parallelKeysEqualInCollation() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("CREATE TABLE `%s`.`parallelReplaceCollation`(id VARCHAR(10) COLLATE utf8mb4_general_ci PRIMARY KEY, a TEXT)", database));
+        }
+
+        // The keys are different bytes, but the same row, so the row of the last file must win.
+        // Small files are loaded faster, so the first file is made large.
+        StringBuilder first = new StringBuilder("id,a\nabc,first\n");
+        for (int i = 0; i < 100000; i++) {
+            first.append("k").append(i).append(",v\n");
+        }
+        List<String> files = List.of(writeFile(first.toString()), writeFile("id,a\nABC,last\n"));
+
+        SingleStoreConfiguration parallelConf = parallelConf(2);
+        Table t = JDBCUtil.getTable(conf, database, "parallelReplaceCollation", "parallelReplaceCollation", testWarningHandle);
+        try (Connection conn = JDBCUtil.createConnection(parallelConf)) {
+            new ReplaceFilesLoader(parallelConf, database, "parallelReplaceCollation",
+                    t.getColumnsList(), FileParams.newBuilder().setNullString("NULL").build(),
+                    null, testWarningHandle).load(conn, files);
+        }
+
+        checkResult("SELECT a FROM `parallelReplaceCollation` WHERE id = 'abc'",
+                List.of(List.of("last")));
+    }
+
+    @Test
+    public void deduplicate() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("CREATE TABLE `%s`.`deduplicateReplace`(id INT, name VARCHAR(10), a TEXT, PRIMARY KEY(id, name))", database));
+        }
+
+        // Every key is changed in several files, the last version must win
+        List<String> files = List.of(
+                writeFile("id,name,a\n1,x,a1\n2,x,a2\n1,x,b1\n"),
+                writeFile("name,a,id\nx,c1,1\ny,c3,3\nx,c2,2\n"),
+                writeFile("id,name,a\n3,y,d3\n1,x,d1\n4,\"x,y\",d4\n"));
+
+        SingleStoreConfiguration dedupConf = new SingleStoreConfiguration(ImmutableMap.of("host",
+                host, "port", port, "user", user, "password", password, "replace.parallelism", "3",
+                "replace.deduplicate", "true"));
+        Table t = JDBCUtil.getTable(conf, database, "deduplicateReplace", "deduplicateReplace", testWarningHandle);
+        try (Connection conn = JDBCUtil.createConnection(dedupConf)) {
+            new ReplaceFilesLoader(dedupConf, database, "deduplicateReplace", t.getColumnsList(),
+                    FileParams.newBuilder().setNullString("NULL").build(), null, testWarningHandle)
+                    .load(conn, files);
+        }
+
+        checkResult("SELECT * FROM `deduplicateReplace` ORDER BY id", List.of(
+                List.of("1", "x", "d1"),
+                List.of("2", "x", "c2"),
+                List.of("3", "y", "d3"),
+                List.of("4", "x,y", "d4")));
+    }
+}
@@ -0,0 +1,100 @@
+package com.singlestore.fivetran.destination.connector;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.singlestore.fivetran.destination.connector.writers.RingBufferPipe;
+
+public class RingBufferPipeTest extends IntegrationTestBase {
+    @Test
+    public void transfersData() throws Exception {
+        byte[] data = new byte[RingBufferPipe.CHUNK_SIZE * 10 + 123];
+        new Random(42).nextBytes(data);
+
+        RingBufferPipe pipe = new RingBufferPipe(2);
+        Thread producer = new Thread(() -> {
+            Random random = new Random(1);
+            try (OutputStream out = pipe.outputStream()) {
+                int pos = 0;
+                while (pos < data.length) {
+                    if (random.nextInt(10) == 0) {
+                        out.write(data[pos++]);
+                    } else {
+                        int len = Math.min(data.length - pos, random.nextInt(100000));
+                        out.write(data, pos, len);
+                        pos += len;
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        producer.start();
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream in = pipe.inputStream()) {
+            byte[] buf = new byte[7777];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                result.write(buf, 0, n);
+                int b = in.read();
+                if (b == -1) {
+                    break;
+                }
+                result.write(b);
+            }
+        }
+        producer.join();
+
+        assertArrayEquals(data, result.toByteArray());
+    }
+
+    @Test
+    public void emptyStream() throws Exception {
+        RingBufferPipe pipe = new RingBufferPipe(1);
+        pipe.outputStream().close();
+        assertEquals(-1, pipe.inputStream().read());
+        assertEquals(-1, pipe.inputStream().read(new byte[10]));
+    }
+
+    @Test
+    public void consumerClosed() throws Exception {
+        RingBufferPipe pipe = new RingBufferPipe(1);
+        pipe.inputStream().close();
+
+        IOException e = assertThrows(IOException.class,
+                () -> pipe.outputStream().write(new byte[RingBufferPipe.CHUNK_SIZE * 2]));
+        assertEquals("Pipe closed", e.getMessage());
+        // Closing the producer after the consumer doesn't fail
+        pipe.outputStream().close();
+    }
+
+    @Test
+    public void producerDied() throws Exception {
+        RingBufferPipe pipe = new RingBufferPipe(1);
+        Thread producer = new Thread(() -> {
+            try {
+                pipe.outputStream().write(new byte[10]);
+                pipe.outputStream().flush();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        producer.start();
+        producer.join();
+
+        InputStream in = pipe.inputStream();
+        assertEquals(10, in.read(new byte[100]));
+        IOException e = assertThrows(IOException.class, in::read);
+        assertEquals("Write end dead", e.getMessage());
+    }
+}
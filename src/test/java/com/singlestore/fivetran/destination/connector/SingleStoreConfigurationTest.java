@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import org.junit.jupiter.api.Test;
 import com.google.common.collect.ImmutableMap;
+import com.singlestore.fivetran.destination.connector.writers.LoadDataCompression;
 
 public class SingleStoreConfigurationTest extends IntegrationTestBase {
 
@@ -21,6 +22,12 @@ public class SingleStoreConfigurationTest extends IntegrationTestBase {
         assertEquals("disable", conf.sslMode());
         assertNull(conf.sslServerCert());
         assertEquals(10000, conf.batchSize());
+        assertEquals(1, conf.replaceParallelism());
+        assertEquals(1, conf.historyParallelism());
+        assertEquals(false, conf.replaceDeduplicate());
+        assertEquals(false, conf.batchPlanning());
+        assertEquals(LoadDataCompression.NONE, conf.loadCompression());
+        assertEquals("row", conf.updateStrategy());
         assertEquals("b", conf.getSingleStoreDatabase("a"));
         assertEquals("d", conf.getSingleStoreDatabase("c"));
         assertEquals("e", conf.getSingleStoreDatabase("e"));
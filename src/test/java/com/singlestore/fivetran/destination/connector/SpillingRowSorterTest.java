@@ -0,0 +1,130 @@
+package com.singlestore.fivetran.destination.connector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.singlestore.fivetran.destination.connector.writers.SpillingRowSorter;
+
+public class SpillingRowSorterTest extends IntegrationTestBase {
+    private List<String> sortRandomRows(SpillingRowSorter sorter, int count) throws Exception {
+        Random random = new Random(42);
+        List<long[]> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long key = random.nextInt(100);
+            expected.add(new long[]{key, i});
+            sorter.add(key, Arrays.asList(String.valueOf(key), String.valueOf(i), "ü\t\n"));
+        }
+        // List.sort is stable
+        expected.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        List<String> actual = new ArrayList<>();
+        sorter.forEachSorted(row -> {
+            assertEquals("ü\t\n", row.get(2));
+            actual.add(row.get(0) + ":" + row.get(1));
+        });
+
+        assertEquals(count, actual.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(expected.get(i)[0] + ":" + expected.get(i)[1], actual.get(i));
+        }
+        return actual;
+    }
+
+    @Test
+    public void inMemory() throws Exception {
+        try (SpillingRowSorter sorter = new SpillingRowSorter(1024L * 1024 * 1024)) {
+            sortRandomRows(sorter, 10000);
+            assertEquals(0, sorter.spilledRuns());
+        }
+    }
+
+    @Test
+    public void spillsAndMerges() throws Exception {
+        try (SpillingRowSorter sorter = new SpillingRowSorter(64 * 1024)) {
+            sortRandomRows(sorter, 10000);
+            assertTrue(sorter.spilledRuns() > 1);
+        }
+    }
+
+    @Test
+    public void reusedAfterClear() throws Exception {
+        try (SpillingRowSorter sorter = new SpillingRowSorter(64 * 1024)) {
+            sortRandomRows(sorter, 5000);
+            sorter.clear();
+            assertEquals(0, sorter.size());
+            sortRandomRows(sorter, 100);
+        }
+    }
+
+    private Set<Path> spilledRunFiles() throws Exception {
+        Set<Path> files = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(
+                Paths.get(System.getProperty("java.io.tmpdir")), "fivetran-sort-*.run")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    @Test
+    public void spilledRunsAreEncrypted() throws Exception {
+        Set<Path> before = spilledRunFiles();
+        Set<Path> runs;
+        try (SpillingRowSorter sorter = new SpillingRowSorter(64 * 1024)) {
+            for (int i = 0; i < 5000; i++) {
+                sorter.add(i % 7, Arrays.asList("secret-value", String.valueOf(i)));
+            }
+            assertTrue(sorter.spilledRuns() > 0);
+
+            runs = spilledRunFiles();
+            runs.removeAll(before);
+            assertEquals(sorter.spilledRuns(), runs.size());
+            for (Path run : runs) {
+                String content = new String(Files.readAllBytes(run), StandardCharsets.ISO_8859_1);
+                assertFalse(content.contains("secret-value"));
+                if (Files.getFileStore(run).supportsFileAttributeView("posix")) {
+                    assertEquals(EnumSet.of(PosixFilePermission.OWNER_READ,
+                            PosixFilePermission.OWNER_WRITE), Files.getPosixFilePermissions(run));
+                }
+            }
+
+            int[] count = {0};
+            sorter.forEachSorted(row -> {
+                assertEquals("secret-value", row.get(0));
+                count[0]++;
+            });
+            assertEquals(5000, count[0]);
+        }
+
+        for (Path run : runs) {
+            assertFalse(Files.exists(run));
+        }
+    }
+
+    @Test
+    public void epochMicros() {
+        assertEquals(0, JDBCUtil.parseEpochMicros("1970-01-01T00:00:00Z"));
+        assertEquals(1_000_001, JDBCUtil.parseEpochMicros("1970-01-01T00:00:01.000001Z"));
+        assertEquals(-1, JDBCUtil.parseEpochMicros("1969-12-31T23:59:59.999999999Z"));
+        assertEquals(JDBCUtil.parseEpochMicros("2005-05-25T20:57:00.5Z"),
+                JDBCUtil.parseEpochMicros("2005-05-25 20:57:00.500000"));
+    }
+}
@@ -0,0 +1,187 @@
+package com.singlestore.fivetran.destination.connector;
+
+import com.singlestore.fivetran.destination.connector.writers.*;
+import fivetran_sdk.v2.FileParams;
+import fivetran_sdk.v2.Table;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StagingDeleteHistoryWriterTest extends IntegrationTestBase {
+    @Test
+    public void noFivetranEnd() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE noFivetranEndStaging(" +
+                    "id INT PRIMARY KEY, " +
+                    "data TEXT, " +
+                    "_fivetran_active BOOL, " +
+                    "_fivetran_start DATETIME(6))");
+            stmt.execute("INSERT INTO noFivetranEndStaging VALUES(1, 'a', TRUE, '2005-05-24 20:57:00.000000')");
+
+            Table t = JDBCUtil.getTable(conf, database, "noFivetranEndStaging", "noFivetranEndStaging", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            StagingDeleteHistoryWriter d = new StagingDeleteHistoryWriter(conn, database, t.getName(), t.getColumnsList(), params, null, 123, testWarningHandle);
+            Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+                d.setHeader(Arrays.asList("id", "data", "_fivetran_active", "_fivetran_start"));
+            });
+
+            assertEquals("File doesn't contain _fivetran_end column", exception.getMessage());
+        }
+    }
+
+    @Test
+    public void singlePK() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE singlePKStaging(" +
+                    "id INT, " +
+                    "data TEXT, " +
+                    "_fivetran_active BOOL, " +
+                    "_fivetran_start DATETIME(6)," +
+                    "_fivetran_end DATETIME(6)," +
+                    "PRIMARY KEY(id, _fivetran_start))");
+            stmt.execute("INSERT INTO singlePKStaging VALUES(1, 'a', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO singlePKStaging VALUES(2, 'b', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO singlePKStaging VALUES(3, 'c', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO singlePKStaging VALUES(1, 'd', FALSE, '2005-05-23 20:57:00.000000', '2005-05-24 20:56:59.999999')");
+            stmt.execute("INSERT INTO singlePKStaging VALUES(2, 'e', FALSE, '2005-05-23 20:57:00.000000', '2005-05-24 20:56:59.999999')");
+
+            Table t = JDBCUtil.getTable(conf, database, "singlePKStaging", "singlePKStaging", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            StagingDeleteHistoryWriter d = new StagingDeleteHistoryWriter(conn, database, t.getName(), t.getColumnsList(), params, null, 123, testWarningHandle);
+            d.setHeader(Arrays.asList("id", "_fivetran_end"));
+            d.writeRow(Arrays.asList("1", "2005-05-25T20:57:00Z"));
+            d.writeRow(Arrays.asList("2", "2005-05-26T20:57:00Z"));
+            d.writeRow(Arrays.asList("5", "2005-05-26T20:57:00Z"));
+            d.commit();
+        }
+
+        checkResult("SELECT * FROM `singlePKStaging` ORDER BY id, _fivetran_start", Arrays.asList(
+                Arrays.asList("1", "d", "0", "2005-05-23 20:57:00.000000", "2005-05-24 20:56:59.999999"),
+                Arrays.asList("1", "a", "0", "2005-05-24 20:57:00.000000", "2005-05-25 20:57:00.000000"),
+                Arrays.asList("2", "e", "0", "2005-05-23 20:57:00.000000", "2005-05-24 20:56:59.999999"),
+                Arrays.asList("2", "b", "0", "2005-05-24 20:57:00.000000", "2005-05-26 20:57:00.000000"),
+                Arrays.asList("3", "c", "1", "2005-05-24 20:57:00.000000", "9999-12-31 23:59:59.999999")
+        ));
+    }
+
+    @Test
+    public void multiPK() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE multiPKStaging(" +
+                    "id1 INT, " +
+                    "id2 TEXT, " +
+                    "data TEXT, " +
+                    "_fivetran_active BOOL, " +
+                    "_fivetran_start DATETIME(6)," +
+                    "_fivetran_end DATETIME(6)," +
+                    "PRIMARY KEY(id1, id2, _fivetran_start))");
+            stmt.execute("INSERT INTO multiPKStaging VALUES(1, 2, 'a', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO multiPKStaging VALUES(1, 1, 'a', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO multiPKStaging VALUES(2, 2, 'b', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO multiPKStaging VALUES(3, 3, 'c', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO multiPKStaging VALUES(1, 1, 'd', FALSE, '2005-05-23 20:57:00.000000', '2005-05-24 20:56:59.999999')");
+            stmt.execute("INSERT INTO multiPKStaging VALUES(2, 2, 'e', FALSE, '2005-05-23 20:57:00.000000', '2005-05-24 20:56:59.999999')");
+
+            Table t = JDBCUtil.getTable(conf, database, "multiPKStaging", "multiPKStaging", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            StagingDeleteHistoryWriter d = new StagingDeleteHistoryWriter(conn, database, t.getName(), t.getColumnsList(), params, null, 123, testWarningHandle);
+            d.setHeader(Arrays.asList("id1", "id2", "_fivetran_end"));
+            d.writeRow(Arrays.asList("1", "1", "2005-05-25T20:57:00Z"));
+            d.writeRow(Arrays.asList("2", "2", "2005-05-26T20:57:00Z"));
+            d.writeRow(Arrays.asList("5", "5", "2005-05-26T20:57:00Z"));
+            d.commit();
+        }
+
+        checkResult("SELECT * FROM `multiPKStaging` ORDER BY id1, id2, _fivetran_start", Arrays.asList(
+                Arrays.asList("1", "1", "d", "0", "2005-05-23 20:57:00.000000", "2005-05-24 20:56:59.999999"),
+                Arrays.asList("1", "1", "a", "0", "2005-05-24 20:57:00.000000", "2005-05-25 20:57:00.000000"),
+                Arrays.asList("1", "2", "a", "1", "2005-05-24 20:57:00.000000", "9999-12-31 23:59:59.999999"),
+                Arrays.asList("2", "2", "e", "0", "2005-05-23 20:57:00.000000", "2005-05-24 20:56:59.999999"),
+                Arrays.asList("2", "2", "b", "0", "2005-05-24 20:57:00.000000", "2005-05-26 20:57:00.000000"),
+                Arrays.asList("3", "3", "c", "1", "2005-05-24 20:57:00.000000", "9999-12-31 23:59:59.999999")
+        ));
+    }
+
+    @Test
+    public void repeatedKeys() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE repeatedKeysStaging(" +
+                    "id INT, " +
+                    "data TEXT, " +
+                    "_fivetran_active BOOL, " +
+                    "_fivetran_start DATETIME(6)," +
+                    "_fivetran_end DATETIME(6)," +
+                    "PRIMARY KEY(id, _fivetran_start))");
+            stmt.execute("INSERT INTO repeatedKeysStaging VALUES(1, 'a', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+
+            Table t = JDBCUtil.getTable(conf, database, "repeatedKeysStaging", "repeatedKeysStaging", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            StagingDeleteHistoryWriter d = new StagingDeleteHistoryWriter(conn, database, t.getName(), t.getColumnsList(), params, null, 123, testWarningHandle);
+            d.setHeader(Arrays.asList("id", "_fivetran_end"));
+            d.writeRow(Arrays.asList("1", "2005-05-26T20:57:00Z"));
+            d.writeRow(Arrays.asList("1", "2005-05-25T20:57:00Z"));
+            d.commit();
+        }
+
+        checkResult("SELECT * FROM `repeatedKeysStaging` ORDER BY id, _fivetran_start", Arrays.asList(
+                Arrays.asList("1", "a", "0", "2005-05-24 20:57:00.000000", "2005-05-26 20:57:00.000000")
+        ));
+    }
+
+    @Test
+    public void manyBatches() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE manyBatchesStaging(" +
+                    "id INT, " +
+                    "_fivetran_active BOOL, " +
+                    "_fivetran_start DATETIME(6)," +
+                    "_fivetran_end DATETIME(6)," +
+                    "PRIMARY KEY(id, _fivetran_start))");
+            for (int i = 0; i < 5000; i++) {
+                stmt.addBatch(String.format("INSERT INTO manyBatchesStaging VALUES(%d, TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')", i));
+            }
+            stmt.executeBatch();
+
+            Table t = JDBCUtil.getTable(conf, database, "manyBatchesStaging", "manyBatchesStaging", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            StagingDeleteHistoryWriter d = new StagingDeleteHistoryWriter(conn, database, t.getName(), t.getColumnsList(), params, null, 1000, testWarningHandle);
+            StringBuilder data = new StringBuilder("id,_fivetran_end\n");
+            for (int i = 0; i < 5000; i += 2) {
+                data.append(i).append(",2005-05-25T20:57:00Z\n");
+            }
+            d.write(null, new ByteArrayInputStream(data.toString().getBytes()));
+        }
+
+        checkResult("SELECT COUNT(*), SUM(_fivetran_active) FROM `manyBatchesStaging`",
+                Arrays.asList(Arrays.asList("5000", "2500")));
+    }
+}
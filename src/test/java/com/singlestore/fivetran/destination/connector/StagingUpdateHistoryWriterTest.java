@@ -0,0 +1,201 @@
+package com.singlestore.fivetran.destination.connector;
+
+import com.singlestore.fivetran.destination.connector.writers.StagingUpdateHistoryWriter;
+import fivetran_sdk.v2.FileParams;
+import fivetran_sdk.v2.Table;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StagingUpdateHistoryWriterTest extends IntegrationTestBase {
+    @Test
+    public void noFivetranStart() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE noFivetranStartUpdateStaging(" +
+                    "id INT PRIMARY KEY, " +
+                    "data TEXT, " +
+                    "_fivetran_active BOOL, " +
+                    "_fivetran_end DATETIME(6))");
+            stmt.execute("INSERT INTO noFivetranStartUpdateStaging VALUES(1, 'a', TRUE, '2005-05-24 20:57:00.000000')");
+
+            Table t = JDBCUtil.getTable(conf, database, "noFivetranStartUpdateStaging", "noFivetranStartUpdateStaging", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            StagingUpdateHistoryWriter u = new StagingUpdateHistoryWriter(conn, database, t.getName(), t.getColumnsList(), params, null, 123, testWarningHandle);
+            Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+                u.setHeader(Arrays.asList("id", "data", "_fivetran_active", "_fivetran_end"));
+            });
+
+            assertEquals("File doesn't contain _fivetran_start column", exception.getMessage());
+        }
+    }
+
+    @Test
+    public void singlePK() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE singlePKUpdateStaging(" +
+                    "id INT, " +
+                    "data TEXT, " +
+                    "_fivetran_active BOOL, " +
+                    "_fivetran_start DATETIME(6)," +
+                    "_fivetran_end DATETIME(6)," +
+                    "PRIMARY KEY(id, _fivetran_start))");
+            stmt.execute("INSERT INTO singlePKUpdateStaging VALUES(1, 'a', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO singlePKUpdateStaging VALUES(2, 'b', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO singlePKUpdateStaging VALUES(3, 'c', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO singlePKUpdateStaging VALUES(1, 'd', FALSE, '2005-05-23 20:57:00.000000', '2005-05-24 20:56:59.999999')");
+            stmt.execute("INSERT INTO singlePKUpdateStaging VALUES(2, 'e', FALSE, '2005-05-23 20:57:00.000000', '2005-05-24 20:56:59.999999')");
+
+            Table t = JDBCUtil.getTable(conf, database, "singlePKUpdateStaging", "singlePKUpdateStaging", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            StagingUpdateHistoryWriter u = new StagingUpdateHistoryWriter(conn, database, t.getName(), t.getColumnsList(), params, null, 123, testWarningHandle);
+            u.setHeader(Arrays.asList("id", "data", "_fivetran_start"));
+            u.writeRow(Arrays.asList("1", "f", "2005-05-25T20:57:00Z"));
+            u.writeRow(Arrays.asList("2", "unm", "2005-05-26T20:57:00Z"));
+            u.writeRow(Arrays.asList("5", "unm", "2005-05-26T20:57:00Z"));
+            u.commit();
+        }
+
+        checkResult("SELECT * FROM `singlePKUpdateStaging` ORDER BY id, _fivetran_start", Arrays.asList(
+                Arrays.asList("1", "d", "0", "2005-05-23 20:57:00.000000", "2005-05-24 20:56:59.999999"),
+                Arrays.asList("1", "a", "0", "2005-05-24 20:57:00.000000", "2005-05-25 20:56:59.999999"),
+                Arrays.asList("1", "f", "1", "2005-05-25 20:57:00.000000", "9999-12-31 23:59:59.999999"),
+                Arrays.asList("2", "e", "0", "2005-05-23 20:57:00.000000", "2005-05-24 20:56:59.999999"),
+                Arrays.asList("2", "b", "0", "2005-05-24 20:57:00.000000", "2005-05-26 20:56:59.999999"),
+                Arrays.asList("2", "b", "1", "2005-05-26 20:57:00.000000", "9999-12-31 23:59:59.999999"),
+                Arrays.asList("3", "c", "1", "2005-05-24 20:57:00.000000", "9999-12-31 23:59:59.999999")
+        ));
+    }
+
+    @Test
+    public void multiPK() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE multiPKUpdateStaging(" +
+                    "id1 INT, " +
+                    "id2 INT, " +
+                    "data1 TEXT, " +
+                    "data2 TEXT, " +
+                    "_fivetran_active BOOL, " +
+                    "_fivetran_start DATETIME(6)," +
+                    "_fivetran_end DATETIME(6)," +
+                    "PRIMARY KEY(id1, id2, _fivetran_start))");
+            stmt.execute("INSERT INTO multiPKUpdateStaging VALUES(1, 1, 'a', 'a', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO multiPKUpdateStaging VALUES(1, 2, 'a', 'a', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO multiPKUpdateStaging VALUES(2, 2, 'b', 'b', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO multiPKUpdateStaging VALUES(3, 3, 'c', 'c', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO multiPKUpdateStaging VALUES(1, 1, 'd', 'd', FALSE, '2005-05-23 20:57:00.000000', '2005-05-24 20:56:59.999999')");
+            stmt.execute("INSERT INTO multiPKUpdateStaging VALUES(2, 2, 'e', 'e', FALSE, '2005-05-23 20:57:00.000000', '2005-05-24 20:56:59.999999')");
+
+            Table t = JDBCUtil.getTable(conf, database, "multiPKUpdateStaging", "multiPKUpdateStaging", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            StagingUpdateHistoryWriter u = new StagingUpdateHistoryWriter(conn, database, t.getName(), t.getColumnsList(), params, null, 123, testWarningHandle);
+            u.setHeader(Arrays.asList("id1", "id2", "data1", "data2", "_fivetran_start"));
+            u.writeRow(Arrays.asList("1", "1", "f", "f", "2005-05-25T20:57:00Z"));
+            u.writeRow(Arrays.asList("2", "2", "unm", "f", "2005-05-26T20:57:00Z"));
+            u.writeRow(Arrays.asList("3", "3", "unm", "unm", "2005-05-26T20:57:00Z"));
+            u.writeRow(Arrays.asList("5", "5", "unm", "unm", "2005-05-26T20:57:00Z"));
+            u.commit();
+        }
+
+        checkResult("SELECT * FROM `multiPKUpdateStaging` ORDER BY id1, id2, _fivetran_start", Arrays.asList(
+                Arrays.asList("1", "1", "d", "d", "0", "2005-05-23 20:57:00.000000", "2005-05-24 20:56:59.999999"),
+                Arrays.asList("1", "1", "a", "a", "0", "2005-05-24 20:57:00.000000", "2005-05-25 20:56:59.999999"),
+                Arrays.asList("1", "1", "f", "f", "1", "2005-05-25 20:57:00.000000", "9999-12-31 23:59:59.999999"),
+                Arrays.asList("1", "2", "a", "a", "1", "2005-05-24 20:57:00.000000", "9999-12-31 23:59:59.999999"),
+                Arrays.asList("2", "2", "e", "e", "0", "2005-05-23 20:57:00.000000", "2005-05-24 20:56:59.999999"),
+                Arrays.asList("2", "2", "b", "b", "0", "2005-05-24 20:57:00.000000", "2005-05-26 20:56:59.999999"),
+                Arrays.asList("2", "2", "b", "f", "1", "2005-05-26 20:57:00.000000", "9999-12-31 23:59:59.999999"),
+                Arrays.asList("3", "3", "c", "c", "0", "2005-05-24 20:57:00.000000", "2005-05-26 20:56:59.999999"),
+                Arrays.asList("3", "3", "c", "c", "1", "2005-05-26 20:57:00.000000", "9999-12-31 23:59:59.999999")
+        ));
+    }
+
+    @Test
+    public void updateSameIDStaging() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE updateSameIDStaging(" +
+                    "id INT, " +
+                    "data TEXT, " +
+                    "_fivetran_active BOOL, " +
+                    "_fivetran_start DATETIME(6)," +
+                    "_fivetran_end DATETIME(6)," +
+                    "PRIMARY KEY(id, _fivetran_start))");
+            stmt.execute("INSERT INTO updateSameIDStaging VALUES(1, 'a', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+
+            Table t = JDBCUtil.getTable(conf, database, "updateSameIDStaging", "updateSameIDStaging", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            StagingUpdateHistoryWriter u = new StagingUpdateHistoryWriter(conn, database, t.getName(), t.getColumnsList(), params, null, 123, testWarningHandle);
+            u.setHeader(Arrays.asList("id", "data", "_fivetran_start"));
+            u.writeRow(Arrays.asList("1", "f", "2005-05-27T20:57:00Z"));
+            u.writeRow(Arrays.asList("1", "unm", "2005-05-26T20:57:00Z"));
+            u.writeRow(Arrays.asList("1", "ff", "2005-05-25T20:57:00Z"));
+            u.commit();
+        }
+
+        checkResult("SELECT * FROM `updateSameIDStaging` ORDER BY id, _fivetran_start", Arrays.asList(
+                Arrays.asList("1", "a", "0", "2005-05-24 20:57:00.000000", "2005-05-25 20:56:59.999999"),
+                Arrays.asList("1", "ff", "0", "2005-05-25 20:57:00.000000", "2005-05-26 20:56:59.999999"),
+                Arrays.asList("1", "ff", "0", "2005-05-26 20:57:00.000000", "2005-05-27 20:56:59.999999"),
+                Arrays.asList("1", "f", "1", "2005-05-27 20:57:00.000000", "9999-12-31 23:59:59.999999")
+        ));
+    }
+
+    @Test
+    public void carryOverNulls() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE carryOverNullsStaging(" +
+                    "id VARCHAR(10), " +
+                    "a TEXT, " +
+                    "b INT, " +
+                    "_fivetran_active BOOL, " +
+                    "_fivetran_start DATETIME(6)," +
+                    "_fivetran_end DATETIME(6)," +
+                    "PRIMARY KEY(id, _fivetran_start))");
+            stmt.execute("INSERT INTO carryOverNullsStaging VALUES('x', 'a', 1, TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO carryOverNullsStaging VALUES('y', 'b', 2, TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+
+            Table t = JDBCUtil.getTable(conf, database, "carryOverNullsStaging", "carryOverNullsStaging", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            StagingUpdateHistoryWriter u = new StagingUpdateHistoryWriter(conn, database, t.getName(), t.getColumnsList(), params, null, 123, testWarningHandle);
+            u.setHeader(Arrays.asList("id", "a", "b", "_fivetran_start"));
+            u.writeRow(Arrays.asList("x", "unm", "3", "2005-05-26T20:57:00Z"));
+            u.writeRow(Arrays.asList("x", "NULL", "unm", "2005-05-25T20:57:00Z"));
+            u.writeRow(Arrays.asList("y", "unm", "NULL", "2005-05-25T20:57:00Z"));
+            u.writeRow(Arrays.asList("y", "c", "unm", "2005-05-25T20:57:00.000001Z"));
+            u.commit();
+        }
+
+        checkResult("SELECT * FROM `carryOverNullsStaging` ORDER BY id, _fivetran_start", Arrays.asList(
+                Arrays.asList("x", "a", "1", "0", "2005-05-24 20:57:00.000000", "2005-05-25 20:56:59.999999"),
+                Arrays.asList("x", null, "1", "0", "2005-05-25 20:57:00.000000", "2005-05-26 20:56:59.999999"),
+                Arrays.asList("x", null, "3", "1", "2005-05-26 20:57:00.000000", "9999-12-31 23:59:59.999999"),
+                Arrays.asList("y", "b", "2", "0", "2005-05-24 20:57:00.000000", "2005-05-25 20:56:59.999999"),
+                Arrays.asList("y", "b", null, "0", "2005-05-25 20:57:00.000000", "2005-05-25 20:57:00.000000"),
+                Arrays.asList("y", "c", null, "1", "2005-05-25 20:57:00.000001", "9999-12-31 23:59:59.999999")
+        ));
+    }
+}
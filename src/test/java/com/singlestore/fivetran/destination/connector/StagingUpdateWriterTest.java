@@ -0,0 +1,148 @@
+package com.singlestore.fivetran.destination.connector;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.singlestore.fivetran.destination.connector.writers.LoadDataWriter;
+import com.singlestore.fivetran.destination.connector.writers.StagingUpdateWriter;
+
+import fivetran_sdk.v2.FileParams;
+import fivetran_sdk.v2.Table;
+
+public class StagingUpdateWriterTest extends IntegrationTestBase {
+    @Test
+    public void partialUpdate() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE partialUpdate(id INT PRIMARY KEY, a INT, b INT)");
+            stmt.execute("INSERT INTO partialUpdate VALUES(1, 2, 3)");
+            stmt.execute("INSERT INTO partialUpdate VALUES(4, 5, 6)");
+            stmt.execute("INSERT INTO partialUpdate VALUES(7, 8, 9)");
+            stmt.execute("INSERT INTO partialUpdate VALUES(10, 11, 12)");
+
+            Table t = JDBCUtil.getTable(conf, database, "partialUpdate", "partialUpdate", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            StagingUpdateWriter u = new StagingUpdateWriter(conn, database, t.getName(),
+                    t.getColumnsList(), params, null, 123, testWarningHandle);
+            u.setHeader(List.of("id", "a", "b"));
+            u.writeRow(List.of("4", "unm", "1"));
+            u.writeRow(List.of("7", "10", "unm"));
+            u.writeRow(List.of("10", "unm", "unm"));
+            u.writeRow(List.of("unm", "unm", "unm"));
+            u.writeRow(List.of("1", "NULL", "unm"));
+            u.commit();
+        }
+
+        checkResult("SELECT * FROM `partialUpdate` ORDER BY id",
+                Arrays.asList(Arrays.asList("1", null, "3"), Arrays.asList("4", "5", "1"),
+                        Arrays.asList("7", "10", "9"), Arrays.asList("10", "11", "12")));
+    }
+
+    @Test
+    public void repeatedKeys() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE repeatedKeys(id INT PRIMARY KEY, a INT, b INT)");
+            stmt.execute("INSERT INTO repeatedKeys VALUES(1, 2, 3)");
+            stmt.execute("INSERT INTO repeatedKeys VALUES(4, 5, 6)");
+
+            Table t = JDBCUtil.getTable(conf, database, "repeatedKeys", "repeatedKeys", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            StagingUpdateWriter u = new StagingUpdateWriter(conn, database, t.getName(),
+                    t.getColumnsList(), params, null, 2, testWarningHandle);
+            u.setHeader(List.of("id", "a", "b"));
+            u.writeRow(List.of("1", "10", "unm"));
+            u.writeRow(List.of("1", "unm", "20"));
+            u.writeRow(List.of("1", "30", "unm"));
+            u.writeRow(List.of("4", "unm", "40"));
+            u.commit();
+
+            // The staging table is reused by the next batch
+            u.setHeader(List.of("id", "a", "b"));
+            u.writeRow(List.of("4", "50", "unm"));
+            u.commit();
+        }
+
+        checkResult("SELECT * FROM `repeatedKeys` ORDER BY id",
+                Arrays.asList(Arrays.asList("1", "30", "20"), Arrays.asList("4", "50", "40")));
+    }
+
+    @Test
+    public void keysEqualInCollation() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE keysEqualInCollation(id VARCHAR(10) PRIMARY KEY, a INT)");
+            stmt.execute("INSERT INTO keysEqualInCollation VALUES('a', 1)");
+
+            Table t = JDBCUtil.getTable(conf, database, "keysEqualInCollation", "keysEqualInCollation", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            // Keys differ only in case, so the rows must be applied in order
+            StagingUpdateWriter u = new StagingUpdateWriter(conn, database, t.getName(),
+                    t.getColumnsList(), params, null, 123, testWarningHandle);
+            u.setHeader(List.of("id", "a"));
+            u.writeRow(List.of("a", "2"));
+            u.writeRow(List.of("A", "3"));
+            u.writeRow(List.of("a ", "4"));
+            u.commit();
+        }
+
+        checkResult("SELECT * FROM `keysEqualInCollation`", List.of(List.of("a", "4")));
+    }
+
+    @Test
+    public void allBytes() throws Exception {
+        byte[] data = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            data[i] = (byte) i;
+        }
+
+        String dataBase64 = Base64.getEncoder().encodeToString(data);
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement();) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.executeQuery("CREATE TABLE allBytes(a BLOB PRIMARY KEY, b INT, c BLOB)");
+            Table allBytesTable = JDBCUtil.getTable(conf, database, "allBytes", "allBytes", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL").build();
+            LoadDataWriter w = new LoadDataWriter(conn, database, allBytesTable.getName(),
+                    allBytesTable.getColumnsList(), params, null, 123, testWarningHandle);
+            w.setHeader(List.of("a", "b", "c"));
+            w.writeRow(List.of(dataBase64, "1", "NULL"));
+            w.commit();
+
+            StagingUpdateWriter u = new StagingUpdateWriter(conn, database,
+                    allBytesTable.getName(), allBytesTable.getColumnsList(), params, null, 123,
+                    testWarningHandle);
+            u.setHeader(List.of("a", "b", "c"));
+            u.writeRow(List.of(dataBase64, "2", dataBase64));
+            u.commit();
+
+            try (ResultSet rs = stmt.executeQuery("SELECT * FROM allBytes")) {
+                assertTrue(rs.next());
+                assertArrayEquals(data, rs.getBytes(1));
+                assertEquals(2, rs.getInt(2));
+                assertArrayEquals(data, rs.getBytes(3));
+                assertFalse(rs.next());
+            }
+        }
+    }
+}
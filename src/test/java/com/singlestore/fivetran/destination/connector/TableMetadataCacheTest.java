@@ -0,0 +1,115 @@
+package com.singlestore.fivetran.destination.connector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.Test;
+
+import fivetran_sdk.v2.Table;
+
+public class TableMetadataCacheTest extends IntegrationTestBase {
+    @Test
+    public void cachesAndInvalidates() throws Exception {
+        TableMetadataCache cache = new TableMetadataCache();
+
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("CREATE TABLE `%s`.`cachedTable`(a INT PRIMARY KEY)", database));
+
+            Table t = cache.getTable(conn, conf, database, "cachedTable", "cachedTable", testWarningHandle);
+            assertEquals(1, t.getColumnsCount());
+            assertEquals(1, cache.misses());
+
+            stmt.execute(String.format("ALTER TABLE `%s`.`cachedTable` ADD COLUMN b INT", database));
+
+            // Stale until invalidated
+            t = cache.getTable(conn, conf, database, "cachedTable", "originalName", testWarningHandle);
+            assertEquals(1, t.getColumnsCount());
+            assertEquals("originalName", t.getName());
+            assertEquals(1, cache.hits());
+
+            cache.invalidate(conf, database, "cachedTable");
+            t = cache.getTable(conn, conf, database, "cachedTable", "cachedTable", testWarningHandle);
+            assertEquals(2, t.getColumnsCount());
+            assertEquals(2, cache.misses());
+        }
+    }
+
+    @Test
+    public void sizeBound() throws Exception {
+        TableMetadataCache cache = new TableMetadataCache();
+        cache.configure(60000, 2);
+
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            for (int i = 0; i < 3; i++) {
+                stmt.execute(String.format("CREATE TABLE `%s`.`lru%d`(a INT PRIMARY KEY)", database, i));
+            }
+
+            cache.getTable(conn, conf, database, "lru0", "lru0", testWarningHandle);
+            cache.getTable(conn, conf, database, "lru1", "lru1", testWarningHandle);
+            // lru0 becomes the most recently used entry
+            cache.getTable(conn, conf, database, "lru0", "lru0", testWarningHandle);
+            cache.getTable(conn, conf, database, "lru2", "lru2", testWarningHandle);
+
+            assertEquals(2, cache.size());
+            assertEquals(1, cache.evictions());
+
+            cache.getTable(conn, conf, database, "lru0", "lru0", testWarningHandle);
+            assertEquals(2, cache.hits());
+            cache.getTable(conn, conf, database, "lru1", "lru1", testWarningHandle);
+            assertEquals(4, cache.misses());
+        }
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        TableMetadataCache cache = new TableMetadataCache();
+        cache.configure(0, 10);
+
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("CREATE TABLE `%s`.`notCached`(a INT PRIMARY KEY)", database));
+
+            cache.getTable(conn, conf, database, "notCached", "notCached", testWarningHandle);
+            cache.getTable(conn, conf, database, "notCached", "notCached", testWarningHandle);
+            assertEquals(0, cache.hits());
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void prefetch() throws Exception {
+        TableMetadataCache cache = new TableMetadataCache();
+        cache.setPrefetch(true);
+
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE DATABASE prefetchDb");
+            try {
+                for (int i = 0; i < 3; i++) {
+                    stmt.execute(String.format("CREATE TABLE prefetchDb.`t%d`(a INT PRIMARY KEY)", i));
+                }
+
+                cache.getTable(conn, conf, "prefetchDb", "t0", "t0", testWarningHandle);
+                assertEquals(3, cache.prefetchedTables());
+                assertEquals(3, cache.size());
+                assertEquals(1, cache.misses());
+
+                cache.getTable(conn, conf, "prefetchDb", "t1", "t1", testWarningHandle);
+                cache.getTable(conn, conf, "prefetchDb", "t2", "t2", testWarningHandle);
+                assertEquals(2, cache.hits());
+
+                // Tables created after the prefetch are loaded one by one
+                stmt.execute("CREATE TABLE prefetchDb.`t3`(a INT PRIMARY KEY, b INT)");
+                Table t = cache.getTable(conn, conf, "prefetchDb", "t3", "t3", testWarningHandle);
+                assertEquals(2, t.getColumnsCount());
+                assertEquals(3, cache.prefetchedTables());
+            } finally {
+                stmt.execute("DROP DATABASE prefetchDb");
+            }
+        }
+    }
+}
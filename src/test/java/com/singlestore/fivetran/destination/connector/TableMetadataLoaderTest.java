@@ -0,0 +1,74 @@
+package com.singlestore.fivetran.destination.connector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.DataType;
+import fivetran_sdk.v2.Table;
+
+public class TableMetadataLoaderTest extends IntegrationTestBase {
+    @Test
+    public void typeName() {
+        assertEquals("INT", TableMetadataLoader.typeName("int(11)"));
+        assertEquals("INT UNSIGNED", TableMetadataLoader.typeName("int(10) unsigned"));
+        assertEquals("BOOLEAN", TableMetadataLoader.typeName("tinyint(1)"));
+        assertEquals("BOOLEAN", TableMetadataLoader.typeName("tinyint(4)"));
+        assertEquals("DECIMAL", TableMetadataLoader.typeName("decimal(38,30)"));
+        assertEquals("DATETIME", TableMetadataLoader.typeName("datetime(6)"));
+        assertEquals("LONGTEXT", TableMetadataLoader.typeName("longtext"));
+        assertEquals("GEOGRAPHYPOINT", TableMetadataLoader.typeName("geographypoint"));
+        assertEquals("BIGINT", TableMetadataLoader.typeName("PERSISTED bigint(20)"));
+    }
+
+    @Test
+    public void compositePrimaryKey() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("CREATE TABLE `%s`.`loaderPk`(a INT, b VARCHAR(10), c DECIMAL(10, 2), "
+                    + "PRIMARY KEY(b, a), KEY(c))", database));
+
+            Table t = TableMetadataLoader.loadTable(conn, database, "loaderPk");
+            List<Column> columns = t.getColumnsList();
+            assertEquals(3, columns.size());
+
+            assertEquals("a", columns.get(0).getName());
+            assertEquals(DataType.INT, columns.get(0).getType());
+            assertTrue(columns.get(0).getPrimaryKey());
+
+            assertEquals("b", columns.get(1).getName());
+            assertEquals(DataType.STRING, columns.get(1).getType());
+            assertTrue(columns.get(1).getPrimaryKey());
+
+            assertEquals("c", columns.get(2).getName());
+            assertEquals(DataType.DECIMAL, columns.get(2).getType());
+            assertFalse(columns.get(2).getPrimaryKey());
+            assertEquals(10, columns.get(2).getParams().getDecimal().getPrecision());
+            assertEquals(2, columns.get(2).getParams().getDecimal().getScale());
+        }
+    }
+
+    @Test
+    public void exists() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("CREATE TABLE `%s`.`loaderExists`(a INT PRIMARY KEY)", database));
+
+            assertTrue(JDBCUtil.checkTableExists(stmt, database, "loaderExists"));
+            assertFalse(JDBCUtil.checkTableExists(stmt, database, "loaderMissing"));
+            assertFalse(JDBCUtil.checkTableExists(stmt, "loaderMissingDatabase", "loaderExists"));
+            assertNull(TableMetadataLoader.loadTable(conn, database, "loaderMissing"));
+
+            assertTrue(JDBCUtil.checkDatabaseExists(stmt, database));
+            assertFalse(JDBCUtil.checkDatabaseExists(stmt, "loaderMissingDatabase"));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.singlestore.fivetran.destination.connector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.singlestore.fivetran.destination.connector.writers.UpdateCoalescer;
+
+import fivetran_sdk.v2.Column;
+import fivetran_sdk.v2.DataType;
+
+public class UpdateCoalescerTest extends IntegrationTestBase {
+    private static final List<Column> header = List.of(
+            Column.newBuilder().setName("id").setType(DataType.STRING).setPrimaryKey(true).build(),
+            Column.newBuilder().setName("a").setType(DataType.INT).build(),
+            Column.newBuilder().setName("b").setType(DataType.INT).build());
+
+    @Test
+    public void mergesPartialUpdates() throws Exception {
+        List<List<String>> applied = new ArrayList<>();
+        UpdateCoalescer coalescer = new UpdateCoalescer(header, "NULL", "unm",
+                UpdateCoalescer.DEFAULT_MEMORY_BUDGET, applied::add);
+        coalescer.add(List.of("1", "10", "unm"));
+        coalescer.add(List.of("2", "unm", "5"));
+        coalescer.add(List.of("1", "unm", "20"));
+        coalescer.add(List.of("1", "30", "unm"));
+        coalescer.add(List.of("2", "NULL", "unm"));
+        coalescer.flush();
+
+        assertEquals(List.of(List.of("1", "30", "20"), List.of("2", "NULL", "5")), applied);
+        assertEquals(3, coalescer.merged());
+    }
+
+    @Test
+    public void keepsOrderOfKeysWhichMayBeEqual() throws Exception {
+        List<List<String>> applied = new ArrayList<>();
+        UpdateCoalescer coalescer = new UpdateCoalescer(header, "NULL", "unm",
+                UpdateCoalescer.DEFAULT_MEMORY_BUDGET, applied::add);
+        coalescer.add(List.of("a", "1", "unm"));
+        coalescer.add(List.of("A", "2", "unm"));
+        coalescer.add(List.of("a", "unm", "3"));
+        coalescer.flush();
+
+        assertEquals(List.of(List.of("a", "1", "unm"), List.of("A", "2", "unm"),
+                List.of("a", "unm", "3")), applied);
+        assertEquals(0, coalescer.merged());
+    }
+
+    @Test
+    public void flushesWhenMemoryBudgetIsExceeded() throws Exception {
+        List<List<String>> applied = new ArrayList<>();
+        UpdateCoalescer coalescer = new UpdateCoalescer(header, "NULL", "unm", 1000,
+                applied::add);
+        for (int i = 0; i < 100; i++) {
+            coalescer.add(List.of(String.valueOf(i % 10), String.valueOf(i), "unm"));
+        }
+        // The budget fits only a few pending updates
+        int emittedBeforeFlush = applied.size();
+        coalescer.flush();
+
+        assertEquals(true, emittedBeforeFlush > 0);
+        List<String> last = null;
+        for (List<String> row : applied) {
+            if (row.get(0).equals("9")) {
+                last = row;
+            }
+        }
+        assertEquals(List.of("9", "99", "unm"), last);
+    }
+}
@@ -5,9 +5,14 @@ import fivetran_sdk.v2.FileParams;
 import fivetran_sdk.v2.Table;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -159,4 +164,124 @@ public class UpdateHistoryWriterTest extends IntegrationTestBase {
                 Arrays.asList("1", "f", "1", "2005-05-27 20:57:00.000000", "9999-12-31 23:59:59.999999")
         ));
     }
+
+    @Test
+    public void parallel() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE parallelUpdate(" +
+                    "id INT, " +
+                    "data TEXT, " +
+                    "_fivetran_active BOOL, " +
+                    "_fivetran_start DATETIME(6)," +
+                    "_fivetran_end DATETIME(6)," +
+                    "PRIMARY KEY(id, _fivetran_start))");
+            for (int id = 1; id <= 8; id++) {
+                stmt.execute(String.format("INSERT INTO parallelUpdate VALUES(%d, 'a', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')", id));
+            }
+
+            Table t = JDBCUtil.getTable(conf, database, "parallelUpdate", "parallelUpdate", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            UpdateHistoryWriter u = new UpdateHistoryWriter(conn, database, t.getName(),
+                    t.getColumnsList(), params, null, 123, 4, () -> JDBCUtil.createConnection(conf));
+            u.setHeader(Arrays.asList("id", "data", "_fivetran_start"));
+            for (int id = 1; id <= 8; id++) {
+                // Versions of a row are written out of order
+                u.writeRow(Arrays.asList(String.valueOf(id), "c", "2005-05-26T20:57:00Z"));
+                u.writeRow(Arrays.asList(String.valueOf(id), "unm", "2005-05-25T20:57:00Z"));
+            }
+            u.commit();
+        }
+
+        List<List<String>> expected = new ArrayList<>();
+        for (int id = 1; id <= 8; id++) {
+            expected.add(Arrays.asList(String.valueOf(id), "a", "0", "2005-05-24 20:57:00.000000", "2005-05-25 20:56:59.999999"));
+            expected.add(Arrays.asList(String.valueOf(id), "a", "0", "2005-05-25 20:57:00.000000", "2005-05-26 20:56:59.999999"));
+            expected.add(Arrays.asList(String.valueOf(id), "c", "1", "2005-05-26 20:57:00.000000", "9999-12-31 23:59:59.999999"));
+        }
+        checkResult("SELECT * FROM `parallelUpdate` ORDER BY id, _fivetran_start", expected);
+    }
+
+    @Test
+    public void multipleBatches() throws Exception {
+        Path file = Files.createTempFile("updateHistory", ".csv");
+        file.toFile().deleteOnExit();
+        Files.write(file, ("id,data,_fivetran_start\n" +
+                "1,f,2005-05-25T20:57:00Z\n" +
+                "2,g,2005-05-25T20:57:00Z\n" +
+                "3,h,2005-05-25T20:57:00Z\n").getBytes(StandardCharsets.UTF_8));
+
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE multipleBatchesUpdate(" +
+                    "id INT, " +
+                    "data TEXT, " +
+                    "_fivetran_active BOOL, " +
+                    "_fivetran_start DATETIME(6)," +
+                    "_fivetran_end DATETIME(6)," +
+                    "PRIMARY KEY(id, _fivetran_start))");
+            stmt.execute("INSERT INTO multipleBatchesUpdate VALUES(1, 'a', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO multipleBatchesUpdate VALUES(2, 'b', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+            stmt.execute("INSERT INTO multipleBatchesUpdate VALUES(3, 'c', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')");
+
+            Table t = JDBCUtil.getTable(conf, database, "multipleBatchesUpdate", "multipleBatchesUpdate", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            // Every batch after the first one is written after the header is set again
+            UpdateHistoryWriter u = new UpdateHistoryWriter(conn, database, t.getName(), t.getColumnsList(), params, null, 2);
+            u.write(file.toString());
+        }
+
+        checkResult("SELECT * FROM `multipleBatchesUpdate` ORDER BY id, _fivetran_start", Arrays.asList(
+                Arrays.asList("1", "a", "0", "2005-05-24 20:57:00.000000", "2005-05-25 20:56:59.999999"),
+                Arrays.asList("1", "f", "1", "2005-05-25 20:57:00.000000", "9999-12-31 23:59:59.999999"),
+                Arrays.asList("2", "b", "0", "2005-05-24 20:57:00.000000", "2005-05-25 20:56:59.999999"),
+                Arrays.asList("2", "g", "1", "2005-05-25 20:57:00.000000", "9999-12-31 23:59:59.999999"),
+                Arrays.asList("3", "c", "0", "2005-05-24 20:57:00.000000", "2005-05-25 20:56:59.999999"),
+                Arrays.asList("3", "h", "1", "2005-05-25 20:57:00.000000", "9999-12-31 23:59:59.999999")
+        ));
+    }
+
+    @Test
+    public void parallelWithoutFreeConnections() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE parallelNoConnections(" +
+                    "id INT, " +
+                    "data TEXT, " +
+                    "_fivetran_active BOOL, " +
+                    "_fivetran_start DATETIME(6)," +
+                    "_fivetran_end DATETIME(6)," +
+                    "PRIMARY KEY(id, _fivetran_start))");
+            for (int id = 1; id <= 8; id++) {
+                stmt.execute(String.format("INSERT INTO parallelNoConnections VALUES(%d, 'a', TRUE, '2005-05-24 20:57:00.000000', '9999-12-31 23:59:59.999999')", id));
+            }
+
+            Table t = JDBCUtil.getTable(conf, database, "parallelNoConnections", "parallelNoConnections", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            // All partitions are applied by the given connection if no other connection is free
+            UpdateHistoryWriter u = new UpdateHistoryWriter(conn, database, t.getName(),
+                    t.getColumnsList(), params, null, 123, 4, () -> null);
+            u.setHeader(Arrays.asList("id", "data", "_fivetran_start"));
+            for (int id = 1; id <= 8; id++) {
+                u.writeRow(Arrays.asList(String.valueOf(id), "c", "2005-05-26T20:57:00Z"));
+            }
+            u.commit();
+        }
+
+        List<List<String>> expected = new ArrayList<>();
+        for (int id = 1; id <= 8; id++) {
+            expected.add(Arrays.asList(String.valueOf(id), "a", "0", "2005-05-24 20:57:00.000000", "2005-05-26 20:56:59.999999"));
+            expected.add(Arrays.asList(String.valueOf(id), "c", "1", "2005-05-26 20:57:00.000000", "9999-12-31 23:59:59.999999"));
+        }
+        checkResult("SELECT * FROM `parallelNoConnections` ORDER BY id, _fivetran_start", expected);
+    }
 }
@@ -127,4 +127,33 @@ public class UpdateWriterTets extends IntegrationTestBase {
             }
         }
     }
+
+    @Test
+    public void coalesce() throws Exception {
+        try (Connection conn = JDBCUtil.createConnection(conf);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format("USE %s", database));
+            stmt.execute("CREATE TABLE coalesceUpdate(name VARCHAR(10) COLLATE utf8mb4_general_ci PRIMARY KEY, a INT, b INT)");
+            stmt.execute("INSERT INTO coalesceUpdate VALUES('x', 1, 1)");
+            stmt.execute("INSERT INTO coalesceUpdate VALUES('y', 1, 1)");
+
+            Table t = JDBCUtil.getTable(conf, database, "coalesceUpdate", "coalesceUpdate", testWarningHandle);
+            FileParams params = FileParams.newBuilder().setNullString("NULL")
+                    .setUnmodifiedString("unm").build();
+
+            UpdateWriter u = new UpdateWriter(conn, database, t.getName(), t.getColumnsList(), params, null, 123);
+            u.setHeader(List.of("name", "a", "b"));
+            u.writeRow(List.of("y", "10", "unm"));
+            u.writeRow(List.of("y", "unm", "20"));
+            u.writeRow(List.of("y", "30", "unm"));
+            // Keys which are equal only in the collation of the column are not merged
+            u.writeRow(List.of("x", "2", "unm"));
+            u.writeRow(List.of("X", "3", "unm"));
+            u.writeRow(List.of("x", "unm", "4"));
+            u.commit();
+        }
+
+        checkResult("SELECT * FROM `coalesceUpdate` ORDER BY name",
+                Arrays.asList(Arrays.asList("x", "3", "4"), Arrays.asList("y", "30", "20")));
+    }
 }